@@ -0,0 +1,58 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks in this package single-threaded and then with as many threads as there are
+ * available processors. Both throughput and sample time (with p99 and p99.9 percentiles) modes
+ * are measured. Results are written to {@code target/jmh-<threads>-threads.json}, so that runs on
+ * two versions could be compared.
+ *
+ * <p>If any arguments are given, they are passed to the standard JMH command line instead.
+ */
+public final class ChronicleMapBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        run(1);
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (processors > 1)
+            run(processors);
+    }
+
+    private static void run(int threads) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChronicleMapBenchmarks.class.getPackage().getName() + ".*Benchmark")
+                .threads(threads)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-" + threads + "-threads.json")
+                .build();
+        new Runner(options).run();
+    }
+
+    private ChronicleMapBenchmarks() {
+    }
+}
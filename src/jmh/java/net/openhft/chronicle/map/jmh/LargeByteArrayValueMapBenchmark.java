@@ -0,0 +1,113 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.jmh;
+
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Long} keys and large {@code byte[]} values, i. e. entries spanning many chunks.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LargeByteArrayValueMapBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ByteArrayValueMap extends MapState<Long, byte[]> {
+
+        @Param("100000")
+        public int entries;
+
+        @Param("4096")
+        public int valueSize;
+
+        @Override
+        int entries() {
+            return entries;
+        }
+
+        @Setup
+        public void createAndFill() throws IOException {
+            map = createMap(ChronicleMapBuilder.of(Long.class, byte[].class)
+                    .averageValueSize(valueSize));
+            byte[] value = new byte[valueSize];
+            for (long i = 0; i < entries; i++) {
+                map.put(i, value);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        final SplittableRandom random = new SplittableRandom();
+        byte[] value;
+        byte[] using;
+
+        @Setup
+        public void createValues(ByteArrayValueMap m) {
+            value = new byte[m.valueSize];
+            random.nextBytes(value);
+            using = new byte[m.valueSize];
+        }
+
+        Long nextKey(MapState<?, ?> state) {
+            return (long) random.nextInt(state.entries());
+        }
+    }
+
+    @Benchmark
+    public byte[] get(ByteArrayValueMap m, Keys k) {
+        return m.map.get(k.nextKey(m));
+    }
+
+    @Benchmark
+    public byte[] getUsing(ByteArrayValueMap m, Keys k) {
+        return m.map.getUsing(k.nextKey(m), k.using);
+    }
+
+    @Benchmark
+    public byte[] put(ByteArrayValueMap m, Keys k) {
+        return m.map.put(k.nextKey(m), k.value);
+    }
+
+    @Benchmark
+    public byte[] compute(ByteArrayValueMap m, Keys k) {
+        return m.map.compute(k.nextKey(m), (key, value) -> {
+            value[0]++;
+            return value;
+        });
+    }
+
+    /**
+     * Removes and puts back the same entry, so that the map population stays stable during
+     * the measurement.
+     */
+    @Benchmark
+    public byte[] removeAndPut(ByteArrayValueMap m, Keys k) {
+        Long key = k.nextKey(m);
+        byte[] removed = m.map.remove(key);
+        m.map.put(key, k.value);
+        return removed;
+    }
+}
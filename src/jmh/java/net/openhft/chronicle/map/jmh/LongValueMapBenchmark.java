@@ -0,0 +1,121 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.jmh;
+
+import net.openhft.chronicle.core.values.LongValue;
+import net.openhft.chronicle.map.ChronicleMap;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import net.openhft.chronicle.values.Values;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Constantly-sized entries: {@code LongValue} keys and {@code LongValue} values.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LongValueMapBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LongValueMap extends MapState<LongValue, LongValue> {
+
+        @Param("1000000")
+        public int entries;
+
+        @Override
+        int entries() {
+            return entries;
+        }
+
+        @Setup
+        public void createAndFill() throws IOException {
+            map = createMap(ChronicleMapBuilder.of(LongValue.class, LongValue.class));
+            LongValue key = Values.newHeapInstance(LongValue.class);
+            LongValue value = Values.newHeapInstance(LongValue.class);
+            for (int i = 0; i < entries; i++) {
+                key.setValue(i);
+                value.setValue(i);
+                map.put(key, value);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        final SplittableRandom random = new SplittableRandom();
+        final LongValue key = Values.newHeapInstance(LongValue.class);
+        final LongValue value = Values.newHeapInstance(LongValue.class);
+        final LongValue using = Values.newHeapInstance(LongValue.class);
+        final LongValue nativeUsing = Values.newNativeReference(LongValue.class);
+
+        LongValue nextKey(MapState<?, ?> state) {
+            key.setValue(random.nextInt(state.entries()));
+            return key;
+        }
+    }
+
+    @Benchmark
+    public LongValue get(LongValueMap m, Keys k) {
+        return m.map.get(k.nextKey(m));
+    }
+
+    @Benchmark
+    public LongValue getUsing(LongValueMap m, Keys k) {
+        return m.map.getUsing(k.nextKey(m), k.using);
+    }
+
+    @Benchmark
+    public LongValue put(LongValueMap m, Keys k) {
+        LongValue key = k.nextKey(m);
+        k.value.setValue(key.getValue());
+        return m.map.put(key, k.value);
+    }
+
+    @Benchmark
+    public long acquireUsing(LongValueMap m, Keys k) {
+        ChronicleMap<LongValue, LongValue> map = m.map;
+        LongValue value = map.acquireUsing(k.nextKey(m), k.nativeUsing);
+        return value.addValue(1);
+    }
+
+    @Benchmark
+    public LongValue compute(LongValueMap m, Keys k) {
+        return m.map.compute(k.nextKey(m), (key, value) -> {
+            value.setValue(value.getValue() + 1);
+            return value;
+        });
+    }
+
+    /**
+     * Removes and puts back the same entry, so that the map population stays stable during
+     * the measurement.
+     */
+    @Benchmark
+    public LongValue removeAndPut(LongValueMap m, Keys k) {
+        LongValue key = k.nextKey(m);
+        LongValue removed = m.map.remove(key);
+        k.value.setValue(key.getValue());
+        m.map.put(key, k.value);
+        return removed;
+    }
+}
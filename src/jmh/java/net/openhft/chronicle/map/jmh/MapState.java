@@ -0,0 +1,73 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map.jmh;
+
+import net.openhft.chronicle.map.ChronicleMap;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Common part of the benchmarked map states: whether the map is purely in-memory or {@linkplain
+ * ChronicleMapBuilder#createPersistedTo(File) persisted}.
+ */
+@State(Scope.Benchmark)
+public abstract class MapState<K, V> {
+
+    public enum Storage {IN_MEMORY, PERSISTED}
+
+    @Param({"IN_MEMORY", "PERSISTED"})
+    public Storage storage;
+
+    public ChronicleMap<K, V> map;
+    private File file;
+
+    /**
+     * Returns the number of entries the map is populated with, keys are drawn uniformly from
+     * this range during the measurement.
+     */
+    abstract int entries();
+
+    ChronicleMap<K, V> createMap(ChronicleMapBuilder<K, V> builder) throws IOException {
+        builder.entries(entries());
+        if (storage == Storage.PERSISTED) {
+            file = File.createTempFile("chronicle-map-jmh", ".dat");
+            file.delete();
+            file.deleteOnExit();
+            return builder.createPersistedTo(file);
+        } else {
+            return builder.create();
+        }
+    }
+
+    @TearDown
+    public void closeMap() {
+        if (map != null) {
+            map.close();
+            map = null;
+        }
+        if (file != null) {
+            file.delete();
+            file = null;
+        }
+    }
+}
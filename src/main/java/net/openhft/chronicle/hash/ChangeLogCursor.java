@@ -0,0 +1,96 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash;
+
+/**
+ * A cursor over the change log of a {@link ChronicleHash}, see {@link
+ * ChronicleHashBuilder#changeLog(long, int)}. Each change, made to the {@code ChronicleHash} by
+ * any process, is appended to the change log with the next sequence number. A cursor reads the
+ * changes in the order of their sequence numbers.
+ *
+ * <p>The change log is a ring buffer of limited capacity, so changes, which are not read in time,
+ * are overwritten by newer changes. In this case {@link #next()} skips to the oldest change, still
+ * present in the change log, and the number of skipped changes is added to {@link
+ * #lostChanges()}. A change, which is not completely appended in a second (e. g. the appending
+ * process is killed), is skipped and counted as lost as well. After lost changes consumers should
+ * usually resynchronize with the full contents of the {@code ChronicleHash}.
+ *
+ * <p>Cursors are not thread-safe.
+ *
+ * @param <K> the key type of the {@code ChronicleHash}
+ * @see ChronicleHash#changeLogCursor()
+ */
+public interface ChangeLogCursor<K> {
+
+    /**
+     * Moves this cursor to the next change, if it is already appended to the change log.
+     *
+     * @return {@code true} if the cursor is moved to the next change, {@code false} if there are
+     * no more changes at the moment
+     */
+    boolean next();
+
+    /**
+     * Moves this cursor to the position before the change with the given sequence number, e. g.
+     * to resume consumption, after {@link #sequence()} of the last consumed change is persisted.
+     *
+     * @param sequence the sequence number of the change, which should be read by the next {@link
+     * #next()} call
+     */
+    void moveTo(long sequence);
+
+    /**
+     * Returns the sequence number of the current change.
+     */
+    long sequence();
+
+    /**
+     * Returns the type of the current change.
+     */
+    ChangeType changeType();
+
+    /**
+     * Returns the time of the current change, in milliseconds since epoch.
+     */
+    long timestamp();
+
+    /**
+     * Returns the hash code of the key of the current change, computed by the {@link
+     * ChronicleHashBuilder#keyHashFunction(KeyHashFunction) key hash function} of the {@code
+     * ChronicleHash}.
+     */
+    long keyHash();
+
+    /**
+     * Returns {@code true} if the serialized key of the current change fitted the change log
+     * record and could be read via {@link #key()}.
+     */
+    boolean keyAvailable();
+
+    /**
+     * Deserializes and returns the key of the current change.
+     *
+     * @throws IllegalStateException if the key is not {@linkplain #keyAvailable() available}
+     */
+    K key();
+
+    /**
+     * Returns the number of changes, overwritten in the change log before this cursor could read
+     * them, or skipped because they were not completely appended in time.
+     */
+    long lostChanges();
+}
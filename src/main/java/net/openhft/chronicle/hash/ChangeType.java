@@ -0,0 +1,39 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash;
+
+/**
+ * Type of a change of a {@link ChronicleHash}, recorded in it's change log.
+ *
+ * @see ChangeLogCursor#changeType()
+ */
+public enum ChangeType {
+    /**
+     * An entry for the key, which was absent in the {@code ChronicleHash}, is inserted
+     */
+    INSERT,
+
+    /**
+     * The value of the entry, present in the {@code ChronicleMap}, is replaced
+     */
+    REPLACE,
+
+    /**
+     * The entry is removed from the {@code ChronicleHash}
+     */
+    REMOVE
+}
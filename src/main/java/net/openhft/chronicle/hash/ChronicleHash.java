@@ -126,6 +126,102 @@ public interface ChronicleHash<K, E extends HashEntry<K>, SC extends HashSegment
      */
     void forEachEntry(Consumer<? super E> action);
 
+    /**
+     * Performs the given action for each entry in this {@code ChronicleHash}, processing
+     * different segments in parallel. Each segment is processed by a single thread, holding the
+     * segment's lock, i. e. as in {@link HashSegmentContext#forEachSegmentEntry(Consumer)}.
+     * Exceptions thrown by the action are relayed to the caller.
+     *
+     * <p>Segments are processed in the {@link java.util.concurrent.ForkJoinPool} in which this
+     * method is called, or in the {@linkplain java.util.concurrent.ForkJoinPool#commonPool()
+     * common pool}, if it is called not from a fork/join task. The action should be thread-safe.
+     *
+     * @param action the action to be performed for each entry
+     * @see #forEachEntry(Consumer)
+     */
+    void forEachEntryParallel(Consumer<? super E> action);
+
+    /**
+     * Returns the runtime statistics of this {@code ChronicleHash}, accumulated in the current
+     * process.
+     *
+     * @return the statistics of this {@code ChronicleHash}
+     * @throws IllegalStateException if this {@code ChronicleHash} was created without {@link
+     * ChronicleHashBuilder#recordStatistics(boolean) recordStatistics(true)}
+     */
+    ChronicleHashStatistics statistics();
+
+    /**
+     * Moves entries from extra segment tiers, allocated when segments overflowed, back into the
+     * preceding tiers of the same segments, where they fit, and returns the emptied extra tiers
+     * to the free tier list, so that queries of keys, absent in this {@code ChronicleHash}, don't
+     * need to search for them in all tiers anymore.
+     *
+     * <p>Each segment is compacted holding it's write lock, segments are compacted one by one.
+     * This method could be called concurrently with other operations with this {@code
+     * ChronicleHash}, e. g. periodically from a background thread, or after many entries are
+     * removed.
+     *
+     * @return the number of extra tiers, returned to the free tier list
+     */
+    int compactTiers();
+
+    /**
+     * Faults in the pages of segment headers, hash lookups, free lists and used entry space of
+     * all segments (including extra tiers), so that the first queries after the start of the
+     * process don't suffer from page faults. Segments are touched in parallel, holding their
+     * read locks. Pages are only read, so this method doesn't make them dirty.
+     *
+     * <p>This method makes sense mostly for {@code ChronicleHash}es, persisted to a file, which is
+     * mapped lazily.
+     *
+     * @return the time the pre-touch took, in milliseconds
+     * @see ChronicleHashBuilder#preTouch(boolean)
+     */
+    long preTouch();
+
+    /**
+     * Flushes the memory of this {@code ChronicleHash}, modified since the previous {@code sync()}
+     * call, to the file it is persisted to, and waits until the data is written to the storage.
+     * Only segments, modified since the previous call (by any process), are flushed, rather than
+     * the whole file. Each segment is read-locked while it's modified memory ranges are
+     * determined. For {@code ChronicleHash}es, not persisted to a file, this method does nothing.
+     *
+     * <p>Without calls to this method, or configured {@link ChronicleHashBuilder#syncPeriod(long,
+     * java.util.concurrent.TimeUnit) syncPeriod}, the modified memory is written to the file by
+     * the OS, at some point in the future, that doesn't bound the amount of data lost on power
+     * failure.
+     */
+    void sync();
+
+    /**
+     * Copies this persisted {@code ChronicleHash} to the given file, which could then be opened
+     * as a {@code ChronicleHash} itself. If the target file is a previous snapshot of this {@code
+     * ChronicleHash}, only segments, modified (by any process) since the previous snapshot are
+     * copied, so the I/O is proportional to the churn rather than to the size of the {@code
+     * ChronicleHash}. Otherwise the target file is overwritten by a complete copy.
+     *
+     * <p>Each segment is copied holding it's read lock, i. e. the snapshot is consistent within
+     * each segment, but not across segments. The target file is flushed to the storage device
+     * before this method returns.
+     *
+     * @param target the file to copy this {@code ChronicleHash} to
+     * @return the number of copied segments
+     * @throws IllegalStateException if this {@code ChronicleHash} is not persisted to a file
+     */
+    int snapshotTo(File target);
+
+    /**
+     * Returns a new cursor over the change log of this {@code ChronicleHash}, positioned after
+     * the last change appended so far, i. e. the cursor reads only changes, made after this call.
+     * Use {@link ChangeLogCursor#moveTo(long)} to read earlier changes.
+     *
+     * @return a new cursor over the change log
+     * @throws IllegalStateException if the change log is not configured, see {@link
+     * ChronicleHashBuilder#changeLog(long, int)}
+     */
+    ChangeLogCursor<K> changeLogCursor();
+
     /**
      * Releases the off-heap memory, used by this hash container and resources, used by replication,
      * if any. However, if hash container (hence off-heap memory, used by it) is mapped to the file
@@ -17,6 +17,9 @@
 package net.openhft.chronicle.hash;
 
 import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.hash.locks.DeadProcessLockRecovery;
+import net.openhft.chronicle.hash.locks.LockWaitStrategy;
+import net.openhft.chronicle.hash.locks.SpinYieldParkLockWaitStrategy;
 import net.openhft.chronicle.hash.replication.ReplicableEntry;
 import net.openhft.chronicle.hash.replication.SingleChronicleHashReplication;
 import net.openhft.chronicle.hash.replication.TcpTransportAndNetworkConfig;
@@ -27,6 +30,7 @@ import net.openhft.chronicle.map.ChronicleMapBuilder;
 import net.openhft.chronicle.set.ChronicleSet;
 import net.openhft.chronicle.set.ChronicleSetBuilder;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -519,6 +523,170 @@ public interface ChronicleHashBuilder<K, H extends ChronicleHash<K, ?, ?, ?>,
      */
     B checksumEntries(boolean checksumEntries);
 
+    /**
+     * Configures the strategy of waiting between failed attempts to acquire segment locks of hash
+     * containers, created by this builder. The overall lock acquisition timeout is not affected.
+     *
+     * <p>By default, {@linkplain LockWaitStrategy#busySpin() busy spinning} is used, that provides
+     * the best latency, but burns CPU while waiting. If there are more threads accessing hash
+     * containers than CPUs, consider {@link SpinYieldParkLockWaitStrategy}.
+     *
+     * <p>This configuration is not persisted, i. e. each process, accessing a persisted hash
+     * container, could use it's own strategy.
+     *
+     * @param lockWaitStrategy the strategy of waiting between lock acquisition attempts
+     * @return this builder back
+     */
+    B lockWaitStrategy(@NotNull LockWaitStrategy lockWaitStrategy);
+
+    /**
+     * Configures what to do, when acquisition of a segment lock times out, because the lock is
+     * held by a process which died, in hash containers, created by this builder.
+     *
+     * <p>By default, no recovery is attempted ({@link DeadProcessLockRecovery#NONE}), i. e. all
+     * further attempts to lock the segment fail with {@code RuntimeException}.
+     *
+     * <p>This configuration is not persisted, i. e. each process, accessing a persisted hash
+     * container, could use it's own configuration.
+     *
+     * @param deadProcessLockRecovery what to do with locks of dead processes
+     * @return this builder back
+     */
+    B deadProcessLockRecovery(@NotNull DeadProcessLockRecovery deadProcessLockRecovery);
+
+    /**
+     * Configures if hash containers, created by this builder, should record runtime statistics,
+     * accessible via {@link ChronicleHash#statistics()}.
+     *
+     * <p>By default, statistics are not recorded, because counting adds a little overhead to each
+     * query.
+     *
+     * <p>This configuration is not persisted, i. e. each process, accessing a persisted hash
+     * container, could use it's own configuration.
+     *
+     * @param recordStatistics if statistics should be recorded
+     * @return this builder back
+     * @see ChronicleHashStatistics
+     */
+    B recordStatistics(boolean recordStatistics);
+
+    /**
+     * Configures in-memory hash containers, created by this builder, to allocate their memory from
+     * huge pages, by mapping files in the given directory, which should be a hugetlbfs mount point,
+     * e. g. {@code /dev/hugepages}. The files are deleted right after mapping. Huge pages reduce
+     * TLB misses on random access to large hash containers.
+     *
+     * <p>Huge pages should be reserved in the system beforehand, e. g. via {@code
+     * /proc/sys/vm/nr_hugepages}. Allocated memory is rounded up to the huge page size. If huge
+     * pages cannot be mapped, {@link #create()} throws {@code IllegalStateException}, and
+     * allocation of extra tiers throws {@code RuntimeException}.
+     *
+     * <p>This configuration doesn't affect persisted hash containers. To back them with huge pages,
+     * place the files on a tmpfs mounted with the {@code huge=always} or {@code huge=within_size}
+     * option.
+     *
+     * <p>By default huge pages are not used ({@code null} directory). This configuration is not
+     * persisted.
+     *
+     * @param hugePagesDirectory the hugetlbfs directory, or {@code null} to not use huge pages
+     * @return this builder back
+     */
+    B hugePagesDirectory(@Nullable File hugePagesDirectory);
+
+    /**
+     * Configures if the memory of the persisted {@code ChronicleHash}, created by {@link
+     * #createPersistedTo(File)} from an existing file, should be faulted in during the creation,
+     * via {@link ChronicleHash#preTouch()}. This trades a longer startup, proportional to the
+     * amount of data stored in the {@code ChronicleHash}, for the absence of page faults on the
+     * first queries to each segment.
+     *
+     * <p>By default the memory is not pre-touched. This configuration is not persisted.
+     *
+     * @param preTouch if the memory should be faulted in when an existing persisted {@code
+     * ChronicleHash} is opened
+     * @return this builder back
+     */
+    B preTouch(boolean preTouch);
+
+    /**
+     * Configures the period of background {@linkplain ChronicleHash#sync() syncs} of the persisted
+     * {@code ChronicleHash}, created by this builder, that bounds the amount of data, lost on power
+     * failure. Syncs are performed in a dedicated daemon thread, with the given delay between the
+     * end of one sync and the start of the next. The last sync is performed on {@link
+     * ChronicleHash#close()}.
+     *
+     * <p>By default the period is 0, i. e. there are no background syncs, and the modified memory
+     * is written to the file by the OS, or by explicit {@link ChronicleHash#sync()} calls. This
+     * configuration is not persisted.
+     *
+     * @param syncPeriod the period of background syncs, 0 to disable them
+     * @param unit time unit, in which the period is given
+     * @return this builder back
+     * @throws IllegalArgumentException if the specified period is negative, or positive, but
+     * less than 1 millisecond
+     */
+    B syncPeriod(long syncPeriod, TimeUnit unit);
+
+    /**
+     * Configures the hash function, applied to serialized keys to choose segments and slots in
+     * segment hash lookups of hash containers, created by this builder.
+     *
+     * <p>By default, {@link KeyHashFunction#CITY_1_1} is used. {@link KeyHashFunction#XX_R39} is
+     * faster on longer keys. If keys already start with well-distributed 64-bit values, e. g.
+     * random ids, {@link KeyHashFunction#IDENTITY} avoids hashing completely.
+     *
+     * <p>Unlike {@link #lockWaitStrategy(LockWaitStrategy)}, this configuration <i>is</i>
+     * persisted, i. e. when an existing persisted hash container is opened, the function it was
+     * created with is used, whatever is configured in the builder.
+     *
+     * @param keyHashFunction the hash function of serialized keys
+     * @return this builder back
+     */
+    B keyHashFunction(@NotNull KeyHashFunction keyHashFunction);
+
+    /**
+     * Configures the number of bits per entry of Bloom filters of segment tiers of hash
+     * containers, created by this builder. If configured, lookups of absent keys usually return
+     * without probing the segment hash lookup, and skip the extra tiers of segments entirely,
+     * at the cost of the additional memory and a little overhead of insertions.
+     *
+     * <p>Removed keys stay in Bloom filters until they are rebuilt by {@link
+     * ChronicleHash#compactTiers()}. 8-10 bits per entry give a few percent of false positives,
+     * if keys are removed rarely.
+     *
+     * <p>By default Bloom filters are not used (0 bits per entry). This configuration is
+     * persisted, i. e. all processes accessing a persisted hash container use filters, if it was
+     * created with them.
+     *
+     * @param bitsPerEntry bits of the Bloom filter per entry, from 0 to 64, 0 means no filter
+     * @return this builder back
+     * @throws IllegalArgumentException if {@code bitsPerEntry} is negative or greater than 64
+     */
+    B bloomFilterBitsPerEntry(int bitsPerEntry);
+
+    /**
+     * Configures the change log of hash containers, created by this builder: a ring buffer in the
+     * off-heap memory of the container, to which insertions, value replacements and removals
+     * of entries, made by all processes, are appended. Changes are consumed via {@link
+     * ChronicleHash#changeLogCursor()}, e. g. to update downstream caches and indexes, without
+     * replication.
+     *
+     * <p>Each record holds the type and the time of the change, the key hash and the serialized
+     * key, if it is not longer than {@code maxKeySize} bytes. Changes, which are not consumed
+     * before {@code capacity} newer changes are appended, are lost.
+     *
+     * <p>By default there is no change log (0 capacity). This configuration is persisted, i. e.
+     * all processes accessing a persisted hash container append changes to it's change log, if
+     * it was created with one. Replicated hash containers don't support change logs.
+     *
+     * @param capacity the number of records in the change log, rounded up to a power of 2, or 0
+     * for no change log
+     * @param maxKeySize the maximum size of the serialized key, stored in the change log records
+     * @return this builder back
+     * @throws IllegalArgumentException if {@code capacity} or {@code maxKeySize} is negative
+     */
+    B changeLog(long capacity, int maxKeySize);
+
     /**
      * Configures replication of the hash containers, created by this builder. See <a
      * href="https://github.com/OpenHFT/Chronicle-Map#tcp--udp-replication"> the section about
@@ -596,6 +764,33 @@ public interface ChronicleHashBuilder<K, H extends ChronicleHash<K, ?, ?, ?>,
      */
     H createPersistedTo(File file) throws IOException;
 
+    /**
+     * Creates a new hash container with the layout, configured by this builder (e. g. larger
+     * {@link #entries(long) entries()} or {@link #actualSegments(int) actualSegments()}), persisted
+     * to the {@code target} file, and copies all entries of the existing hash container, persisted
+     * to the {@code source} file, into it. Different segments of the source container are copied
+     * in parallel. Key and value configurations of this builder should be the same as used to
+     * create the source container.
+     *
+     * <p>If {@code source} and {@code target} is the same file, entries are copied to a temporary
+     * file in the same directory, which then atomically replaces the source file. Hash containers,
+     * which already have the source file opened, continue to access the old data, until they are
+     * closed and the file is opened again. Updates of the source container, made concurrently with
+     * this method call, might be lost.
+     *
+     * <p>Replicated hash containers couldn't be resized using this method.
+     *
+     * @param source the file with existing hash container
+     * @param target the file to persist the resized hash container to, might be the same as
+     *               {@code source}, if different, shouldn't exist
+     * @return the resized hash container, mapped to the {@code target} file
+     * @throws IOException if any IO error occurs, or the {@code source} file doesn't exist, or
+     * the {@code target} file is not the same as {@code source} and already exists
+     * @throws IllegalStateException if this builder or the source hash container is replicated
+     * @see #createPersistedTo(File)
+     */
+    H resizePersisted(File source, File target) throws IOException;
+
     /**
      * @deprecated don't use private API in the client code
      */
@@ -41,4 +41,12 @@ public interface ChronicleHashBuilderPrivateAPI<K> {
     boolean aligned64BitMemoryOperationsAtomic();
 
     boolean checksumEntries();
+
+    KeyHashFunction keyHashFunction();
+
+    int bloomFilterBitsPerEntry();
+
+    long changeLogCapacity();
+
+    int changeLogMaxKeySize();
 }
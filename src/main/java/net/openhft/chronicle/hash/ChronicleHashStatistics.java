@@ -0,0 +1,120 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash;
+
+import javax.management.JMException;
+import javax.management.MXBean;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Runtime statistics of a {@link ChronicleHash}, recorded if {@link
+ * ChronicleHashBuilder#recordStatistics(boolean)} is configured. Counters are accumulated since
+ * the {@code ChronicleHash} instance is created (or opened from a persisted file) in the current
+ * process, they are not shared with other processes, accessing the same persisted file.
+ *
+ * <p>Counters are updated by accessing threads without synchronization and aggregated on demand,
+ * so values read concurrently with updates could be slightly stale.
+ *
+ * <p>This interface is an MXBean, the statistics could be exposed via JMX using {@link
+ * #registerMBean(ChronicleHash, String)}.
+ *
+ * @see ChronicleHash#statistics()
+ */
+@MXBean
+public interface ChronicleHashStatistics {
+
+    /**
+     * Registers the statistics of the given {@code ChronicleHash} in the platform MBean server
+     * under the name {@code net.openhft.chronicle:type=ChronicleHashStatistics,name=<name>}.
+     *
+     * @param hash the hash container, which statistics to register
+     * @param name the name, under which the statistics should be registered
+     * @return the {@code ObjectName}, under which the statistics are registered, to unregister
+     * them later
+     * @throws JMException if registration fails
+     * @throws IllegalStateException if the given hash container doesn't record statistics
+     */
+    static ObjectName registerMBean(ChronicleHash<?, ?, ?, ?> hash, String name)
+            throws JMException {
+        ObjectName objectName = new ObjectName(
+                "net.openhft.chronicle:type=ChronicleHashStatistics,name=" +
+                        ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(hash.statistics(), objectName);
+        return objectName;
+    }
+
+    /**
+     * Returns the number of single-key queries, which searched for the key in the hash lookup.
+     */
+    long getLookups();
+
+    /**
+     * Returns the number of lookups, which found the key.
+     */
+    long getHits();
+
+    /**
+     * Returns the number of lookups, which haven't found the key.
+     */
+    long getMisses();
+
+    /**
+     * Returns the total number of hash lookup slots, read during key searches in all segment
+     * tiers.
+     */
+    long getHashLookupProbes();
+
+    /**
+     * Returns the average number of hash lookup slots, read during key search in a single segment
+     * tier.
+     */
+    double getAverageHashLookupProbeLength();
+
+    /**
+     * Returns the number of segment lock acquisitions, which failed the first attempt and had to
+     * wait.
+     */
+    long getLockWaits();
+
+    /**
+     * Returns the total time in nanoseconds, spent waiting for segment locks.
+     */
+    long getLockWaitNanos();
+
+    /**
+     * Returns the number of entry relocations, i. e. moves of entries within segments, because
+     * the entry value was replaced with a larger one and couldn't be extended in place.
+     */
+    long getRelocations();
+
+    /**
+     * Returns the number of extra segment tiers, allocated by this process.
+     */
+    long getTierAllocations();
+
+    /**
+     * Returns the number of extra segment tiers in use, by all processes accessing the hash
+     * container.
+     */
+    long getExtraTiersInUse();
+
+    /**
+     * Returns the number of entries in each segment.
+     */
+    long[] getSegmentSizes();
+}
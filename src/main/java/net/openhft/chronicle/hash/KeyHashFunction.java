@@ -0,0 +1,98 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash;
+
+import net.openhft.chronicle.algo.hashing.LongHashFunction;
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.core.OS;
+
+/**
+ * Hash function, applied to serialized forms of keys in {@link ChronicleHash} containers. The
+ * function is chosen via {@link ChronicleHashBuilder#keyHashFunction(KeyHashFunction)} and is
+ * stored in the header of persisted hash containers, i. e. all processes accessing the same
+ * container use the same function.
+ */
+public enum KeyHashFunction {
+
+    /**
+     * CityHash 1.1, the default.
+     */
+    CITY_1_1(LongHashFunction.city_1_1()),
+
+    /**
+     * MurmurHash3.
+     */
+    MURMUR_3(LongHashFunction.murmur_3()),
+
+    /**
+     * xxHash (revision 39), faster than CityHash on most keys of 16 bytes and longer.
+     */
+    XX_R39(LongHashFunction.xx_r39()),
+
+    /**
+     * Takes the first 8 bytes of the serialized key as the hash (in native byte order), or all
+     * bytes of keys shorter than 8 bytes, without any mixing. Suitable only for keys, which
+     * already start with well-distributed 64-bit values, e. g. random ids or hashes, computed
+     * beforehand. With other keys, collisions severely degrade performance of the container.
+     */
+    IDENTITY(null) {
+        @Override
+        public long hash(Data<?> key) {
+            RandomDataInput bytes = key.bytes();
+            long offset = key.offset();
+            long size = key.size();
+            if (size >= 8)
+                return bytes.readLong(offset);
+            long hash = 0;
+            for (int i = 0; i < size; i++) {
+                hash |= (bytes.readByte(offset + i) & 0xFFL) << (i * 8);
+            }
+            return hash;
+        }
+
+        @Override
+        public long hashMemory(long address, long size) {
+            if (size >= 8)
+                return OS.memory().readLong(address);
+            long hash = 0;
+            for (int i = 0; i < size; i++) {
+                hash |= (OS.memory().readByte(address + i) & 0xFFL) << (i * 8);
+            }
+            return hash;
+        }
+    };
+
+    private final LongHashFunction f;
+
+    KeyHashFunction(LongHashFunction f) {
+        this.f = f;
+    }
+
+    /**
+     * Returns the hash of the given key's bytes.
+     */
+    public long hash(Data<?> key) {
+        return key.hash(f);
+    }
+
+    /**
+     * Returns the hash of the key, serialized in the given off-heap memory range.
+     */
+    public long hashMemory(long address, long size) {
+        return f.hashMemory(address, size);
+    }
+}
@@ -41,4 +41,20 @@ public interface VanillaGlobalMutableState extends Byteable {
     @Group(4)
     long getSegmentHeadersOffset();
     void setSegmentHeadersOffset(long segmentHeadersOffset);
+
+    /**
+     * A random number, assigned when the hash is created, or when a snapshot of another hash is
+     * opened
+     */
+    @Group(5)
+    long getHashIdentity();
+    void setHashIdentity(long hashIdentity);
+
+    /**
+     * The identity of the hash, this file is a complete snapshot of, or 0 if this file is not
+     * a snapshot
+     */
+    @Group(6)
+    long getSnapshotOf();
+    void setSnapshotOf(long snapshotOf);
 }
@@ -17,15 +17,24 @@
 package net.openhft.chronicle.hash.impl;
 
 import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.UnsafeMemory;
 import net.openhft.chronicle.hash.locks.IllegalInterProcessLockStateException;
+import net.openhft.chronicle.hash.locks.LockWaitStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static java.nio.ByteOrder.nativeOrder;
 
 public final class BigSegmentHeader implements SegmentHeader {
-    public static final BigSegmentHeader INSTANCE = new BigSegmentHeader();
+    private static final Logger LOG = LoggerFactory.getLogger(BigSegmentHeader.class);
+
+    public static final BigSegmentHeader INSTANCE =
+            new BigSegmentHeader(LockWaitStrategy.busySpin(), false, null, null);
 
     private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
 
@@ -53,11 +62,40 @@ public final class BigSegmentHeader implements SegmentHeader {
     static final long NEXT_POS_TO_SEARCH_FROM_OFFSET = SIZE_OFFSET + 4L;
 
 
+    /**
+     * Process id in the higher 32 bits, thread id in the lower 32 bits
+     */
     static final long EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET = NEXT_POS_TO_SEARCH_FROM_OFFSET + 4L;
 
     static final long DELETED_OFFSET = EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET + 8L;
 
-    private BigSegmentHeader() {
+    /**
+     * 32-bit write version, incremented when the write lock is acquired and when it is released,
+     * i. e. odd while the segment is write-locked. Fits the smallest (32-byte) segment header.
+     */
+    static final long WRITE_VERSION_OFFSET = DELETED_OFFSET + 4L;
+
+    private final LockWaitStrategy lockWaitStrategy;
+    private final boolean recoverLocksOfDeadProcesses;
+    private final LongConsumer afterLockOfDeadProcessReleased;
+    private final HashStatistics statistics;
+
+    /**
+     * @param lockWaitStrategy the strategy of waiting between lock acquisition attempts
+     * @param recoverLocksOfDeadProcesses if an exclusive lock, held by a dead process, should be
+     *                                    released when lock acquisition times out
+     * @param afterLockOfDeadProcessReleased is called with the segment header address after the
+     *                                       lock of a dead process is released, might be null
+     * @param statistics records lock waits, might be null
+     */
+    public BigSegmentHeader(LockWaitStrategy lockWaitStrategy,
+                            boolean recoverLocksOfDeadProcesses,
+                            LongConsumer afterLockOfDeadProcessReleased,
+                            HashStatistics statistics) {
+        this.lockWaitStrategy = lockWaitStrategy;
+        this.recoverLocksOfDeadProcesses = recoverLocksOfDeadProcesses;
+        this.afterLockOfDeadProcessReleased = afterLockOfDeadProcessReleased;
+        this.statistics = statistics;
     }
 
     @Override
@@ -187,9 +225,23 @@ public final class BigSegmentHeader implements SegmentHeader {
         }
     }
 
+    private static final long PROCESS_ID_BITS = ((long) OS.getProcessId()) << 32;
+
     private static void writeExclusiveLockHolder(long address) {
         OS.memory().writeLong(address + EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET,
-                Thread.currentThread().getId());
+                PROCESS_ID_BITS | (Thread.currentThread().getId() & UNSIGNED_INT_MASK));
+    }
+
+    private static long readExclusiveLockHolder(long address) {
+        return OS.memory().readVolatileLong(null, address + EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET);
+    }
+
+    private static int holderProcessId(long holder) {
+        return (int) (holder >>> 32);
+    }
+
+    private static long holderThreadId(long holder) {
+        return holder & UNSIGNED_INT_MASK;
     }
 
     private static void clearExclusiveLockHolder(long address) {
@@ -200,22 +252,117 @@ public final class BigSegmentHeader implements SegmentHeader {
      * For debugging and monitoring
      */
     static Thread exclusiveLockHolder(long address) {
-        long holderId = OS.memory().readLong(address + EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET);
-        if (holderId == 0L)
+        long holder = OS.memory().readLong(address + EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET);
+        if (holder == 0L || holderProcessId(holder) != OS.getProcessId())
             return null;
+        long holderId = holderThreadId(holder);
         Thread[] threads = new Thread[Thread.activeCount()];
         Thread.enumerate(threads);
         for (Thread thread : threads) {
-            if (thread.getId() == holderId)
+            if (thread != null && (thread.getId() & UNSIGNED_INT_MASK) == holderId)
                 return thread;
         }
         return null;
     }
 
+    /**
+     * Liveness of other processes could be checked only on Linux, via /proc. On other OSes
+     * processes are always considered alive.
+     */
+    private static boolean processAlive(int processId) {
+        return !OS.isLinux() || new File("/proc/" + processId).exists();
+    }
+
+    /**
+     * If the segment is exclusively (update or write) locked by a process which is not alive,
+     * releases the exclusive lock. Read locks of dead processes cannot be recovered, because
+     * read lock holders are not recorded.
+     *
+     * @return {@code true} if the lock is released, by this or concurrent call, and acquisition
+     * should be retried
+     */
+    private boolean recoverLockOfDeadProcess(long address) {
+        if (!recoverLocksOfDeadProcesses)
+            return false;
+        long holder = readExclusiveLockHolder(address);
+        int holderProcessId = holderProcessId(holder);
+        // holderProcessId == 0 means the holder is unknown, e. g. written by an older version
+        if (holderProcessId == 0 || holderProcessId == OS.getProcessId() ||
+                processAlive(holderProcessId)) {
+            return false;
+        }
+        // Only one of concurrently recovering threads (maybe in different processes) releases
+        // the lock
+        if (!OS.memory().compareAndSwapLong(null, address + EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET,
+                holder, 0L)) {
+            return true;
+        }
+        while (true) {
+            int countWord = getCountWord(address);
+            int newCountWord;
+            if (writeLocked(countWord)) {
+                // the dead process held the write lock, make the version even again while the
+                // lock is still held, otherwise the next writer could begin with an odd version
+                if ((getWriteVersion(address) & 1) != 0)
+                    endWrite(address);
+                newCountWord = 0;
+            } else if (updateLocked(countWord)) {
+                newCountWord = countWord - UPDATE_PARTY;
+            } else {
+                // the dead process released the lock, but haven't cleared the holder
+                return true;
+            }
+            if (casCountWord(address, countWord, newCountWord))
+                break;
+        }
+        LOG.warn("Released the lock of segment with header at {}, held by thread {} of " +
+                "the dead process {}", address, holderThreadId(holder), holderProcessId);
+        if (afterLockOfDeadProcessReleased != null)
+            afterLockOfDeadProcessReleased.accept(address);
+        return true;
+    }
+
+    private static int getWriteVersion(long address) {
+        return OS.memory().readVolatileInt(null, address + WRITE_VERSION_OFFSET);
+    }
+
+    /**
+     * Called by the write lock holder right after the lock is acquired. The fence prevents
+     * writes to the segment from being reordered before the version increment.
+     */
+    private static void beginWrite(long address) {
+        long versionAddress = address + WRITE_VERSION_OFFSET;
+        OS.memory().writeOrderedInt(null, versionAddress, OS.memory().readInt(versionAddress) + 1);
+        UnsafeMemory.UNSAFE.storeFence();
+    }
+
+    /**
+     * Called by the write lock holder right before the lock is released. The ordered write
+     * publishes all writes to the segment before the version increment.
+     */
+    private static void endWrite(long address) {
+        long versionAddress = address + WRITE_VERSION_OFFSET;
+        OS.memory().writeOrderedInt(null, versionAddress, OS.memory().readInt(versionAddress) + 1);
+    }
+
+    @Override
+    public long tryOptimisticRead(long address) {
+        int version = getWriteVersion(address);
+        return (version & 1) == 0 ? (version & UNSIGNED_INT_MASK) : -1L;
+    }
+
+    @Override
+    public boolean validate(long address, long stamp) {
+        // prevents reads of the segment from being reordered after the version read
+        UnsafeMemory.UNSAFE.loadFence();
+        return stamp >= 0L && (getWriteVersion(address) & UNSIGNED_INT_MASK) == stamp;
+    }
+
     @Override
     public void readLock(long address) {
         if (!tryReadLock(address, 2, TimeUnit.SECONDS)) {
-            throw new RuntimeException("Dead lock");
+            if (!recoverLockOfDeadProcess(address) || !tryReadLock(address, 2, TimeUnit.SECONDS))
+                throw new RuntimeException("Dead lock");
         }
     }
 
@@ -238,7 +385,21 @@ public final class BigSegmentHeader implements SegmentHeader {
 
     @Override
     public boolean tryReadLock(long address, long time, TimeUnit unit) {
-        return tryReadLock(address) || tryReadLock0(address, time, unit);
+        if (tryReadLock(address))
+            return true;
+        long waitStart = lockWaitStart();
+        boolean locked = tryReadLock0(address, time, unit);
+        recordLockWait(waitStart);
+        return locked;
+    }
+
+    private long lockWaitStart() {
+        return statistics != null ? System.nanoTime() : 0L;
+    }
+
+    private void recordLockWait(long waitStart) {
+        if (statistics != null)
+            statistics.recordLockWait(System.nanoTime() - waitStart);
     }
 
     private boolean tryReadLock0(long address, long time, TimeUnit unit) {
@@ -252,7 +413,9 @@ public final class BigSegmentHeader implements SegmentHeader {
 
     private boolean tryReadLockNanos(long address, long timeInNanos) {
         long end = System.nanoTime() + timeInNanos;
+        int failedAttempts = 1;
         do {
+            lockWaitStrategy.waitBeforeRetry(failedAttempts++);
             if (tryReadLock(address))
                 return true;
         } while (System.nanoTime() <= end);
@@ -264,7 +427,9 @@ public final class BigSegmentHeader implements SegmentHeader {
      */
     private boolean tryReadLockMillis(long address, long timeInMillis) {
         long lastTime = System.currentTimeMillis();
+        int failedAttempts = 1;
         do {
+            lockWaitStrategy.waitBeforeRetry(failedAttempts++);
             if (tryReadLock(address))
                 return true;
             long now = System.currentTimeMillis();
@@ -288,14 +453,19 @@ public final class BigSegmentHeader implements SegmentHeader {
     public boolean tryUpgradeReadToWriteLock(long address) {
         int countWord = getCountWord(address);
         checkReadLocked(countWord);
-        return countWord == READ_PARTY &&
-                casCountWord(address, READ_PARTY, WRITE_LOCKED_COUNT_WORD);
+        if (countWord == READ_PARTY &&
+                casCountWord(address, READ_PARTY, WRITE_LOCKED_COUNT_WORD)) {
+            beginWrite(address);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public void updateLock(long address) {
         if (!tryUpdateLock(address, 2, TimeUnit.SECONDS)) {
-            throw new RuntimeException("Dead lock");
+            if (!recoverLockOfDeadProcess(address) || !tryUpdateLock(address, 2, TimeUnit.SECONDS))
+                throw new RuntimeException("Dead lock");
         }
     }
 
@@ -320,7 +490,12 @@ public final class BigSegmentHeader implements SegmentHeader {
 
     @Override
     public boolean tryUpdateLock(long address, long time, TimeUnit unit) {
-        return tryUpdateLock(address) || tryUpdateLock0(address, time, unit);
+        if (tryUpdateLock(address))
+            return true;
+        long waitStart = lockWaitStart();
+        boolean locked = tryUpdateLock0(address, time, unit);
+        recordLockWait(waitStart);
+        return locked;
     }
 
     private boolean tryUpdateLock0(long address, long time, TimeUnit unit) {
@@ -334,7 +509,9 @@ public final class BigSegmentHeader implements SegmentHeader {
 
     private boolean tryUpdateLockNanos(long address, long timeInNanos) {
         long end = System.nanoTime() + timeInNanos;
+        int failedAttempts = 1;
         do {
+            lockWaitStrategy.waitBeforeRetry(failedAttempts++);
             if (tryUpdateLock(address))
                 return true;
         } while (System.nanoTime() <= end);
@@ -346,7 +523,9 @@ public final class BigSegmentHeader implements SegmentHeader {
      */
     private boolean tryUpdateLockMillis(long address, long timeInMillis) {
         long lastTime = System.currentTimeMillis();
+        int failedAttempts = 1;
         do {
+            lockWaitStrategy.waitBeforeRetry(failedAttempts++);
             if (tryUpdateLock(address))
                 return true;
             long now = System.currentTimeMillis();
@@ -361,7 +540,8 @@ public final class BigSegmentHeader implements SegmentHeader {
     @Override
     public void writeLock(long address) {
         if (!tryWriteLock(address, 2, TimeUnit.SECONDS)) {
-            throw new RuntimeException("Dead lock");
+            if (!recoverLockOfDeadProcess(address) || !tryWriteLock(address, 2, TimeUnit.SECONDS))
+                throw new RuntimeException("Dead lock");
         }
     }
 
@@ -374,6 +554,7 @@ public final class BigSegmentHeader implements SegmentHeader {
     public boolean tryWriteLock(long address) {
         if (casCountWord(address, 0, WRITE_LOCKED_COUNT_WORD)) {
             writeExclusiveLockHolder(address);
+            beginWrite(address);
             return true;
         } else {
             return false;
@@ -382,13 +563,20 @@ public final class BigSegmentHeader implements SegmentHeader {
 
     @Override
     public boolean tryWriteLock(long address, long time, TimeUnit unit) {
-        return tryWriteLock(address) || tryWriteLock0(address, time, unit);
+        if (tryWriteLock(address))
+            return true;
+        long waitStart = lockWaitStart();
+        boolean locked = tryWriteLock0(address, time, unit);
+        recordLockWait(waitStart);
+        return locked;
     }
 
     private boolean tryWriteLock0(long address, long time, TimeUnit unit) {
         long end = System.nanoTime() + unit.toNanos(time);
         registerWait(address);
+        int failedAttempts = 1;
         do {
+            lockWaitStrategy.waitBeforeRetry(failedAttempts++);
             long lockWord = getLockWord(address);
             int countWord = countWord(lockWord);
             if (countWord == 0) {
@@ -397,6 +585,7 @@ public final class BigSegmentHeader implements SegmentHeader {
                 if (casLockWord(address, lockWord,
                         lockWord(WRITE_LOCKED_COUNT_WORD, waitWord - WAIT_PARTY))) {
                     writeExclusiveLockHolder(address);
+                    beginWrite(address);
                     return true;
                 }
             }
@@ -438,8 +627,12 @@ public final class BigSegmentHeader implements SegmentHeader {
     @Override
     public boolean tryUpgradeUpdateToWriteLock(long address) {
         int countWord = getCountWord(address);
-        return checkExclusiveUpdateLocked(countWord) &&
-                casCountWord(address, countWord, WRITE_LOCKED_COUNT_WORD);
+        if (checkExclusiveUpdateLocked(countWord) &&
+                casCountWord(address, countWord, WRITE_LOCKED_COUNT_WORD)) {
+            beginWrite(address);
+            return true;
+        }
+        return false;
     }
 
     private static boolean checkExclusiveUpdateLocked(int countWord) {
@@ -449,14 +642,20 @@ public final class BigSegmentHeader implements SegmentHeader {
 
     @Override
     public boolean tryUpgradeUpdateToWriteLock(long address, long time, TimeUnit unit) {
-        return tryUpgradeUpdateToWriteLock(address) ||
-                tryUpgradeUpdateToWriteLock0(address, time, unit);
+        if (tryUpgradeUpdateToWriteLock(address))
+            return true;
+        long waitStart = lockWaitStart();
+        boolean locked = tryUpgradeUpdateToWriteLock0(address, time, unit);
+        recordLockWait(waitStart);
+        return locked;
     }
 
     private boolean tryUpgradeUpdateToWriteLock0(long address, long time, TimeUnit unit) {
         long end = System.nanoTime() + unit.toNanos(time);
         registerWait(address);
+        int failedAttempts = 1;
         do {
+            lockWaitStrategy.waitBeforeRetry(failedAttempts++);
             long lockWord = getLockWord(address);
             int countWord = countWord(lockWord);
             if (checkExclusiveUpdateLocked(countWord)) {
@@ -464,6 +663,7 @@ public final class BigSegmentHeader implements SegmentHeader {
                 checkWaitWordForDecrement(waitWord);
                 if (casLockWord(address, lockWord,
                         lockWord(WRITE_LOCKED_COUNT_WORD, waitWord - WAIT_PARTY))) {
+                    beginWrite(address);
                     return true;
                 }
             }
@@ -509,6 +709,7 @@ public final class BigSegmentHeader implements SegmentHeader {
     @Override
     public void writeUnlock(long address) {
         checkWriteLocked(getCountWord(address));
+        endWrite(address);
         clearExclusiveLockHolder(address);
         putCountWord(address, 0);
     }
@@ -516,12 +717,14 @@ public final class BigSegmentHeader implements SegmentHeader {
     @Override
     public void downgradeWriteToUpdateLock(long address) {
         checkWriteLocked(getCountWord(address));
+        endWrite(address);
         putCountWord(address, UPDATE_PARTY);
     }
 
     @Override
     public void downgradeWriteToReadLock(long address) {
         checkWriteLocked(getCountWord(address));
+        endWrite(address);
         clearExclusiveLockHolder(address);
         putCountWord(address, READ_PARTY);
     }
@@ -0,0 +1,113 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.UnsafeMemory;
+import net.openhft.chronicle.hash.ChangeType;
+
+/**
+ * The change log of a hash container, a ring buffer of fixed-size records in the off-heap memory
+ * of the container, so it is shared by all processes, accessing the container. Records are
+ * appended by writers holding segment write locks, so appends are not serialized across segments:
+ * a writer claims the next sequence number by CAS, writes the record and then publishes it by
+ * writing the commit word. If a writer dies between the claim and the commit, cursors skip the
+ * record after a timeout, see {@link VanillaChangeLogCursor}.
+ *
+ * <p>Layout: a 64-byte header with the next sequence number to claim, followed by {@code capacity}
+ * records. Record layout:
+ * <pre>
+ * 0:  long commit, sequence + 1 when the record is written, 0 while it is being written
+ * 8:  long timestamp, milliseconds since epoch
+ * 16: long key hash
+ * 24: int key size, -1 if the key doesn't fit the record
+ * 28: int change type ordinal
+ * 32: key bytes
+ * </pre>
+ */
+public final class ChangeLog {
+
+    static final long HEADER_SIZE = 64L;
+    static final long NEXT_SEQUENCE_OFFSET = 0L;
+
+    static final long COMMIT_OFFSET = 0L;
+    static final long TIMESTAMP_OFFSET = COMMIT_OFFSET + 8L;
+    static final long KEY_HASH_OFFSET = TIMESTAMP_OFFSET + 8L;
+    static final long KEY_SIZE_OFFSET = KEY_HASH_OFFSET + 8L;
+    static final long CHANGE_TYPE_OFFSET = KEY_SIZE_OFFSET + 4L;
+    static final long KEY_OFFSET = CHANGE_TYPE_OFFSET + 4L;
+
+    static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+
+    public static long recordSize(int maxKeySize) {
+        return (KEY_OFFSET + maxKeySize + 7L) & ~7L;
+    }
+
+    public static long sizeInBytes(long capacity, long recordSize) {
+        return capacity > 0L ? HEADER_SIZE + capacity * recordSize : 0L;
+    }
+
+    final long address;
+    final long capacity;
+    final long recordSize;
+    private final long maxKeySize;
+
+    ChangeLog(long address, long capacity, long recordSize) {
+        assert Long.bitCount(capacity) == 1;
+        this.address = address;
+        this.capacity = capacity;
+        this.recordSize = recordSize;
+        maxKeySize = recordSize - KEY_OFFSET;
+    }
+
+    long nextSequence() {
+        return OS.memory().readVolatileLong(null, address + NEXT_SEQUENCE_OFFSET);
+    }
+
+    long recordAddress(long sequence) {
+        return address + HEADER_SIZE + (sequence & (capacity - 1)) * recordSize;
+    }
+
+    static long commit(long recordAddress) {
+        return OS.memory().readVolatileLong(null, recordAddress + COMMIT_OFFSET);
+    }
+
+    /**
+     * Appends the change of the key, the serialized form of which is at the given address.
+     */
+    public void append(ChangeType changeType, long keyHash, long keyAddress, long keySize) {
+        long sequence;
+        do {
+            sequence = nextSequence();
+        } while (!OS.memory().compareAndSwapLong(
+                null, address + NEXT_SEQUENCE_OFFSET, sequence, sequence + 1L));
+        long recordAddress = recordAddress(sequence);
+        OS.memory().writeVolatileLong(null, recordAddress + COMMIT_OFFSET, 0L);
+        // prevents the following writes from being reordered before the commit reset
+        UnsafeMemory.UNSAFE.storeFence();
+        OS.memory().writeLong(recordAddress + TIMESTAMP_OFFSET, System.currentTimeMillis());
+        OS.memory().writeLong(recordAddress + KEY_HASH_OFFSET, keyHash);
+        OS.memory().writeInt(recordAddress + CHANGE_TYPE_OFFSET, changeType.ordinal());
+        if (keySize <= maxKeySize) {
+            OS.memory().writeInt(recordAddress + KEY_SIZE_OFFSET, (int) keySize);
+            UnsafeMemory.UNSAFE.copyMemory(keyAddress, recordAddress + KEY_OFFSET, keySize);
+        } else {
+            OS.memory().writeInt(recordAddress + KEY_SIZE_OFFSET, -1);
+        }
+        OS.memory().writeVolatileLong(null, recordAddress + COMMIT_OFFSET, sequence + 1L);
+    }
+}
@@ -125,6 +125,33 @@ public abstract class CompactOffHeapLinearHashTable {
 
     public abstract long step(long pos);
 
+    /**
+     * Returns the number of steps from {@code fromPos} to {@code toPos}, or the capacity if they
+     * are equal, i. e. all slots are passed when probing from {@code fromPos} around to {@code
+     * toPos}.
+     */
+    public long slotsBetween(long fromPos, long toPos) {
+        long slots = ((toPos - fromPos) & capacityMask2) / slotSize();
+        return slots != 0 ? slots : capacityMask + 1;
+    }
+
+    abstract long slotSize();
+
+    /**
+     * Returns the position of the first slot, starting from {@code pos} and probing forward at
+     * most {@code slots} slots, which is either empty or contains the given key, or {@code -1} if
+     * all probed slots contain other keys.
+     */
+    public long findKeyOrEmpty(long addr, long pos, long key, long slots) {
+        for (; slots > 0; slots--) {
+            long entry = readEntry(addr, pos);
+            if (empty(entry) || key(entry) == key)
+                return pos;
+            pos = step(pos);
+        }
+        return -1L;
+    }
+
     public abstract long stepBack(long pos);
 
     public abstract long readEntry(long addr, long pos);
@@ -0,0 +1,230 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.hash.ChronicleHashStatistics;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counters which are incremented on the hot paths of queries (lookups, hash lookup probes,
+ * relocations) are plain fields of {@link ContextCounters}, one instance per context, i. e. per
+ * accessing thread, which are aggregated on read. Rare events (lock waits, tier allocations) are
+ * counted in shared {@link LongAdder}s.
+ *
+ * <p>Counters are registered weakly referencing their contexts. When a context is garbage
+ * collected (e. g. after its thread is terminated), its counts are folded into {@link
+ * #deadContextsCounters}, and the counters are unregistered.
+ */
+public final class HashStatistics implements ChronicleHashStatistics {
+
+    private final VanillaChronicleHash<?, ?, ?, ?> hash;
+    private final List<Registration> registrations = new ArrayList<>();
+    private final ReferenceQueue<Object> deadContexts = new ReferenceQueue<>();
+    private final ContextCounters deadContextsCounters = new ContextCounters();
+    private final LongAdder lockWaits = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private final LongAdder tierAllocations = new LongAdder();
+
+    public HashStatistics(VanillaChronicleHash<?, ?, ?, ?> hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Written only by the thread, owning the context, read by any thread.
+     */
+    public static final class ContextCounters {
+        private static final AtomicLongFieldUpdater<ContextCounters>
+                LOOKUPS = updater("lookups"),
+                HITS = updater("hits"),
+                KEY_SEARCHES = updater("keySearches"),
+                HASH_LOOKUP_PROBES = updater("hashLookupProbes"),
+                RELOCATIONS = updater("relocations");
+
+        private static AtomicLongFieldUpdater<ContextCounters> updater(String field) {
+            return AtomicLongFieldUpdater.newUpdater(ContextCounters.class, field);
+        }
+
+        volatile long lookups;
+        volatile long hits;
+        volatile long keySearches;
+        volatile long hashLookupProbes;
+        volatile long relocations;
+
+        public void lookup(boolean hit) {
+            // single writer, so lazy sets don't lose updates
+            LOOKUPS.lazySet(this, lookups + 1);
+            if (hit)
+                HITS.lazySet(this, hits + 1);
+        }
+
+        public void keySearch() {
+            KEY_SEARCHES.lazySet(this, keySearches + 1);
+        }
+
+        public void hashLookupProbes(int probes) {
+            HASH_LOOKUP_PROBES.lazySet(this, hashLookupProbes + probes);
+        }
+
+        public void relocation() {
+            RELOCATIONS.lazySet(this, relocations + 1);
+        }
+    }
+
+    private static final class Registration extends WeakReference<Object> {
+        final ContextCounters counters;
+
+        Registration(Object context, ContextCounters counters, ReferenceQueue<Object> queue) {
+            super(context, queue);
+            this.counters = counters;
+        }
+    }
+
+    /**
+     * @param context the owner of the counters, the counters are unregistered after the owner is
+     *                garbage collected
+     */
+    public synchronized ContextCounters newContextCounters(Object context) {
+        foldDeadContextsCounters();
+        ContextCounters counters = new ContextCounters();
+        registrations.add(new Registration(context, counters, deadContexts));
+        return counters;
+    }
+
+    private void foldDeadContextsCounters() {
+        assert Thread.holdsLock(this);
+        ContextCounters dead = deadContextsCounters;
+        Reference<?> deadContext;
+        while ((deadContext = deadContexts.poll()) != null) {
+            // the context is unreachable, so its counters are not updated anymore
+            ContextCounters counters = ((Registration) deadContext).counters;
+            dead.lookups += counters.lookups;
+            dead.hits += counters.hits;
+            dead.keySearches += counters.keySearches;
+            dead.hashLookupProbes += counters.hashLookupProbes;
+            dead.relocations += counters.relocations;
+            registrations.remove(deadContext);
+        }
+    }
+
+    /**
+     * Returns the number of registered counters, which contexts are not known to be garbage
+     * collected yet
+     */
+    synchronized int registrations() {
+        foldDeadContextsCounters();
+        return registrations.size();
+    }
+
+    private synchronized long sum(ToLongFunction<ContextCounters> counter) {
+        foldDeadContextsCounters();
+        long sum = counter.applyAsLong(deadContextsCounters);
+        for (Registration registration : registrations) {
+            sum += counter.applyAsLong(registration.counters);
+        }
+        return sum;
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWaits.increment();
+        lockWaitNanos.add(nanos);
+    }
+
+    public void recordTierAllocation() {
+        tierAllocations.increment();
+    }
+
+    @Override
+    public long getLookups() {
+        return sum(c -> c.lookups);
+    }
+
+    @Override
+    public long getHits() {
+        return sum(c -> c.hits);
+    }
+
+    @Override
+    public long getMisses() {
+        // read hits first, to never get a negative difference
+        long hits = getHits();
+        return getLookups() - hits;
+    }
+
+    @Override
+    public long getHashLookupProbes() {
+        return sum(c -> c.hashLookupProbes);
+    }
+
+    @Override
+    public double getAverageHashLookupProbeLength() {
+        long keySearches = sum(c -> c.keySearches);
+        long probes = sum(c -> c.hashLookupProbes);
+        return keySearches != 0L ? ((double) probes) / keySearches : 0.0;
+    }
+
+    @Override
+    public long getLockWaits() {
+        return lockWaits.sum();
+    }
+
+    @Override
+    public long getLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    @Override
+    public long getRelocations() {
+        return sum(c -> c.relocations);
+    }
+
+    @Override
+    public long getTierAllocations() {
+        return tierAllocations.sum();
+    }
+
+    @Override
+    public long getExtraTiersInUse() {
+        return hash.globalMutableState().getExtraTiersInUse();
+    }
+
+    @Override
+    public long[] getSegmentSizes() {
+        return hash.segmentSizes();
+    }
+
+    @Override
+    public String toString() {
+        return "ChronicleHashStatistics{" +
+                "lookups=" + getLookups() +
+                ", misses=" + getMisses() +
+                ", averageHashLookupProbeLength=" + getAverageHashLookupProbeLength() +
+                ", lockWaits=" + getLockWaits() +
+                ", lockWaitNanos=" + getLockWaitNanos() +
+                ", relocations=" + getRelocations() +
+                ", tierAllocations=" + getTierAllocations() +
+                ", extraTiersInUse=" + getExtraTiersInUse() +
+                '}';
+    }
+}
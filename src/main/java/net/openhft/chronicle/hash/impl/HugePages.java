@@ -0,0 +1,89 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.bytes.NativeBytesStore;
+import net.openhft.chronicle.core.OS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static net.openhft.chronicle.hash.impl.DummyReferenceCounted.DUMMY_REFERENCE_COUNTED;
+
+/**
+ * Allocates memory of in-memory hash containers from huge pages, by mapping a file in a hugetlbfs
+ * directory (e. g. {@code /dev/hugepages}). The file is deleted right after it is mapped, so the
+ * memory is released when it is unmapped, like anonymous memory.
+ */
+public enum HugePages {
+    ;
+
+    private static final Logger LOG = LoggerFactory.getLogger(HugePages.class);
+
+    private static final long DEFAULT_HUGE_PAGE_SIZE = 2L << 20;
+
+    /**
+     * The default huge page size of the system, from /proc/meminfo on Linux, 2 MB otherwise
+     */
+    public static final long HUGE_PAGE_SIZE = readHugePageSize();
+
+    private static long readHugePageSize() {
+        File meminfo = new File("/proc/meminfo");
+        if (!meminfo.exists())
+            return DEFAULT_HUGE_PAGE_SIZE;
+        try (BufferedReader reader = new BufferedReader(new FileReader(meminfo))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                // Hugepagesize:       2048 kB
+                if (line.startsWith("Hugepagesize:")) {
+                    String kilobytes = line.substring("Hugepagesize:".length())
+                            .replace("kB", "").trim();
+                    return Long.parseLong(kilobytes) << 10;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOG.debug("Cannot read the huge page size", e);
+        }
+        return DEFAULT_HUGE_PAGE_SIZE;
+    }
+
+    public static long hugePageAlign(long size) {
+        return (size + HUGE_PAGE_SIZE - 1) & ~(HUGE_PAGE_SIZE - 1);
+    }
+
+    /**
+     * Maps a store of at least the given size, rounded up to the huge page size, in the given
+     * hugetlbfs directory.
+     *
+     * @throws IOException if the file cannot be created or mapped, e. g. if there are not enough
+     * free huge pages in the system
+     */
+    public static NativeBytesStore map(File hugePagesDirectory, long size) throws IOException {
+        long mapSize = hugePageAlign(size);
+        File file = File.createTempFile("chronicle-hash-", ".mem", hugePagesDirectory);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(mapSize);
+            long address = OS.map(raf.getChannel(), READ_WRITE, 0, mapSize);
+            OS.Unmapper unmapper = new OS.Unmapper(address, mapSize, DUMMY_REFERENCE_COUNTED);
+            return new NativeBytesStore(address, mapSize, unmapper, false);
+        } finally {
+            if (!file.delete())
+                LOG.warn("Cannot delete the huge pages file {}", file);
+        }
+    }
+}
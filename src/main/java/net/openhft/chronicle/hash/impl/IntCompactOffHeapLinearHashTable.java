@@ -18,12 +18,68 @@ package net.openhft.chronicle.hash.impl;
 
 import net.openhft.chronicle.core.OS;
 
+import java.nio.ByteOrder;
+
 public final class IntCompactOffHeapLinearHashTable extends CompactOffHeapLinearHashTable {
 
     private static final long SCALE = 4L;
 
+    private static final long LOW_BITS = 0x7FFFFFFF7FFFFFFFL;
+    private static final long HIGH_BITS = 0x8000000080000000L;
+    /**
+     * High bit of the lane of a long word, read at an 8-byte aligned position, which contains the
+     * slot at this position. The other lane contains the next slot.
+     */
+    private static final long FIRST_SLOT_HIGH_BIT =
+            ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0x80000000L : 0x8000000000000000L;
+
+    private final long keyMasks;
+
     IntCompactOffHeapLinearHashTable(VanillaChronicleHash h) {
         super(h);
+        long keyMask = mask(h.segmentHashLookupKeyBits);
+        keyMasks = keyMask | (keyMask << 32);
+    }
+
+    @Override
+    long slotSize() {
+        return SCALE;
+    }
+
+    /**
+     * Probes two slots at a time: both are matched against the key and checked for emptiness with
+     * a few operations on the long word, containing them, with a single branch on the result.
+     */
+    @Override
+    public long findKeyOrEmpty(long addr, long pos, long key, long slots) {
+        long keys = key | (key << 32);
+        while (slots > 0) {
+            if ((pos & 7L) != 0L || slots == 1) {
+                long entry = readEntry(addr, pos);
+                if (empty(entry) || key(entry) == key)
+                    return pos;
+                pos = step(pos);
+                slots--;
+                continue;
+            }
+            // Capacity is even, so the aligned pair of slots never wraps around
+            long word = OS.memory().readLong(addr + pos);
+            long hits = zeroLanes(word) | zeroLanes((word ^ keys) & keyMasks);
+            if (hits != 0L)
+                return (hits & FIRST_SLOT_HIGH_BIT) != 0L ? pos : pos + SCALE;
+            pos = step(pos + SCALE);
+            slots -= 2;
+        }
+        return -1L;
+    }
+
+    /**
+     * Returns a word with high bits of 32-bit lanes set, if the lanes of the given word are zero.
+     * Unlike the common "has zero byte" trick, has no false positives, because carries don't
+     * cross lanes.
+     */
+    private static long zeroLanes(long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word) & HIGH_BITS;
     }
 
     @Override
@@ -31,6 +31,11 @@ public final class LongCompactOffHeapLinearHashTable extends CompactOffHeapLinea
         return index * SCALE;
     }
 
+    @Override
+    long slotSize() {
+        return SCALE;
+    }
+
     @Override
     public long step(long pos) {
         return (pos + SCALE) & capacityMask2;
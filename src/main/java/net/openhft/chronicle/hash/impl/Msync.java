@@ -0,0 +1,98 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.UnsafeMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Flushes ranges of mapped memory to the file, i. e. calls {@code msync()} on them. JDK allows to
+ * flush only whole {@link MappedByteBuffer}s, while hash containers map memory by hand, so the
+ * native method behind {@link MappedByteBuffer#force()} is called via reflection. If it is not
+ * accessible, the whole file is flushed via {@link java.nio.channels.FileChannel#force(boolean)}
+ * instead, that on Linux writes back only dirty pages, but of all ranges.
+ */
+public enum Msync {
+    ;
+
+    private static final Logger LOG = LoggerFactory.getLogger(Msync.class);
+
+    private static final Method FORCE_0;
+    private static final MappedByteBuffer FORCE_0_RECEIVER;
+
+    static {
+        Method force0 = null;
+        MappedByteBuffer receiver = null;
+        try {
+            force0 = MappedByteBuffer.class.getDeclaredMethod("force0",
+                    FileDescriptor.class, long.class, long.class);
+            force0.setAccessible(true);
+            // force0() doesn't use the buffer state, any instance could receive the call
+            receiver = (MappedByteBuffer) UnsafeMemory.UNSAFE.allocateInstance(
+                    Class.forName("java.nio.DirectByteBuffer"));
+        } catch (Exception e) {
+            LOG.info("Cannot msync ranges of mapped memory, whole files will be flushed", e);
+            force0 = null;
+            receiver = null;
+        }
+        FORCE_0 = force0;
+        FORCE_0_RECEIVER = receiver;
+    }
+
+    /**
+     * Flushes the range of memory, mapped from the given file, the range is extended to the
+     * page boundaries.
+     */
+    public static void msync(RandomAccessFile raf, long address, long size) throws IOException {
+        if (size <= 0L)
+            return;
+        if (FORCE_0 == null) {
+            raf.getChannel().force(false);
+            return;
+        }
+        long pageSize = OS.pageSize();
+        long alignedAddress = address & ~(pageSize - 1);
+        long alignedSize = OS.pageAlign(address + size - alignedAddress);
+        try {
+            FORCE_0.invoke(FORCE_0_RECEIVER, raf.getFD(), alignedAddress, alignedSize);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Returns {@code true} if {@link #msync} flushes only the given ranges, rather than the whole
+     * file.
+     */
+    public static boolean rangesSupported() {
+        return FORCE_0 != null;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.Memory;
+import net.openhft.chronicle.core.OS;
+
+/**
+ * Blocked Bloom filter of keys of a segment tier, optionally located after the free list of each
+ * tier. Each key sets 3 bits within a single 64-bit word of the filter, so checking a key touches
+ * a single cache line. The filter is updated under the segment write lock on insertions, removals
+ * leave stale bits, which are cleared when the filter is rebuilt during compaction of the segment.
+ */
+public enum SegmentBloomFilter {
+    ;
+
+    private static final Memory memory = OS.memory();
+
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Returns the size of the filter area in bytes, a multiple of the cache line size, or 0, if
+     * {@code bitsPerEntry} is 0, i. e. the filter is not used.
+     */
+    public static long sizeInBytes(long entriesPerSegment, int bitsPerEntry) {
+        if (bitsPerEntry == 0)
+            return 0L;
+        return Maths.nextPower2(entriesPerSegment * bitsPerEntry, 512L) / 8L;
+    }
+
+    /*
+     * Low bits of the mixed hash depend only on low bits of the key hash, which are the same for
+     * all keys of a segment (they choose the segment), so only the middle and high bits are used
+     */
+
+    private static long wordAddr(long address, long sizeInBytes, long mixedHash) {
+        long words = sizeInBytes >>> 3;
+        return address + (((mixedHash >>> 20) & (words - 1L)) << 3);
+    }
+
+    private static long wordBits(long mixedHash) {
+        return (1L << (mixedHash >>> 58)) | (1L << (mixedHash >>> 52)) |
+                (1L << (mixedHash >>> 46));
+    }
+
+    public static boolean mightContain(long address, long sizeInBytes, long keyHash) {
+        long mixedHash = keyHash * MULTIPLIER;
+        long bits = wordBits(mixedHash);
+        return (memory.readLong(wordAddr(address, sizeInBytes, mixedHash)) & bits) == bits;
+    }
+
+    public static void add(long address, long sizeInBytes, long keyHash) {
+        long mixedHash = keyHash * MULTIPLIER;
+        long wordAddr = wordAddr(address, sizeInBytes, mixedHash);
+        memory.writeLong(wordAddr, memory.readLong(wordAddr) | wordBits(mixedHash));
+    }
+
+    public static void clear(long address, long sizeInBytes) {
+        memory.setMemory(address, sizeInBytes, (byte) 0);
+    }
+}
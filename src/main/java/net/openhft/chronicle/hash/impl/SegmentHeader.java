@@ -28,6 +28,19 @@ public interface SegmentHeader {
     long nextPosToSearchFrom(long address);
     void nextPosToSearchFrom(long address, long nextPosToSearchFrom);
 
+    /**
+     * Returns a stamp for an optimistic read of the segment without locking, or -1 if the segment
+     * is currently write-locked. Data read after obtaining the stamp could be inconsistent and
+     * should be used only if {@link #validate} then returns {@code true}.
+     */
+    long tryOptimisticRead(long address);
+
+    /**
+     * Returns {@code true} if the segment hasn't been write-locked since the given stamp was
+     * obtained by {@link #tryOptimisticRead}.
+     */
+    boolean validate(long address, long stamp);
+
     void readLock(long address);
     void readLockInterruptibly(long address);
     boolean tryReadLock(long address);
@@ -0,0 +1,141 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.UnsafeMemory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file, to which ranges of memory of a hash container are copied at the same offsets, as they
+ * have in the file, the hash container is persisted to.
+ */
+final class SnapshotFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 << 10;
+    private static final long BYTE_ARRAY_BASE_OFFSET =
+            UnsafeMemory.UNSAFE.arrayBaseOffset(byte[].class);
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    SnapshotFile(File file) throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    void write(long address, long size, long fileOffset) throws IOException {
+        while (size > 0) {
+            int chunk = (int) Math.min(size, BUFFER_SIZE);
+            buffer.clear();
+            UnsafeMemory.UNSAFE.copyMemory(
+                    null, address, buffer.array(), BYTE_ARRAY_BASE_OFFSET, chunk);
+            buffer.limit(chunk);
+            while (buffer.hasRemaining()) {
+                fileOffset += channel.write(buffer, fileOffset);
+            }
+            address += chunk;
+            size -= chunk;
+        }
+    }
+
+    void write(ByteBuffer src, long fileOffset) throws IOException {
+        while (src.hasRemaining()) {
+            fileOffset += channel.write(src, fileOffset);
+        }
+    }
+
+    /**
+     * Reads the remaining bytes of the given buffer from the given offset, returns {@code false}
+     * if the file is too short.
+     */
+    boolean read(ByteBuffer dst, long fileOffset) throws IOException {
+        if (fileOffset + dst.remaining() > channel.size())
+            return false;
+        while (dst.hasRemaining()) {
+            int read = channel.read(dst, fileOffset);
+            if (read < 0)
+                return false;
+            fileOffset += read;
+        }
+        return true;
+    }
+
+    void writeZeros(long size, long fileOffset) throws IOException {
+        buffer.clear();
+        while (size > 0) {
+            int chunk = (int) Math.min(size, BUFFER_SIZE);
+            for (int i = 0; i < chunk; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.position(0).limit(chunk);
+            while (buffer.hasRemaining()) {
+                fileOffset += channel.write(buffer, fileOffset);
+            }
+            size -= chunk;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the file contains the same bytes at the given offset, as the given
+     * range of memory.
+     */
+    boolean contentEquals(long address, long size, long fileOffset) throws IOException {
+        if (fileOffset + size > channel.size())
+            return false;
+        while (size > 0) {
+            int chunk = (int) Math.min(size, BUFFER_SIZE);
+            buffer.clear();
+            buffer.limit(chunk);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, fileOffset + buffer.position()) < 0)
+                    return false;
+            }
+            for (int i = 0; i < chunk; i++) {
+                if (buffer.get(i) != OS.memory().readByte(address + i))
+                    return false;
+            }
+            address += chunk;
+            fileOffset += chunk;
+            size -= chunk;
+        }
+        return true;
+    }
+
+    void setLength(long length) throws IOException {
+        raf.setLength(length);
+    }
+
+    /**
+     * Flushes the written data to the storage device and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+    }
+}
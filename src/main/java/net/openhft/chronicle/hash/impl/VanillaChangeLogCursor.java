@@ -0,0 +1,182 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.PointerBytesStore;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.UnsafeMemory;
+import net.openhft.chronicle.hash.ChangeLogCursor;
+import net.openhft.chronicle.hash.ChangeType;
+import net.openhft.chronicle.hash.serialization.SizedReader;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.openhft.chronicle.hash.impl.ChangeLog.*;
+import static net.openhft.chronicle.hash.serialization.StatefulCopyable.copyIfNeeded;
+
+/**
+ * Reads {@link ChangeLog} records without locking. A record is copied, then it's commit word is
+ * validated, like in the seqlock scheme, so records, overwritten while they are read, are detected.
+ */
+public final class VanillaChangeLogCursor<K> implements ChangeLogCursor<K> {
+
+    /**
+     * Appending a record takes a few memory writes, if a claimed record is not committed for this
+     * time, the appender is assumed to be dead (e. g. the process is killed between the claim and
+     * the commit), and the record is skipped as lost.
+     */
+    static final long UNCOMMITTED_RECORD_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ChangeLog changeLog;
+    private final SizedReader<K> keyReader;
+    private final PointerBytesStore recordBS = new PointerBytesStore();
+    private final Bytes keyCopy = Bytes.allocateElasticDirect(64);
+
+    private long nextSequence;
+    private long lostChanges = 0L;
+    private long uncommittedSequence = -1L;
+    private long uncommittedSince;
+
+    private long sequence = -1L;
+    private ChangeType changeType;
+    private long timestamp;
+    private long keyHash;
+    private boolean keyAvailable;
+
+    VanillaChangeLogCursor(VanillaChronicleHash<K, ?, ?, ?> hash, ChangeLog changeLog) {
+        this.changeLog = changeLog;
+        keyReader = copyIfNeeded(hash.originalKeyReader);
+        nextSequence = changeLog.nextSequence();
+    }
+
+    @Override
+    public boolean next() {
+        while (true) {
+            long appendedSequence = changeLog.nextSequence();
+            if (nextSequence >= appendedSequence)
+                return false;
+            long oldestSequence = appendedSequence - changeLog.capacity;
+            if (nextSequence < oldestSequence) {
+                lostChanges += oldestSequence - nextSequence;
+                nextSequence = oldestSequence;
+            }
+            long recordAddress = changeLog.recordAddress(nextSequence);
+            long expectedCommit = nextSequence + 1L;
+            long commit = commit(recordAddress);
+            if (commit != expectedCommit) {
+                if (commit > expectedCommit)
+                    continue; // overwritten, the next appendedSequence read skips it
+                if (changeLog.nextSequence() - changeLog.capacity > nextSequence)
+                    continue; // overwritten and being written again
+                if (!uncommittedRecordTimedOut())
+                    return false; // the record is still being written
+                lostChanges++;
+                nextSequence++;
+                continue;
+            }
+            ChangeType changeType = CHANGE_TYPES[
+                    OS.memory().readInt(recordAddress + CHANGE_TYPE_OFFSET) & 3];
+            long timestamp = OS.memory().readLong(recordAddress + TIMESTAMP_OFFSET);
+            long keyHash = OS.memory().readLong(recordAddress + KEY_HASH_OFFSET);
+            int keySize = OS.memory().readInt(recordAddress + KEY_SIZE_OFFSET);
+            keyCopy.clear();
+            if (keySize >= 0 && keySize <= changeLog.recordSize - KEY_OFFSET) {
+                recordBS.set(recordAddress, changeLog.recordSize);
+                keyCopy.write(recordBS, KEY_OFFSET, keySize);
+            }
+            // prevents the reads of the record from being reordered after the commit read
+            UnsafeMemory.UNSAFE.loadFence();
+            if (commit(recordAddress) != expectedCommit)
+                continue;
+            sequence = nextSequence++;
+            this.changeType = changeType;
+            this.timestamp = timestamp;
+            this.keyHash = keyHash;
+            keyAvailable = keySize >= 0;
+            return true;
+        }
+    }
+
+    private boolean uncommittedRecordTimedOut() {
+        long now = System.nanoTime();
+        if (uncommittedSequence != nextSequence) {
+            uncommittedSequence = nextSequence;
+            uncommittedSince = now;
+            return false;
+        }
+        return now - uncommittedSince > UNCOMMITTED_RECORD_TIMEOUT_NANOS;
+    }
+
+    @Override
+    public void moveTo(long sequence) {
+        if (sequence < 0L)
+            throw new IllegalArgumentException("Sequence should be non-negative, " + sequence);
+        nextSequence = sequence;
+        this.sequence = -1L;
+    }
+
+    private void checkCurrentChange() {
+        if (sequence < 0L)
+            throw new IllegalStateException("The cursor is not at a change, call next() first");
+    }
+
+    @Override
+    public long sequence() {
+        checkCurrentChange();
+        return sequence;
+    }
+
+    @Override
+    public ChangeType changeType() {
+        checkCurrentChange();
+        return changeType;
+    }
+
+    @Override
+    public long timestamp() {
+        checkCurrentChange();
+        return timestamp;
+    }
+
+    @Override
+    public long keyHash() {
+        checkCurrentChange();
+        return keyHash;
+    }
+
+    @Override
+    public boolean keyAvailable() {
+        checkCurrentChange();
+        return keyAvailable;
+    }
+
+    @Override
+    public K key() {
+        checkCurrentChange();
+        if (!keyAvailable)
+            throw new IllegalStateException("The key of the change #" + sequence + " didn't " +
+                    "fit the change log record, configure greater maxKeySize of the change log");
+        keyCopy.readPosition(0);
+        return keyReader.read(keyCopy, keyCopy.readRemaining(), null);
+    }
+
+    @Override
+    public long lostChanges() {
+        return lostChanges;
+    }
+}
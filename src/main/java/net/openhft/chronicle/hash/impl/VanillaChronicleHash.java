@@ -16,6 +16,8 @@
 
 package net.openhft.chronicle.hash.impl;
 
+import net.openhft.chronicle.algo.bitset.ReusableBitSet;
+import net.openhft.chronicle.algo.bitset.SingleThreadedFlatBitSetFrame;
 import net.openhft.chronicle.algo.bytes.Access;
 import net.openhft.chronicle.algo.locks.*;
 import net.openhft.chronicle.bytes.BytesStore;
@@ -30,6 +32,7 @@ import net.openhft.chronicle.hash.serialization.SizeMarshaller;
 import net.openhft.chronicle.hash.serialization.SizedReader;
 import net.openhft.chronicle.hash.serialization.impl.SerializationBuilder;
 import net.openhft.chronicle.map.ChronicleMapBuilder;
+import net.openhft.chronicle.threads.NamedThreadFactory;
 import net.openhft.chronicle.values.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,8 +42,13 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static java.lang.Long.numberOfTrailingZeros;
 import static java.lang.Math.max;
@@ -58,7 +66,16 @@ public abstract class VanillaChronicleHash<K,
 
     private static final Logger LOG = LoggerFactory.getLogger(VanillaChronicleHash.class);
 
-    private static final long serialVersionUID = 0L;
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The version of the persisted memory layout. Should be incremented (along with {@code
+     * serialVersionUID}, so that older versions of the library refuse to open the file) whenever
+     * fields, changing the layout, are added to the header. Version 1 adds the key hash function,
+     * segment Bloom filters, the change log, write versions in segment headers and the hash
+     * identity with the snapshot marker in the global mutable state.
+     */
+    public static final int DATA_FILE_FORMAT_VERSION = 1;
 
     public static final long TIER_COUNTERS_AREA_SIZE = 64;
     public static final long RESERVED_GLOBAL_MUTABLE_STATE_BYTES = 1024;
@@ -66,6 +83,7 @@ public abstract class VanillaChronicleHash<K,
     /////////////////////////////////////////////////
     // Version
     public final String dataFileVersion;
+    private final int dataFileFormatVersion;
 
     /////////////////////////////////////////////////
     // If the hash was created in the first place, or read from disk
@@ -75,9 +93,17 @@ public abstract class VanillaChronicleHash<K,
     // Key Data model
     public final Class<K> kClass;
     public final SizeMarshaller keySizeMarshaller;
+    /**
+     * The size of all keys, if it is constant and not stored in entries, otherwise -1
+     */
+    public transient long constantKeySize;
     public final SizedReader<K> originalKeyReader;
     public final DataAccess<K> originalKeyDataAccess;
 
+    /////////////////////////////////////////////////
+    // Key hash function
+    private final KeyHashFunction keyHashFunction;
+
     /////////////////////////////////////////////////
     // Checksum entries
     public final boolean checksumEntries;
@@ -93,6 +119,24 @@ public abstract class VanillaChronicleHash<K,
     public final int maxChunksPerEntry;
     public final long actualChunksPerSegment;
 
+    /////////////////////////////////////////////////
+    // Segment locks, configured via builder in each process independently
+    public transient SegmentHeader segmentHeader;
+
+    /////////////////////////////////////////////////
+    // Statistics, configured via builder in each process independently, null if not recorded
+    public transient HashStatistics statistics;
+
+    /////////////////////////////////////////////////
+    // hugetlbfs directory to allocate memory of in-memory hashes from, configured via builder
+    // in each process independently, null if huge pages are not used
+    public transient File hugePagesDirectory;
+
+    /////////////////////////////////////////////////
+    // Period of background syncs of persisted hashes, configured via builder in each process
+    // independently, 0 if modified memory is flushed only by the OS or by explicit sync() calls
+    public transient long syncPeriodMillis;
+
     /////////////////////////////////////////////////
     // Precomputed offsets and sizes for fast Context init
     final int segmentHeaderSize;
@@ -107,6 +151,11 @@ public abstract class VanillaChronicleHash<K,
     public final long segmentFreeListInnerSize;
     public final long segmentFreeListOuterSize;
 
+    /**
+     * 0 if segment tiers don't have Bloom filters
+     */
+    public final long segmentBloomFilterSize;
+
     final long segmentEntrySpaceInnerSize;
     public final int segmentEntrySpaceInnerOffset;
     final long segmentEntrySpaceOuterSize;
@@ -119,6 +168,11 @@ public abstract class VanillaChronicleHash<K,
     protected final long tiersInBulk;
     protected final int log2TiersInBulk;
 
+    /////////////////////////////////////////////////
+    // Change log, located after the segments, 0 capacity if the change log is not configured
+    public final long changeLogCapacity;
+    final long changeLogRecordSize;
+
     /////////////////////////////////////////////////
     // Bytes Store (essentially, the base address) and serialization-dependent offsets
     private transient File file;
@@ -147,13 +201,23 @@ public abstract class VanillaChronicleHash<K,
 
     public transient CompactOffHeapLinearHashTable hashLookup;
 
+    public transient ChangeLog changeLog;
+
     protected transient volatile boolean closed = false;
 
     private transient VanillaGlobalMutableState globalMutableState;
 
+    // sink of the bytes, read by preTouch()
+    private transient volatile long preTouchChecksum;
+
+    // write versions of segment headers, observed by the last sync(), null for in-memory hashes
+    private transient long[] syncedSegmentWriteVersions;
+    private transient ScheduledExecutorService syncExecutor;
+
     public VanillaChronicleHash(ChronicleMapBuilder<K, ?> builder) {
         // Version
         dataFileVersion = BuildVersion.version();
+        dataFileFormatVersion = DATA_FILE_FORMAT_VERSION;
 
         // Because we are in constructor. If the Hash loaded from persistence file, deserialization
         // bypasses the constructor and createdOrInMemory = false
@@ -168,6 +232,7 @@ public abstract class VanillaChronicleHash<K,
         keySizeMarshaller = keyBuilder.sizeMarshaller();
         originalKeyReader = keyBuilder.reader();
         originalKeyDataAccess = keyBuilder.dataAccess();
+        keyHashFunction = privateAPI.keyHashFunction();
 
         actualSegments = privateAPI.actualSegments();
         hashSplitting = HashSplitting.Splitting.forSegments(actualSegments);
@@ -197,6 +262,9 @@ public abstract class VanillaChronicleHash<K,
                 BYTES.alignAndConvert(actualChunksPerSegment, BITS), BYTES);
         segmentFreeListOuterSize = CACHE_LINES.align(segmentFreeListInnerSize, BYTES);
 
+        segmentBloomFilterSize = SegmentBloomFilter.sizeInBytes(
+                entriesPerSegment, privateAPI.bloomFilterBitsPerEntry());
+
         segmentEntrySpaceInnerSize = chunkSize * actualChunksPerSegment;
         segmentEntrySpaceInnerOffset = privateAPI.segmentEntrySpaceInnerOffset();
         segmentEntrySpaceOuterSize = CACHE_LINES.align(
@@ -210,9 +278,16 @@ public abstract class VanillaChronicleHash<K,
         tierBulkInnerOffsetToTiers = computeTierBulkInnerOffsetToTiers(tiersInBulk);
         tierBulkSizeInBytes = computeTierBulkBytesSize(tiersInBulk);
 
+        changeLogCapacity = privateAPI.changeLogCapacity();
+        changeLogRecordSize = ChangeLog.recordSize(privateAPI.changeLogMaxKeySize());
+
         checksumEntries = privateAPI.checksumEntries();
     }
 
+    public final KeyHashFunction keyHashFunction() {
+        return keyHashFunction;
+    }
+
     protected VanillaGlobalMutableState createGlobalMutableState() {
         return Values.newNativeReference(VanillaGlobalMutableState.class);
     }
@@ -223,7 +298,7 @@ public abstract class VanillaChronicleHash<K,
 
     private long segmentSize() {
         long ss = segmentHashLookupOuterSize + TIER_COUNTERS_AREA_SIZE +
-                segmentFreeListOuterSize + segmentEntrySpaceOuterSize;
+                segmentFreeListOuterSize + segmentBloomFilterSize + segmentEntrySpaceOuterSize;
         if ((ss & 63L) != 0)
             throw new AssertionError();
         return breakL1CacheAssociativityContention(ss);
@@ -264,6 +339,7 @@ public abstract class VanillaChronicleHash<K,
     }
 
     private void initOwnTransients() {
+        constantKeySize = constantUnstoredSize(keySizeMarshaller);
         globalMutableState = createGlobalMutableState();
         tierBulkOffsets = new ArrayList<>();
         if (segmentHashLookupEntrySize == 4) {
@@ -313,12 +389,19 @@ public abstract class VanillaChronicleHash<K,
 
         long segmentHeadersSize = actualSegments * segmentHeaderSize;
         segmentsOffset = segmentHeadersOffset + segmentHeadersSize;
+        if (changeLogCapacity > 0) {
+            changeLog = new ChangeLog(
+                    bsAddress() + changeLogOffset(), changeLogCapacity, changeLogRecordSize);
+        }
 
         if (createdOrInMemory) {
             zeroOutNewlyMappedChronicleMapBytes();
             // write the segment headers offset after zeroing out
             globalMutableState.setSegmentHeadersOffset(segmentHeadersOffset);
+            globalMutableState.setHashIdentity(newHashIdentity());
         } else {
+            if (globalMutableState.getSnapshotOf() != 0L)
+                onSnapshotOpened();
             if (globalMutableState.getAllocatedExtraTierBulks() > 0) {
                 appendBulkData(0, globalMutableState.getAllocatedExtraTierBulks() - 1,
                         bs, sizeInBytesWithoutTiers());
@@ -326,6 +409,30 @@ public abstract class VanillaChronicleHash<K,
         }
     }
 
+    private static long newHashIdentity() {
+        long identity;
+        do {
+            identity = ThreadLocalRandom.current().nextLong();
+        } while (identity == 0L);
+        return identity;
+    }
+
+    /**
+     * A snapshot, opened as a hash, diverges from the hash it is a copy of, so it is given
+     * its own identity, to make the next snapshot of the original hash to this file full.
+     */
+    private void onSnapshotOpened() {
+        globalMutableStateLock();
+        try {
+            if (globalMutableState.getSnapshotOf() != 0L) {
+                globalMutableState.setHashIdentity(newHashIdentity());
+                globalMutableState.setSnapshotOf(0L);
+            }
+        } finally {
+            globalMutableStateUnlock();
+        }
+    }
+
     public final void createMappedStoreAndSegments(File file) throws IOException {
         // TODO this method had been moved -- not clear where
         //OS.warnOnWindows(sizeInBytesWithoutTiers());
@@ -335,6 +442,30 @@ public abstract class VanillaChronicleHash<K,
         try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
             createMappedStoreAndSegments(map(raf, mapSize, 0));
         }
+        initSync();
+    }
+
+    private void initSync() {
+        syncedSegmentWriteVersions = new long[actualSegments];
+        for (int i = 0; i < actualSegments; i++) {
+            syncedSegmentWriteVersions[i] =
+                    segmentHeader.tryOptimisticRead(segmentHeaderAddress(i));
+        }
+        if (syncPeriodMillis > 0) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new NamedThreadFactory("sync thread for map persisted at " + file, true));
+            syncExecutor.scheduleWithFixedDelay(this::syncLoggingErrors,
+                    syncPeriodMillis, syncPeriodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void syncLoggingErrors() {
+        try {
+            sync();
+        } catch (Exception e) {
+            // shouldn't cancel subsequent background syncs or fail close()
+            LOG.error("Error while syncing " + file, e);
+        }
     }
 
     private boolean persisted() {
@@ -348,6 +479,13 @@ public abstract class VanillaChronicleHash<K,
         zeroOutGlobalMutableState();
         zeroOutSegmentHeaders();
         zeroOutFirstSegmentTiers();
+        zeroOutChangeLog();
+    }
+
+    private void zeroOutChangeLog() {
+        long changeLogOffset = changeLogOffset();
+        bs.zeroOut(changeLogOffset,
+                changeLogOffset + ChangeLog.sizeInBytes(changeLogCapacity, changeLogRecordSize));
     }
 
     private void zeroOutGlobalMutableState() {
@@ -376,9 +514,25 @@ public abstract class VanillaChronicleHash<K,
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
+        if (dataFileFormatVersion != DATA_FILE_FORMAT_VERSION) {
+            throw new InvalidObjectException("The hash is persisted with an unknown data file " +
+                    "format version " + dataFileFormatVersion + " by Chronicle Map " +
+                    dataFileVersion + ", only version " + DATA_FILE_FORMAT_VERSION +
+                    " is supported");
+        }
         initOwnTransients();
     }
 
+    /**
+     * Returns the size, if the given marshaller allows only a single size and doesn't store it,
+     * then the offsets within entries could be computed without reading sizes, otherwise -1.
+     */
+    public static long constantUnstoredSize(SizeMarshaller sizeMarshaller) {
+        long size = sizeMarshaller.minStorableSize();
+        return size == sizeMarshaller.maxStorableSize() && sizeMarshaller.storingLength(size) == 0 ?
+                size : -1L;
+    }
+
     public void onHeaderCreated() {
     }
 
@@ -410,7 +564,12 @@ public abstract class VanillaChronicleHash<K,
     }
 
     public final long sizeInBytesWithoutTiers() {
-        return segmentHeadersOffset() + actualSegments * (segmentHeaderSize + segmentSize);
+        return segmentHeadersOffset() + actualSegments * (segmentHeaderSize + segmentSize) +
+                ChangeLog.sizeInBytes(changeLogCapacity, changeLogRecordSize);
+    }
+
+    private long changeLogOffset() {
+        return segmentsOffset + actualSegments * segmentSize;
     }
 
     public final long expectedFileSize() {
@@ -423,6 +582,12 @@ public abstract class VanillaChronicleHash<K,
     public synchronized void close() {
         if (closed)
             return;
+        if (syncExecutor != null) {
+            // sync() is synchronized on this hash as well, so if the sync thread is blocked on it,
+            // it will see the closed flag
+            syncExecutor.shutdownNow();
+            syncLoggingErrors();
+        }
         closed = true;
         bs = null;
         file = null;
@@ -441,6 +606,15 @@ public abstract class VanillaChronicleHash<K,
         }
     }
 
+    @Override
+    public ChronicleHashStatistics statistics() {
+        if (statistics == null) {
+            throw new IllegalStateException("Statistics are not recorded, " +
+                    "configure recordStatistics(true) in the builder");
+        }
+        return statistics;
+    }
+
     /**
      * For testing
      */
@@ -456,6 +630,11 @@ public abstract class VanillaChronicleHash<K,
         return bsAddress() + segmentHeadersOffset + ((long) segmentIndex) * segmentHeaderSize;
     }
 
+    public final int segmentIndexBySegmentHeaderAddress(long segmentHeaderAddress) {
+        return (int) ((segmentHeaderAddress - bsAddress() - segmentHeadersOffset) /
+                segmentHeaderSize);
+    }
+
     public long bsAddress() {
         return bs.address(0);
     }
@@ -495,6 +674,337 @@ public abstract class VanillaChronicleHash<K,
         return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
     }
 
+    /**
+     * Maps all extra tier bulks, allocated so far, in advance of walking tier chains from several
+     * threads, because tier bulks are lazily mapped in a not thread-safe way.
+     */
+    private void mapAllocatedTierBulks() {
+        globalMutableStateLock();
+        try {
+            mapAllocatedTierBulksUnderGlobalLock();
+        } finally {
+            globalMutableStateUnlock();
+        }
+    }
+
+    private void mapAllocatedTierBulksUnderGlobalLock() {
+        int allocatedExtraTierBulks = globalMutableState.getAllocatedExtraTierBulks();
+        if (allocatedExtraTierBulks > tierBulkOffsets.size())
+            mapTierBulks(allocatedExtraTierBulks - 1);
+    }
+
+    @Override
+    public long preTouch() {
+        long startTime = System.nanoTime();
+        mapAllocatedTierBulks();
+        long checksum = IntStream.range(0, actualSegments).parallel()
+                .mapToLong(this::preTouchSegment).sum();
+        // the checksum is published, to prevent the touching reads from being optimized away
+        preTouchChecksum = checksum;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        LOG.info("Pre-touched {} segments of {} in {} ms", actualSegments,
+                file != null ? file : "in-memory hash", elapsedMillis);
+        return elapsedMillis;
+    }
+
+    private long preTouchSegment(int segmentIndex) {
+        long pageSize = OS.pageSize();
+        long segmentHeaderAddress = segmentHeaderAddress(segmentIndex);
+        ReusableBitSet freeList = new ReusableBitSet(
+                new SingleThreadedFlatBitSetFrame(LONGS.align(actualChunksPerSegment, BITS)),
+                Access.nativeAccess(), null, 0);
+        segmentHeader.readLock(segmentHeaderAddress);
+        try {
+            long checksum = touchPages(segmentHeaderAddress, segmentHeaderSize, pageSize);
+            long tierIndex = segmentIndex + 1;
+            while (tierIndex != 0L && tierMapped(tierIndex)) {
+                long tierBaseAddr = tierIndexToBaseAddr(tierIndex);
+                checksum += preTouchTier(tierBaseAddr, freeList, pageSize);
+                tierIndex = TierCountersArea.nextTierIndex(
+                        tierBaseAddr + segmentHashLookupOuterSize);
+            }
+            return checksum;
+        } finally {
+            segmentHeader.readUnlock(segmentHeaderAddress);
+        }
+    }
+
+    /**
+     * Tiers, allocated by another process after the tier bulks were mapped in {@link
+     * #preTouch()} or {@link #sync()}, are skipped, to avoid mapping tier bulks concurrently.
+     * {@link #snapshotTo(File)} maps them again, under the global mutable state lock.
+     */
+    private boolean tierMapped(long tierIndex) {
+        long extraTierIndex = tierIndex - 1 - actualSegments;
+        return extraTierIndex < 0 || (extraTierIndex >> log2TiersInBulk) < tierBulkOffsets.size();
+    }
+
+    private long preTouchTier(long tierBaseAddr, ReusableBitSet freeList, long pageSize) {
+        long freeListAddr = tierBaseAddr + segmentHashLookupOuterSize + TIER_COUNTERS_AREA_SIZE;
+        long entrySpaceAddr = freeListAddr + segmentFreeListOuterSize + segmentBloomFilterSize +
+                segmentEntrySpaceInnerOffset;
+        // hash lookup, tier counters, free list and Bloom filter
+        long checksum = touchPages(tierBaseAddr, entrySpaceAddr - tierBaseAddr, pageSize);
+        // only the pages of the entry space, which have allocated chunks
+        freeList.setOffset(freeListAddr);
+        long chunksPerPage = max(1L, pageSize / chunkSize);
+        for (long chunk = 0; chunk < actualChunksPerSegment; chunk += chunksPerPage) {
+            long toChunk = Math.min(chunk + chunksPerPage, actualChunksPerSegment);
+            if (!freeList.isRangeClear(chunk, toChunk)) {
+                checksum += touchPages(entrySpaceAddr + chunk * chunkSize,
+                        (toChunk - chunk) * chunkSize, pageSize);
+            }
+        }
+        return checksum;
+    }
+
+    @Override
+    public synchronized void sync() {
+        long[] syncedVersions = syncedSegmentWriteVersions;
+        if (closed || syncedVersions == null)
+            return;
+        long startTime = System.nanoTime();
+        mapAllocatedTierBulks();
+        List<long[]> ranges = new ArrayList<>();
+        for (int i = 0; i < actualSegments; i++) {
+            long segmentHeaderAddress = segmentHeaderAddress(i);
+            long writeVersion = segmentHeader.tryOptimisticRead(segmentHeaderAddress);
+            if (writeVersion >= 0 && writeVersion == syncedVersions[i])
+                continue;
+            segmentHeader.readLock(segmentHeaderAddress);
+            try {
+                // the segment cannot be modified while read-locked, the ranges are flushed
+                // after unlocking, writes made since then are flushed by the next sync()
+                syncedVersions[i] = segmentHeader.tryOptimisticRead(segmentHeaderAddress);
+                addTierRanges(i, ranges);
+            } finally {
+                segmentHeader.readUnlock(segmentHeaderAddress);
+            }
+        }
+        if (ranges.isEmpty())
+            return;
+        // the global mutable state and segment headers
+        ranges.add(new long[] {bsAddress(), bsAddress() + segmentsOffset});
+        if (changeLog != null) {
+            // the change log is appended to on each segment modification
+            long changeLogAddress = bsAddress() + changeLogOffset();
+            ranges.add(new long[] {changeLogAddress, changeLogAddress +
+                    ChangeLog.sizeInBytes(changeLogCapacity, changeLogRecordSize)});
+        }
+        int flushedRanges = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (Msync.rangesSupported()) {
+                ranges.sort(Comparator.comparingLong(range -> range[0]));
+                long[] merged = ranges.get(0);
+                for (int i = 1; i < ranges.size(); i++) {
+                    long[] range = ranges.get(i);
+                    if (range[0] <= merged[1]) {
+                        merged[1] = max(merged[1], range[1]);
+                    } else {
+                        Msync.msync(raf, merged[0], merged[1] - merged[0]);
+                        flushedRanges++;
+                        merged = range;
+                    }
+                }
+                Msync.msync(raf, merged[0], merged[1] - merged[0]);
+                flushedRanges++;
+            } else {
+                raf.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        LOG.debug("Synced {} ranges of {} in {} ms", flushedRanges, file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    private void addTierRanges(int segmentIndex, List<long[]> ranges) {
+        long tierIndex = segmentIndex + 1;
+        while (tierIndex != 0L && tierMapped(tierIndex)) {
+            long tierBaseAddr = tierIndexToBaseAddr(tierIndex);
+            ranges.add(new long[] {tierBaseAddr, tierBaseAddr + segmentSize});
+            long extraTierIndex = tierIndex - 1 - actualSegments;
+            if (extraTierIndex >= 0 && tierBulkInnerOffsetToTiers > 0) {
+                // the data of the tier bulk, preceding tiers, e. g. bit sets in Replicated version
+                long bulkAddr = tierBaseAddr - (extraTierIndex & (tiersInBulk - 1)) * segmentSize -
+                        tierBulkInnerOffsetToTiers;
+                ranges.add(new long[] {bulkAddr, bulkAddr + tierBulkInnerOffsetToTiers});
+            }
+            tierIndex = TierCountersArea.nextTierIndex(tierBaseAddr + segmentHashLookupOuterSize);
+        }
+    }
+
+    @Override
+    public ChangeLogCursor<K> changeLogCursor() {
+        if (changeLog == null) {
+            throw new IllegalStateException("Change log is not configured, " +
+                    "configure changeLog() in the builder");
+        }
+        return new VanillaChangeLogCursor<>(this, changeLog);
+    }
+
+    @Override
+    public synchronized int snapshotTo(File target) {
+        if (closed)
+            throw new IllegalStateException("Cannot snapshot a closed ChronicleHash");
+        if (!persisted())
+            throw new IllegalStateException("Only persisted ChronicleHashes could be snapshot");
+        long startTime = System.nanoTime();
+        mapAllocatedTierBulks();
+        int copiedSegments = 0;
+        try (SnapshotFile snapshot = new SnapshotFile(target)) {
+            // if the target is a complete snapshot of this hash, segments, which write versions
+            // are the same in the target, are not modified since the previous snapshot
+            boolean incremental = snapshot.contentEquals(bsAddress(), headerSize, 0) &&
+                    isSnapshotOfThisHash(snapshot);
+            if (!incremental && changeLogCapacity > 0) {
+                // the change log is not copied, the snapshot starts with an empty change log
+                snapshot.writeZeros(ChangeLog.sizeInBytes(changeLogCapacity, changeLogRecordSize),
+                        changeLogOffset());
+            }
+            for (int i = 0; i < actualSegments; i++) {
+                if (snapshotSegment(snapshot, i, incremental))
+                    copiedSegments++;
+            }
+            // the global mutable state is copied after segments, to cover all tiers, allocated
+            // for copied segments
+            globalMutableStateLock();
+            try {
+                snapshotGlobalMutableState(snapshot);
+            } finally {
+                globalMutableStateUnlock();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        LOG.info("Copied {} of {} segments of {} to {} in {} ms", copiedSegments, actualSegments,
+                file, target, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        return copiedSegments;
+    }
+
+    private boolean snapshotSegment(SnapshotFile snapshot, int segmentIndex, boolean incremental)
+            throws IOException {
+        long segmentHeaderAddress = segmentHeaderAddress(segmentIndex);
+        long segmentHeaderFileOffset = segmentHeaderAddress - bsAddress();
+        segmentHeader.readLock(segmentHeaderAddress);
+        try {
+            long writeVersionOffset = BigSegmentHeader.WRITE_VERSION_OFFSET;
+            if (incremental && snapshot.contentEquals(segmentHeaderAddress + writeVersionOffset,
+                    4, segmentHeaderFileOffset + writeVersionOffset)) {
+                return false;
+            }
+            long tierIndex = segmentIndex + 1;
+            while (tierIndex != 0L) {
+                if (!tierMapped(tierIndex))
+                    mapAllocatedTierBulks();
+                long tierBaseAddr = tierIndexToBaseAddr(tierIndex);
+                long tierFileOffset = tierFileOffset(tierIndex);
+                snapshot.write(tierBaseAddr, segmentSize, tierFileOffset);
+                long extraTierIndex = tierIndex - 1 - actualSegments;
+                if (extraTierIndex >= 0 && tierBulkInnerOffsetToTiers > 0) {
+                    // the data of the tier bulk, preceding tiers, e. g. bit sets in Replicated
+                    // version
+                    long offsetWithinBulk = tierBulkInnerOffsetToTiers +
+                            (extraTierIndex & (tiersInBulk - 1)) * segmentSize;
+                    snapshot.write(tierBaseAddr - offsetWithinBulk, tierBulkInnerOffsetToTiers,
+                            tierFileOffset - offsetWithinBulk);
+                }
+                tierIndex = TierCountersArea.nextTierIndex(
+                        tierBaseAddr + segmentHashLookupOuterSize);
+            }
+            // the header with the write version is written after the tiers, so that if
+            // the snapshot is interrupted, the segment is copied again by the next snapshot
+            snapshot.write(segmentHeaderAddress, segmentHeaderSize, segmentHeaderFileOffset);
+            // the segment in the snapshot is not locked
+            snapshot.writeZeros(8L, segmentHeaderFileOffset + BigSegmentHeader.LOCK_OFFSET);
+            return true;
+        } finally {
+            segmentHeader.readUnlock(segmentHeaderAddress);
+        }
+    }
+
+    private void snapshotGlobalMutableState(SnapshotFile snapshot) throws IOException {
+        // the header, the global mutable state and all other data, preceding segment headers
+        snapshot.write(bsAddress(), segmentHeadersOffset, 0);
+        snapshot.writeZeros(8L, headerSize + GLOBAL_MUTABLE_STATE_LOCK_OFFSET);
+        markSnapshotOfThisHash(snapshot);
+        // tiers in the free tier list are zeroed out, except tier counters, which link the list
+        mapAllocatedTierBulksUnderGlobalLock();
+        long tierIndex = globalMutableState.getFirstFreeTierIndex();
+        while (tierIndex > 0L) {
+            long tierBaseAddr = tierIndexToBaseAddr(tierIndex);
+            long tierFileOffset = tierFileOffset(tierIndex);
+            long tierCountersAreaAddr = tierBaseAddr + segmentHashLookupOuterSize;
+            if (!snapshot.contentEquals(tierCountersAreaAddr, TIER_COUNTERS_AREA_SIZE,
+                    tierFileOffset + segmentHashLookupOuterSize)) {
+                snapshot.write(tierBaseAddr, segmentSize - segmentEntrySpaceOuterSize,
+                        tierFileOffset);
+            }
+            tierIndex = TierCountersArea.nextTierIndex(tierCountersAreaAddr);
+        }
+        snapshot.setLength(expectedFileSize());
+    }
+
+    /**
+     * The header of another hash with the same configuration is equal to the header of this hash,
+     * the snapshot marker in the global mutable state distinguishes complete snapshots of this
+     * hash.
+     */
+    private boolean isSnapshotOfThisHash(SnapshotFile snapshot) throws IOException {
+        VanillaGlobalMutableState snapshotState = createGlobalMutableState();
+        ByteBuffer snapshotStateBuffer = ByteBuffer.allocate((int) snapshotState.maxSize());
+        if (!snapshot.read(snapshotStateBuffer, headerSize + GLOBAL_MUTABLE_STATE_VALUE_OFFSET))
+            return false;
+        snapshotStateBuffer.flip();
+        snapshotState.bytesStore(BytesStore.wrap(snapshotStateBuffer), 0,
+                snapshotState.maxSize());
+        long hashIdentity = globalMutableState.getHashIdentity();
+        return snapshotState.getHashIdentity() == hashIdentity &&
+                snapshotState.getSnapshotOf() == hashIdentity;
+    }
+
+    /**
+     * Called after the global mutable state is copied to the snapshot, so the marker is written
+     * when the snapshot is complete.
+     */
+    private void markSnapshotOfThisHash(SnapshotFile snapshot) throws IOException {
+        long stateFileOffset = headerSize + GLOBAL_MUTABLE_STATE_VALUE_OFFSET;
+        VanillaGlobalMutableState snapshotState = createGlobalMutableState();
+        ByteBuffer snapshotStateBuffer = ByteBuffer.allocate((int) snapshotState.maxSize());
+        if (!snapshot.read(snapshotStateBuffer, stateFileOffset))
+            throw new AssertionError("global mutable state is not copied to the snapshot");
+        snapshotStateBuffer.flip();
+        snapshotState.bytesStore(BytesStore.wrap(snapshotStateBuffer), 0,
+                snapshotState.maxSize());
+        snapshotState.setSnapshotOf(globalMutableState.getHashIdentity());
+        snapshot.write(snapshotStateBuffer, stateFileOffset);
+    }
+
+    private long tierFileOffset(long tierIndex) {
+        long tierIndexMinusOne = tierIndex - 1;
+        if (tierIndexMinusOne < actualSegments)
+            return segmentOffset(tierIndexMinusOne);
+        long extraTierIndex = tierIndexMinusOne - actualSegments;
+        return bulkOffset((int) (extraTierIndex >> log2TiersInBulk)) +
+                tierBulkInnerOffsetToTiers + (extraTierIndex & (tiersInBulk - 1)) * segmentSize;
+    }
+
+    /**
+     * Reads a byte from each page in the given range, that faults the pages in without making
+     * them dirty.
+     */
+    private static long touchPages(long address, long size, long pageSize) {
+        if (size <= 0L)
+            return 0L;
+        long checksum = 0L;
+        long end = address + size;
+        for (long addr = address; addr < end; addr += pageSize) {
+            checksum += OS.memory().readByte(addr);
+        }
+        // the last page, if the range is not page-aligned
+        return checksum + OS.memory().readByte(end - 1);
+    }
+
     @Override
     public int segments() {
         return actualSegments;
@@ -565,6 +1075,8 @@ public abstract class VanillaChronicleHash<K,
                     TierCountersArea.segmentIndex(tierCountersAreaAddr, forSegmentIndex);
                     TierCountersArea.tier(tierCountersAreaAddr, tier);
                     globalMutableState.setFirstFreeTierIndex(nextFreeTierIndex);
+                    if (statistics != null)
+                        statistics.recordTierAllocation();
                     return firstFreeTierIndex;
                 } else {
                     allocateTierBulk();
@@ -575,6 +1087,28 @@ public abstract class VanillaChronicleHash<K,
         }
     }
 
+    /**
+     * Returns the extra tier, which is already unlinked from the chain of tiers of it's segment
+     * and doesn't contain entries, to the free tier list.
+     */
+    public void releaseTier(long tierIndex) {
+        LOG.debug("Release tier {}", tierIndex);
+        globalMutableStateLock();
+        try {
+            BytesStore tierBytesStore = tierBytesStore(tierIndex);
+            long tierOffset = tierBytesOffset(tierIndex);
+            zeroOutNewlyMappedTier(tierBytesStore, tierOffset);
+            long tierCountersAreaAddr =
+                    tierBytesStore.address(0) + tierOffset + segmentHashLookupOuterSize;
+            TierCountersArea.nextTierIndex(tierCountersAreaAddr,
+                    globalMutableState.getFirstFreeTierIndex());
+            globalMutableState.setFirstFreeTierIndex(tierIndex);
+            globalMutableState.setExtraTiersInUse(globalMutableState.getExtraTiersInUse() - 1);
+        } finally {
+            globalMutableStateUnlock();
+        }
+    }
+
     private void allocateTierBulk() {
         int allocatedExtraTierBulks = globalMutableState.getAllocatedExtraTierBulks();
         mapTierBulks(allocatedExtraTierBulks);
@@ -600,7 +1134,17 @@ public abstract class VanillaChronicleHash<K,
             }
         }
 
-        // TODO HCOLL-397 insert msync here!
+        if (persisted()) {
+            // flush the newly allocated tiers before they are published in the global mutable
+            // state, so that after a crash the state never refers to not initialized tiers
+            long bulkAddr =
+                    tierBytesStore.address(0) + firstTierOffset - tierBulkInnerOffsetToTiers;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                Msync.msync(raf, bulkAddr, tierBulkSizeInBytes);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
 
         // after we are sure the new bulk is initialized, update the global mutable state
         globalMutableState.setAllocatedExtraTierBulks(allocatedExtraTierBulks + 1);
@@ -659,15 +1203,15 @@ public abstract class VanillaChronicleHash<K,
     }
 
     private void mapTierBulks(int upToBulkIndex) {
-        if (persisted()) {
-            try {
+        try {
+            if (persisted()) {
                 mapTierBulksMapped(upToBulkIndex);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            } else {
+                // in-memory ChMap
+                allocateTierBulks(upToBulkIndex);
             }
-        } else {
-            // in-memory ChMap
-            allocateTierBulks(upToBulkIndex);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -723,11 +1267,21 @@ public abstract class VanillaChronicleHash<K,
         return sizeInBytesWithoutTiers() + bulkIndex * tierBulkSizeInBytes;
     }
 
-    private void allocateTierBulks(int upToBulkIndex) {
+    /**
+     * Allocates memory for in-memory hash containers, from huge pages, if {@link
+     * #hugePagesDirectory} is configured.
+     */
+    public final BytesStore allocateInMemoryStore(long size) throws IOException {
+        if (hugePagesDirectory != null)
+            return HugePages.map(hugePagesDirectory, size);
+        return lazyNativeBytesStoreWithFixedCapacity(size);
+    }
+
+    private void allocateTierBulks(int upToBulkIndex) throws IOException {
         int firstBulkToMapIndex = tierBulkOffsets.size();
         int bulksToMap = upToBulkIndex + 1 - firstBulkToMapIndex;
         long mapSize = bulksToMap * tierBulkSizeInBytes;
-        BytesStore extraStore = lazyNativeBytesStoreWithFixedCapacity(mapSize);
+        BytesStore extraStore = allocateInMemoryStore(mapSize);
         appendBulkData(firstBulkToMapIndex, upToBulkIndex, extraStore, 0);
     }
 
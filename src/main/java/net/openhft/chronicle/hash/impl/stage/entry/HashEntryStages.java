@@ -18,9 +18,11 @@ package net.openhft.chronicle.hash.impl.stage.entry;
 
 import net.openhft.chronicle.algo.bytes.Access;
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.ChangeType;
 import net.openhft.chronicle.hash.ChecksumEntry;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.HashEntry;
+import net.openhft.chronicle.hash.impl.ChangeLog;
 import net.openhft.chronicle.hash.impl.VanillaChronicleHashHolder;
 import net.openhft.chronicle.hash.impl.stage.data.bytes.EntryKeyBytesData;
 import net.openhft.chronicle.hash.impl.stage.hash.CheckOnEachPublicOperation;
@@ -40,6 +42,7 @@ public abstract class HashEntryStages<K> implements HashEntry<K>, ChecksumEntry
     @StageRef public SegmentStages s;
     @StageRef public CheckOnEachPublicOperation checkOnEachPublicOperation;
     @StageRef public HashLookupPos hlp;
+    @StageRef public KeyHashCode kh;
 
     public long pos = -1;
 
@@ -69,6 +72,13 @@ public abstract class HashEntryStages<K> implements HashEntry<K>, ChecksumEntry
 
     public void readExistingEntry(long pos) {
         initPos(pos);
+        long constantKeySize = hh.h().constantKeySize;
+        if (constantKeySize >= 0) {
+            // fast path, the key size is not stored
+            initKeySize(constantKeySize);
+            initKeyOffset(keySizeOffset);
+            return;
+        }
         Bytes segmentBytes = s.segmentBytesForRead();
         segmentBytes.readPosition(keySizeOffset);
         initKeySize(hh.h().keySizeMarshaller.readSize(segmentBytes));
@@ -78,6 +88,11 @@ public abstract class HashEntryStages<K> implements HashEntry<K>, ChecksumEntry
     public void writeNewEntry(long pos, Data<?> key) {
         initPos(pos);
         initKeySize(key.size());
+        if (hh.h().constantKeySize >= 0) {
+            initKeyOffset(keySizeOffset);
+            key.writeTo(s.segmentBS, keyOffset);
+            return;
+        }
         Bytes segmentBytes = s.segmentBytesForWrite();
         segmentBytes.writePosition(keySizeOffset);
         hh.h().keySizeMarshaller.writeSize(segmentBytes, keySize);
@@ -149,4 +164,17 @@ public abstract class HashEntryStages<K> implements HashEntry<K>, ChecksumEntry
         s.entries(s.entries() - 1L);
         s.incrementModCount();
     }
+
+    /**
+     * Appends the change of this entry to the change log, if it is configured. Should be called
+     * after the entry is inserted or it's value is replaced, but before it is removed, while the
+     * key is still in the segment.
+     */
+    public void recordChange(ChangeType changeType) {
+        ChangeLog changeLog = hh.h().changeLog;
+        if (changeLog != null) {
+            changeLog.append(changeType, kh.keyHashCode(), s.segmentBaseAddr + keyOffset,
+                    keySize);
+        }
+    }
 }
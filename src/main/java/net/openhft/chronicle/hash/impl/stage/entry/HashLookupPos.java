@@ -28,6 +28,11 @@ public abstract class HashLookupPos {
     @StageRef HashLookupSearch hls;
 
     public long hashLookupPos = -1;
+    /**
+     * {@code true} if the search has probed all slots of the hash lookup and {@link
+     * #hashLookupPos} has wrapped back to the {@link HashLookupSearch#searchStartPos}.
+     */
+    @Stage("HashLookupPos") public boolean allSlotsProbed = false;
 
     public abstract boolean hashLookupPosInit();
 
@@ -37,15 +42,24 @@ public abstract class HashLookupPos {
         assert s.segmentTier >= 0;
         s.innerReadLock.lock();
         this.hashLookupPos = hls.searchStartPos;
+        allSlotsProbed = false;
     }
 
     public void initHashLookupPos(long hashLookupPos) {
         this.hashLookupPos = hashLookupPos;
+        allSlotsProbed = false;
     }
 
     @Stage("HashLookupPos")
     public void setHashLookupPos(long hashLookupPos) {
         this.hashLookupPos = hashLookupPos;
+        allSlotsProbed = false;
+    }
+
+    @Stage("HashLookupPos")
+    public void setHashLookupPosAfterAllSlotsProbed(long hashLookupPos) {
+        this.hashLookupPos = hashLookupPos;
+        allSlotsProbed = true;
     }
     
     public abstract void closeHashLookupPos();
@@ -32,6 +32,7 @@ public abstract class HashLookupSearch {
     @StageRef public VanillaChronicleHashHolder<?> hh;
     @StageRef HashLookupPos hlp;
     @StageRef KeySearch<?> ks;
+    @StageRef public KeyHashCode h;
     
     @Stage("SearchKey") long searchKey = UNSET_KEY;
     @Stage("SearchKey") public long searchStartPos;
@@ -51,23 +52,36 @@ public abstract class HashLookupSearch {
 
     public long nextPos() {
         long pos = hlp.hashLookupPos;
-        while (true) {
-            long entry = hl().readEntry(addr(), pos);
-            if (hl().empty(entry)) {
-                hlp.setHashLookupPos(pos);
-                return -1L;
-            }
-            pos = hl().step(pos);
-            if (pos == searchStartPos)
-                break;
-            if (hl().key(entry) == searchKey) {
-                hlp.setHashLookupPos(pos);
-                return hl().value(entry);
-            }
+        // the key bits matched in the last slot of the full hash lookup, but the key is different
+        if (hlp.allSlotsProbed)
+            throw multiMapIsFull();
+        CompactOffHeapLinearHashTable hl = hl();
+        long slotsToProbe = hl.slotsBetween(pos, searchStartPos);
+        long foundPos = hl.findKeyOrEmpty(addr(), pos, searchKey, slotsToProbe);
+        if (foundPos < 0L)
+            throw multiMapIsFull();
+        if (s.statisticsCounters != null) {
+            s.statisticsCounters.hashLookupProbes(
+                    (int) (slotsToProbe - hl.slotsBetween(foundPos, searchStartPos) + 1));
         }
-        throw new IllegalStateException("MultiMap is full, that most likely means you " +
-                "misconfigured entrySize/chunkSize, and entries tend to take less chunks than " +
-                "expected");
+        long entry = hl.readEntry(addr(), foundPos);
+        if (hl.empty(entry)) {
+            hlp.setHashLookupPos(foundPos);
+            return -1L;
+        }
+        long nextPos = hl.step(foundPos);
+        if (nextPos != searchStartPos) {
+            hlp.setHashLookupPos(nextPos);
+        } else {
+            hlp.setHashLookupPosAfterAllSlotsProbed(nextPos);
+        }
+        return hl.value(entry);
+    }
+
+    private static IllegalStateException multiMapIsFull() {
+        return new IllegalStateException("MultiMap is full, that most likely means you " +
+                "misconfigured entrySize/chunkSize, and entries tend to take less chunks " +
+                "than expected");
     }
 
     public void found() {
@@ -78,14 +92,32 @@ public abstract class HashLookupSearch {
         hlp.setHashLookupPos(hl().remove(addr(), hlp.hashLookupPos));
     }
 
+    /**
+     * Returns the position of the empty slot in the hash lookup, to insert the searched key at,
+     * after the key search has shown that the key is absent in the current segment tier.
+     */
+    public long insertPos() {
+        if (ks.hashLookupProbingSkipped()) {
+            CompactOffHeapLinearHashTable hl = hl();
+            long pos = hl.findKeyOrEmpty(addr(), searchStartPos, UNSET_KEY,
+                    hl.slotsBetween(searchStartPos, searchStartPos));
+            if (pos < 0L)
+                throw multiMapIsFull();
+            hlp.setHashLookupPos(pos);
+        }
+        return hlp.hashLookupPos;
+    }
+
     public void putNewVolatile(long value) {
         // correctness check + make putNewVolatile() dependant on keySearch, this, in turn,
         // is needed for hlp.hashLookupPos re-initialization after nextTier()
         assert !ks.searchStatePresent();
 
         hl().checkValueForPut(value);
-        long currentEntry = hl().readEntry(addr(), hlp.hashLookupPos);
-        hl().writeEntryVolatile(addr(), hlp.hashLookupPos, currentEntry, searchKey, value);
+        long insertPos = insertPos();
+        long currentEntry = hl().readEntry(addr(), insertPos);
+        hl().writeEntryVolatile(addr(), insertPos, currentEntry, searchKey, value);
+        s.bloomFilterAdd(h.keyHashCode());
     }
     
     public boolean checkSlotContainsExpectedKeyAndValue(long value) {
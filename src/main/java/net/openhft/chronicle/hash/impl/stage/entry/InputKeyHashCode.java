@@ -16,7 +16,7 @@
 
 package net.openhft.chronicle.hash.impl.stage.entry;
 
-import net.openhft.chronicle.algo.hashing.LongHashFunction;
+import net.openhft.chronicle.hash.impl.VanillaChronicleHashHolder;
 import net.openhft.chronicle.hash.impl.stage.query.KeySearch;
 import net.openhft.sg.StageRef;
 import net.openhft.sg.Staged;
@@ -24,12 +24,13 @@ import net.openhft.sg.Staged;
 @Staged
 public class InputKeyHashCode implements KeyHashCode {
 
+    @StageRef VanillaChronicleHashHolder<?> hh;
     @StageRef public KeySearch ks;
 
     public long keyHash = 0;
 
     void initKeyHash() {
-        keyHash = ks.inputKey.hash(LongHashFunction.city_1_1());
+        keyHash = hh.h().keyHashFunction().hash(ks.inputKey);
     }
 
     @Override
@@ -50,6 +50,9 @@ public abstract class SegmentStages implements SegmentLock, LocksInterface {
     @StageRef public VanillaChronicleHashHolder<?> hh;
     @StageRef public CheckOnEachPublicOperation checkOnEachPublicOperation;
 
+    public final HashStatistics.ContextCounters statisticsCounters =
+            hh.h().statistics != null ? hh.h().statistics.newContextCounters(this) : null;
+
     public int segmentIndex = -1;
     
     public void initSegmentIndex(int segmentIndex) {
@@ -63,7 +66,7 @@ public abstract class SegmentStages implements SegmentLock, LocksInterface {
 
     private void initSegmentHeader() {
         segmentHeaderAddress = hh.h().segmentHeaderAddress(segmentIndex);
-        segmentHeader = BigSegmentHeader.INSTANCE;
+        segmentHeader = hh.h().segmentHeader;
     }
 
     public long entries() {
@@ -591,7 +594,34 @@ public abstract class SegmentStages implements SegmentLock, LocksInterface {
         freeList.setOffset(segmentBaseAddr + freeListOffset);
 
         entrySpaceOffset = freeListOffset + h.segmentFreeListOuterSize +
-                h.segmentEntrySpaceInnerOffset;
+                h.segmentBloomFilterSize + h.segmentEntrySpaceInnerOffset;
+    }
+
+    private long bloomFilterAddr() {
+        VanillaChronicleHash<?, ?, ?, ?> h = hh.h();
+        return segmentBaseAddr + h.segmentHashLookupOuterSize + TIER_COUNTERS_AREA_SIZE +
+                h.segmentFreeListOuterSize;
+    }
+
+    /**
+     * Returns {@code false} if the key with the given hash is definitely absent in the current
+     * tier, {@code true} if it might be present, or tiers don't have Bloom filters.
+     */
+    public boolean bloomFilterMightContain(long keyHash) {
+        long size = hh.h().segmentBloomFilterSize;
+        return size == 0L || SegmentBloomFilter.mightContain(bloomFilterAddr(), size, keyHash);
+    }
+
+    public void bloomFilterAdd(long keyHash) {
+        long size = hh.h().segmentBloomFilterSize;
+        if (size != 0L)
+            SegmentBloomFilter.add(bloomFilterAddr(), size, keyHash);
+    }
+
+    public void clearBloomFilter() {
+        long size = hh.h().segmentBloomFilterSize;
+        if (size != 0L)
+            SegmentBloomFilter.clear(bloomFilterAddr(), size);
     }
 
     @Stage("Segment")
@@ -16,6 +16,8 @@
 
 package net.openhft.chronicle.hash.impl.stage.iter;
 
+import net.openhft.chronicle.algo.bytes.Access;
+import net.openhft.chronicle.hash.ChangeType;
 import net.openhft.chronicle.hash.HashEntry;
 import net.openhft.chronicle.hash.HashSegmentContext;
 import net.openhft.chronicle.hash.impl.CompactOffHeapLinearHashTable;
@@ -26,9 +28,12 @@ import net.openhft.chronicle.hash.impl.stage.hash.CheckOnEachPublicOperation;
 import net.openhft.sg.StageRef;
 import net.openhft.sg.Staged;
 
+import java.util.Arrays;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import static net.openhft.chronicle.algo.bytes.Access.nativeAccess;
+
 @Staged
 public abstract class HashSegmentIteration<K, E extends HashEntry<K>>
         implements HashEntry<K>, HashSegmentContext<K, E> {
@@ -162,6 +167,7 @@ public abstract class HashSegmentIteration<K, E extends HashEntry<K>>
         checkOnEachPublicOperation.checkOnEachPublicOperation();
         s.innerWriteLock.lock();
         try {
+            e.recordChange(ChangeType.REMOVE);
             iterationRemove();
         } finally {
             s.innerWriteLock.unlock();
@@ -178,4 +184,180 @@ public abstract class HashSegmentIteration<K, E extends HashEntry<K>>
         }
         e.innerRemoveEntryExceptHashLookupUpdate();
     }
+
+    /**
+     * Moves entries from the extra tiers of the segment into the preceding tiers, where they
+     * fit, then unlinks the emptied tiers from the end of the segment's tier chain and returns
+     * them to the free tier list. Bloom filters of the remaining tiers, if configured, are
+     * rebuilt, to forget the removed and moved keys.
+     *
+     * @return the number of tiers returned to the free tier list
+     */
+    public int compactSegmentTiers() {
+        s.innerWriteLock.lock();
+        try {
+            s.goToFirstTier();
+            if (!s.hasNextTier()) {
+                rebuildBloomFilter();
+                return 0;
+            }
+            CompactOffHeapLinearHashTable hashLookup = hh.h().hashLookup;
+            int tiers = 1;
+            long[] tierIndexes = new long[4];
+            long[] tierBaseAddrs = new long[4];
+            tierIndexes[0] = s.tierIndex;
+            tierBaseAddrs[0] = s.segmentBaseAddr;
+            while (s.hasNextTier()) {
+                s.nextTier();
+                if (tiers == tierIndexes.length) {
+                    tierIndexes = Arrays.copyOf(tierIndexes, tiers * 2);
+                    tierBaseAddrs = Arrays.copyOf(tierBaseAddrs, tiers * 2);
+                }
+                tierIndexes[tiers] = s.tierIndex;
+                tierBaseAddrs[tiers] = s.segmentBaseAddr;
+                tiers++;
+            }
+            long[] tierEntries = new long[tiers];
+            for (int tier = 0; tier < tiers; tier++) {
+                tierEntries[tier] = hashLookupEntries(tierBaseAddrs[tier]);
+            }
+            // don't make hash lookups of the preceding tiers denser than they are allowed to be
+            // when the hash is created, see CompactOffHeapLinearHashTable.capacityFor()
+            long maxTierEntries = hh.h().segmentHashLookupCapacity * 2 / 3;
+
+            for (int tier = 1; tier < tiers; tier++) {
+                long tierBaseAddr = tierBaseAddrs[tier];
+                long startPos = 0L;
+                while (!hashLookup.empty(hashLookup.readEntry(tierBaseAddr, startPos))) {
+                    startPos = hashLookup.step(startPos);
+                }
+                long hashLookupPos = hashLookup.step(startPos);
+                while (hashLookupPos != startPos) {
+                    long hashLookupEntry = hashLookup.readEntry(tierBaseAddr, hashLookupPos);
+                    if (!hashLookup.empty(hashLookupEntry) &&
+                            moveEntryToPrecedingTier(tier, hashLookupPos, hashLookupEntry,
+                                    tierIndexes, tierBaseAddrs, tierEntries, maxTierEntries)) {
+                        // shift deletion might have moved another entry into this slot
+                        continue;
+                    }
+                    hashLookupPos = hashLookup.step(hashLookupPos);
+                }
+            }
+
+            int releasedTiers = 0;
+            for (int tier = tiers - 1; tier > 0 && tierEntries[tier] == 0; tier--) {
+                s.initSegmentTier_WithBaseAddr(
+                        tier - 1, tierBaseAddrs[tier - 1], tierIndexes[tier - 1]);
+                s.nextTierIndex(0L);
+                hh.h().releaseTier(tierIndexes[tier]);
+                releasedTiers++;
+            }
+            // removed and moved keys are still in Bloom filters, rebuild them from scratch
+            for (int tier = 0; tier < tiers - releasedTiers; tier++) {
+                s.initSegmentTier_WithBaseAddr(tier, tierBaseAddrs[tier], tierIndexes[tier]);
+                rebuildBloomFilter();
+            }
+            return releasedTiers;
+        } finally {
+            s.innerReadLock.unlock();
+        }
+    }
+
+    private void rebuildBloomFilter() {
+        if (hh.h().segmentBloomFilterSize == 0L)
+            return;
+        s.clearBloomFilter();
+        CompactOffHeapLinearHashTable hashLookup = hh.h().hashLookup;
+        long tierBaseAddr = s.segmentBaseAddr;
+        long pos = 0L;
+        do {
+            long hashLookupEntry = hashLookup.readEntry(tierBaseAddr, pos);
+            if (!hashLookup.empty(hashLookupEntry)) {
+                e.readExistingEntry(hashLookup.value(hashLookupEntry));
+                s.bloomFilterAdd(hh.h().keyHashFunction().hashMemory(
+                        tierBaseAddr + e.keyOffset, e.keySize));
+            }
+            pos = hashLookup.step(pos);
+        } while (pos != 0L);
+    }
+
+    private long hashLookupEntries(long tierBaseAddr) {
+        CompactOffHeapLinearHashTable hashLookup = hh.h().hashLookup;
+        long entries = 0L;
+        long pos = 0L;
+        do {
+            if (!hashLookup.empty(hashLookup.readEntry(tierBaseAddr, pos)))
+                entries++;
+            pos = hashLookup.step(pos);
+        } while (pos != 0L);
+        return entries;
+    }
+
+    private boolean moveEntryToPrecedingTier(
+            int tier, long hashLookupPos, long hashLookupEntry,
+            long[] tierIndexes, long[] tierBaseAddrs, long[] tierEntries, long maxTierEntries) {
+        CompactOffHeapLinearHashTable hashLookup = hh.h().hashLookup;
+        long tierBaseAddr = tierBaseAddrs[tier];
+        s.initSegmentTier_WithBaseAddr(tier, tierBaseAddr, tierIndexes[tier]);
+        long pos = hashLookup.value(hashLookupEntry);
+        e.readExistingEntry(pos);
+        int chunks = e.entrySizeInChunks;
+        long entryOffset = e.keySizeOffset;
+        long chunkSize = hh.h().chunkSize;
+        for (int toTier = 0; toTier < tier; toTier++) {
+            if (tierEntries[toTier] >= maxTierEntries)
+                continue;
+            long toTierBaseAddr = tierBaseAddrs[toTier];
+            s.initSegmentTier_WithBaseAddr(toTier, toTierBaseAddr, tierIndexes[toTier]);
+            long newPos = s.allocReturnCode(chunks);
+            if (newPos < 0)
+                continue;
+            long fromAddr = tierBaseAddr + entryOffset;
+            long toAddr = toTierBaseAddr + entryOffset + (newPos - pos) * chunkSize;
+            if (!entryCouldBeCopiedAsIs(fromAddr, toAddr)) {
+                s.free(newPos, chunks);
+                continue;
+            }
+            // entry offsets within all tiers are computed the same way, so the entry is copied
+            // to the new position as is, including the checksum and replication bytes
+            Access.copy(nativeAccess(), null, fromAddr, nativeAccess(), null, toAddr,
+                    chunks * chunkSize);
+            long searchKey = hashLookup.key(hashLookupEntry);
+            long insertPos = hashLookup.hlPos(searchKey);
+            long insertPosEntry;
+            while (!hashLookup.empty(insertPosEntry =
+                    hashLookup.readEntry(toTierBaseAddr, insertPos))) {
+                insertPos = hashLookup.step(insertPos);
+            }
+            hashLookup.checkValueForPut(newPos);
+            hashLookup.writeEntryVolatile(
+                    toTierBaseAddr, insertPos, insertPosEntry, searchKey, newPos);
+            tierEntries[toTier]++;
+            entryMovedToPrecedingTier(tierIndexes[tier], pos, newPos);
+
+            s.initSegmentTier_WithBaseAddr(tier, tierBaseAddr, tierIndexes[tier]);
+            hashLookup.remove(tierBaseAddr, hashLookupPos);
+            s.free(pos, chunks);
+            tierEntries[tier]--;
+            s.incrementModCount();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the bytes of the entry could be copied from {@code fromAddr} to {@code toAddr}
+     * as is, during {@link #compactSegmentTiers()}. If not, the entry stays in its tier.
+     */
+    protected boolean entryCouldBeCopiedAsIs(long fromAddr, long toAddr) {
+        return true;
+    }
+
+    /**
+     * Called during {@link #compactSegmentTiers()}, when the segment is at the tier, to which the
+     * entry is moved.
+     */
+    protected void entryMovedToPrecedingTier(long oldTierIndex, long oldPos, long newPos) {
+        // no-op by default
+    }
 }
@@ -16,7 +16,7 @@
 
 package net.openhft.chronicle.hash.impl.stage.iter;
 
-import net.openhft.chronicle.algo.hashing.LongHashFunction;
+import net.openhft.chronicle.hash.impl.VanillaChronicleHashHolder;
 import net.openhft.chronicle.hash.impl.stage.entry.HashEntryStages;
 import net.openhft.chronicle.hash.impl.stage.entry.KeyHashCode;
 import net.openhft.chronicle.hash.impl.stage.entry.SegmentStages;
@@ -26,6 +26,7 @@ import net.openhft.sg.Staged;
 @Staged
 public class IterationKeyHashCode implements KeyHashCode {
 
+    @StageRef VanillaChronicleHashHolder<?> hh;
     @StageRef SegmentStages s;
     @StageRef HashEntryStages<?> e;
 
@@ -34,7 +35,7 @@ public class IterationKeyHashCode implements KeyHashCode {
     void initKeyHash() {
         long addr = s.segmentBaseAddr + e.keyOffset;
         long len = e.keySize;
-        keyHash = LongHashFunction.city_1_1().hashMemory(addr, len);
+        keyHash = hh.h().keyHashFunction().hashMemory(addr, len);
     }
 
     @Override
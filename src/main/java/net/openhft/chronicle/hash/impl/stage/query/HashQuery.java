@@ -16,6 +16,7 @@
 
 package net.openhft.chronicle.hash.impl.stage.query;
 
+import net.openhft.chronicle.hash.ChangeType;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.HashEntry;
 import net.openhft.chronicle.hash.impl.VanillaChronicleHashHolder;
@@ -95,6 +96,8 @@ public abstract class HashQuery<K> implements HashEntry<K> {
         } else {
             entryPresence = EntryPresence.ABSENT;
         }
+        if (s.statisticsCounters != null)
+            s.statisticsCounters.lookup(entryPresence == EntryPresence.PRESENT);
     }
 
     public void initPresenceOfEntry(EntryPresence entryPresence) {
@@ -136,6 +139,7 @@ public abstract class HashQuery<K> implements HashEntry<K> {
         if (ks.searchStatePresent()) {
             // TODO optimize: if shift-deletion is trivial, updateLock.lock()
             s.innerWriteLock.lock();
+            entry.recordChange(ChangeType.REMOVE);
             hashLookupSearch.remove();
             entry.innerRemoveEntryExceptHashLookupUpdate();
             ks.setSearchState(DELETED);
@@ -20,6 +20,7 @@ import net.openhft.chronicle.bytes.BytesUtil;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.impl.stage.entry.HashEntryStages;
 import net.openhft.chronicle.hash.impl.stage.entry.HashLookupSearch;
+import net.openhft.chronicle.hash.impl.stage.entry.KeyHashCode;
 import net.openhft.chronicle.hash.impl.stage.entry.SegmentStages;
 import net.openhft.sg.Stage;
 import net.openhft.sg.StageRef;
@@ -34,6 +35,7 @@ public abstract class KeySearch<K> {
     @StageRef public SegmentStages s;
     @StageRef public HashLookupSearch hashLookupSearch;
     @StageRef public HashEntryStages<K> entry;
+    @StageRef KeyHashCode h;
 
     public Data<K> inputKey = null;
 
@@ -50,6 +52,11 @@ public abstract class KeySearch<K> {
     }
 
     @Stage("KeySearch") protected SearchState searchState = null;
+    /**
+     * {@code true} if the Bloom filter of the segment tier has shown that the key is absent,
+     * hence {@code hlp.hashLookupPos} is not located on the empty slot in the hash lookup
+     */
+    @Stage("KeySearch") boolean hashLookupProbingSkipped = false;
 
     abstract boolean keySearchInit();
 
@@ -59,6 +66,14 @@ public abstract class KeySearch<K> {
     }
 
     public void initKeySearch() {
+        if (s.statisticsCounters != null)
+            s.statisticsCounters.keySearch();
+        hashLookupProbingSkipped = false;
+        if (inputKeyInit() && !s.bloomFilterMightContain(h.keyHashCode())) {
+            hashLookupProbingSkipped = true;
+            searchState = SearchState.ABSENT;
+            return;
+        }
         for (long pos; (pos = hashLookupSearch.nextPos()) >= 0L;) {
             // otherwise we are inside iteration relocation.
             // During iteration, key search occurs when doReplaceValue() exhausts space in
@@ -76,6 +91,10 @@ public abstract class KeySearch<K> {
         searchState = SearchState.ABSENT;
     }
 
+    public boolean hashLookupProbingSkipped() {
+        return hashLookupProbingSkipped;
+    }
+
     boolean keyEquals() {
         return inputKey.size() == entry.keySize &&
                 BytesUtil.bytesEqual(s.segmentBS, entry.keyOffset,
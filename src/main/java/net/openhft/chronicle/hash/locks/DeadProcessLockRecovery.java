@@ -0,0 +1,50 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.locks;
+
+import net.openhft.chronicle.hash.ChecksumEntry;
+import net.openhft.chronicle.hash.ChronicleHashBuilder;
+
+/**
+ * What to do, when acquisition of a segment lock times out, because the lock is exclusively
+ * (update or write) held by a process which is not alive anymore. Processes record their id along
+ * with the thread id when acquire exclusive segment locks. Liveness of the holder process is
+ * checked via {@code /proc}, so recovery works only on Linux.
+ *
+ * @see ChronicleHashBuilder#deadProcessLockRecovery(DeadProcessLockRecovery)
+ */
+public enum DeadProcessLockRecovery {
+
+    /**
+     * Don't recover, lock acquisition fails with {@code RuntimeException}.
+     */
+    NONE,
+
+    /**
+     * Release the lock of the dead process, and retry acquisition. The segment might be left in
+     * an inconsistent state, if the process died in the middle of an update.
+     */
+    RELEASE,
+
+    /**
+     * Release the lock of the dead process, then verify {@linkplain ChecksumEntry#checkSum()
+     * checksums} of all entries in the segment and log entries with wrong checksums, then retry
+     * acquisition. Checksums are verified only if {@linkplain
+     * ChronicleHashBuilder#checksumEntries(boolean) entry checksums} are stored.
+     */
+    RELEASE_AND_VERIFY_CHECKSUMS
+}
@@ -0,0 +1,52 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.locks;
+
+import net.openhft.chronicle.hash.ChronicleHashBuilder;
+
+/**
+ * Strategy of waiting between failed attempts to acquire an inter-process segment lock of a
+ * {@code ChronicleHash}. The overall lock acquisition timeout, after which {@link
+ * InterProcessLock#lock()} throws {@code RuntimeException}, is checked between attempts, so a
+ * single {@link #waitBeforeRetry(int)} call shouldn't block for more than a millisecond or so.
+ *
+ * <p>Implementations must be thread-safe, a single strategy instance is used by all threads,
+ * accessing a {@code ChronicleHash}.
+ *
+ * @see ChronicleHashBuilder#lockWaitStrategy(LockWaitStrategy)
+ * @see SpinYieldParkLockWaitStrategy
+ */
+@FunctionalInterface
+public interface LockWaitStrategy {
+
+    /**
+     * Returns the strategy which retries lock acquisition immediately, i. e. busy-spins on the
+     * lock word. This is the default strategy, it provides the best latency when there are fewer
+     * threads, contending for segment locks, than CPUs, but burns CPU while waiting.
+     */
+    static LockWaitStrategy busySpin() {
+        return BusySpinLockWaitStrategy.INSTANCE;
+    }
+
+    /**
+     * Is called after a failed attempt to acquire a lock, before the next attempt.
+     *
+     * @param failedAttempts the number of failed attempts to acquire the lock so far, starting
+     *                       from 1 for each lock acquisition
+     */
+    void waitBeforeRetry(int failedAttempts);
+}
@@ -0,0 +1,166 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.locks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link LockWaitStrategy} which spins for a number of attempts, then yields for a number of
+ * attempts, then parks the waiting thread for exponentially growing periods of time. This avoids
+ * burning whole CPUs and starving lock holders, when there are more threads contending for
+ * segment locks, than CPUs.
+ *
+ * <p>Counts how many lock acquisitions reached each phase of waiting, the counters are cheap
+ * enough to be always on: {@link #spinPhaseCount()}, {@link #yieldPhaseCount()}, {@link
+ * #parkPhaseCount()}.
+ */
+public final class SpinYieldParkLockWaitStrategy implements LockWaitStrategy {
+
+    private static final MethodHandle ON_SPIN_WAIT = onSpinWaitHandle();
+
+    /**
+     * {@code Thread.onSpinWait()} is available since Java 9.
+     */
+    private static MethodHandle onSpinWaitHandle() {
+        try {
+            return MethodHandles.lookup().findStatic(
+                    Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static void onSpinWait() {
+        if (ON_SPIN_WAIT != null) {
+            try {
+                ON_SPIN_WAIT.invokeExact();
+            } catch (Throwable t) {
+                throw new AssertionError(t);
+            }
+        }
+    }
+
+    private final int spins;
+    private final int yields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+    private final int maxParkShift;
+
+    private final LongAdder spinPhaseCount = new LongAdder();
+    private final LongAdder yieldPhaseCount = new LongAdder();
+    private final LongAdder parkPhaseCount = new LongAdder();
+
+    /**
+     * Creates a strategy with 256 spins, 16 yields and parking from 1 microsecond to 1 millisecond.
+     */
+    public SpinYieldParkLockWaitStrategy() {
+        this(256, 16, 1, TimeUnit.MICROSECONDS.toNanos(1000));
+    }
+
+    /**
+     * Creates a strategy with the given number of spins and yields, then parking for periods
+     * doubling from {@code minParkNanos} up to {@code maxParkNanos}.
+     *
+     * @param spins        the number of failed attempts to spin after
+     * @param yields       the number of failed attempts to yield after, following spins
+     * @param minParkNanos the period to park for after the first failed attempt, following yields
+     * @param maxParkNanos the maximum period to park for
+     * @throws IllegalArgumentException if {@code spins} or {@code yields} is negative, or
+     * {@code minParkNanos} is not positive, or {@code maxParkNanos} is less than
+     * {@code minParkNanos}
+     */
+    public SpinYieldParkLockWaitStrategy(
+            int spins, int yields, long minParkNanos, long maxParkNanos) {
+        if (spins < 0)
+            throw new IllegalArgumentException("spins should be non-negative, " + spins + " given");
+        if (yields < 0)
+            throw new IllegalArgumentException("yields should be non-negative, " + yields + " given");
+        if (minParkNanos <= 0) {
+            throw new IllegalArgumentException("minParkNanos should be positive, " +
+                    minParkNanos + " given");
+        }
+        if (maxParkNanos < minParkNanos) {
+            throw new IllegalArgumentException("maxParkNanos should be >= minParkNanos, " +
+                    maxParkNanos + " and " + minParkNanos + " given");
+        }
+        this.spins = spins;
+        this.yields = yields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+        maxParkShift = Long.numberOfLeadingZeros(minParkNanos) - 1;
+    }
+
+    @Override
+    public void waitBeforeRetry(int failedAttempts) {
+        if (failedAttempts <= spins) {
+            if (failedAttempts == 1)
+                spinPhaseCount.increment();
+            onSpinWait();
+            return;
+        }
+        int yieldAttempt = failedAttempts - spins;
+        if (yieldAttempt <= yields) {
+            if (yieldAttempt == 1)
+                yieldPhaseCount.increment();
+            Thread.yield();
+            return;
+        }
+        int parkAttempt = yieldAttempt - yields;
+        if (parkAttempt == 1)
+            parkPhaseCount.increment();
+        int shift = Math.min(parkAttempt - 1, maxParkShift);
+        LockSupport.parkNanos(Math.min(minParkNanos << shift, maxParkNanos));
+    }
+
+    /**
+     * Returns the number of lock acquisitions, which failed the first attempt and started to spin.
+     */
+    public long spinPhaseCount() {
+        return spinPhaseCount.sum();
+    }
+
+    /**
+     * Returns the number of lock acquisitions, which failed all spinning attempts and started
+     * to yield.
+     */
+    public long yieldPhaseCount() {
+        return yieldPhaseCount.sum();
+    }
+
+    /**
+     * Returns the number of lock acquisitions, which failed all spinning and yielding attempts and
+     * started to park.
+     */
+    public long parkPhaseCount() {
+        return parkPhaseCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SpinYieldParkLockWaitStrategy{" +
+                "spins=" + spins +
+                ", yields=" + yields +
+                ", minParkNanos=" + minParkNanos +
+                ", maxParkNanos=" + maxParkNanos +
+                '}';
+    }
+}
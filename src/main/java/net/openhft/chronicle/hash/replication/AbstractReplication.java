@@ -37,6 +37,7 @@ public abstract class AbstractReplication implements Serializable {
     private final transient RemoteNodeValidator remoteNodeValidator;
 
     private final boolean bootstrapOnlyLocalEntries;
+    private final boolean deltaReplication;
     private final String name;
 
     @Nullable
@@ -49,6 +50,7 @@ public abstract class AbstractReplication implements Serializable {
         udpConfig = builder.udpConfig;
         remoteNodeValidator = builder.remoteNodeValidator;
         bootstrapOnlyLocalEntries = builder.bootstrapOnlyLocalEntries;
+        deltaReplication = builder.deltaReplication;
         name = builder.name;
         connectionListener = builder.connectionListener;
     }
@@ -60,6 +62,7 @@ public abstract class AbstractReplication implements Serializable {
                 ", udpConfig=" + udpConfig +
                 ", remoteNodeValidator=" + remoteNodeValidator +
                 ", bootstrapOnlyLocalEntries=" + bootstrapOnlyLocalEntries +
+                ", deltaReplication=" + deltaReplication +
                 ", name=" + name;
     }
 
@@ -85,6 +88,10 @@ public abstract class AbstractReplication implements Serializable {
     public boolean bootstrapOnlyLocalEntries() {
         return bootstrapOnlyLocalEntries;
     }
+
+    public boolean deltaReplication() {
+        return deltaReplication;
+    }
     
     public String name() {
         return name;
@@ -111,6 +118,7 @@ public abstract class AbstractReplication implements Serializable {
         private ConnectionListener connectionListener = null;
 
         private boolean bootstrapOnlyLocalEntries = false;
+        private boolean deltaReplication = false;
         private String name = "(unknown)";
 
         // package-private to forbid subclassing from outside of the package
@@ -172,6 +180,32 @@ public abstract class AbstractReplication implements Serializable {
             return (B) this;
         }
 
+        /**
+         * Configures if values, updated via {@link
+         * net.openhft.chronicle.map.ChronicleMap#acquireContext(Object, Object) acquireContext()}
+         * on the node, provided with replication, created by this builder, should be replicated
+         * as the changed range of bytes within the value, rather than the whole value. This
+         * considerably reduces the replication traffic, when large values (e. g. off-heap value
+         * interfaces) are updated field by field.
+         *
+         * <p>A range is sent only if the remote node is known to hold the previous version of the
+         * entry, otherwise (after bootstrap, on conflicting updates, or when the value is updated
+         * by any other method) the whole value is sent, as usual. All nodes of the replication
+         * network should be configured with the same setting.
+         *
+         * <p>Default configuration is {@code false}. Delta replication couldn't be used together
+         * with {@linkplain #udpTransport(UdpTransportConfig) UDP transport}, because it relies on
+         * in-order delivery of replication events.
+         *
+         * @param deltaReplication if only the changed ranges of values should be replicated
+         * @return this builder back
+         */
+        @NotNull
+        public B deltaReplication(boolean deltaReplication) {
+            this.deltaReplication = deltaReplication;
+            return (B) this;
+        }
+
         /**
          * Configures replication "name", which could appear in log messages and replication
          * thread names. Default is {@code "(unknown)"}.
@@ -193,7 +227,8 @@ public abstract class AbstractReplication implements Serializable {
          * @throws IllegalStateException if neither {@link #tcpTransportAndNetwork(
          *         TcpTransportAndNetworkConfig)} nor {@link #udpTransport(UdpTransportConfig)} are
          *         configured to non-{@code null}. At least one of the transport-level configs
-         *         should be specified.
+         *         should be specified, or if {@link #deltaReplication(boolean)} is configured
+         *         together with UDP transport
          */
         @NotNull
         public abstract R createWithId(byte identifier);
@@ -202,6 +237,9 @@ public abstract class AbstractReplication implements Serializable {
             if (identifier <= 0)
                 throw new IllegalArgumentException("Identifier must be positive, " + identifier +
                         " given");
+            if (deltaReplication && udpConfig != null)
+                throw new IllegalStateException("Delta replication couldn't be used with " +
+                        "UDP transport");
         }
     }
 }
@@ -25,6 +25,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.Collections.unmodifiableSet;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 public final class TcpTransportAndNetworkConfig implements Serializable {
@@ -32,6 +33,7 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
     private static final int DEFAULT_TCP_BUFFER_SIZE = 1024 * 64;
     private static final long DEFAULT_HEART_BEAT_INTERVAL = 20;
     private static final TimeUnit DEFAULT_HEART_BEAT_INTERVAL_UNIT = SECONDS;
+    private static final int DEFAULT_BATCH_MIN_BYTES = DEFAULT_TCP_BUFFER_SIZE;
 
     private final int serverPort;
     private final Set<InetSocketAddress> endpoints;
@@ -40,12 +42,19 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
     private final ThrottlingConfig throttlingConfig;
     private final long heartBeatInterval;
     private final TimeUnit heartBeatIntervalUnit;
+    private final boolean compression;
+    private final int eventLoopThreads;
+    private final long batchLingerMicros;
+    private final int batchMinBytes;
+    private final int batchMaxEntries;
 
     private TcpTransportAndNetworkConfig(int serverPort, Set<InetSocketAddress> endpoints,
                                          int tcpBufferSize,
                                          boolean autoReconnectedUponDroppedConnection,
                                          ThrottlingConfig throttlingConfig, long heartBeatInterval,
-                                         TimeUnit heartBeatIntervalUnit) {
+                                         TimeUnit heartBeatIntervalUnit, boolean compression,
+                                         int eventLoopThreads, long batchLingerMicros,
+                                         int batchMinBytes, int batchMaxEntries) {
         this.serverPort = serverPort;
         this.endpoints = endpoints;
         this.tcpBufferSize = tcpBufferSize;
@@ -53,6 +62,11 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
         this.throttlingConfig = throttlingConfig;
         this.heartBeatInterval = heartBeatInterval;
         this.heartBeatIntervalUnit = heartBeatIntervalUnit;
+        this.compression = compression;
+        this.eventLoopThreads = eventLoopThreads;
+        this.batchLingerMicros = batchLingerMicros;
+        this.batchMinBytes = batchMinBytes;
+        this.batchMaxEntries = batchMaxEntries;
     }
 
     public static TcpTransportAndNetworkConfig of(int serverPort,
@@ -77,7 +91,12 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
                 true, // autoReconnectedUponDroppedConnection
                 ThrottlingConfig.noThrottling(),
                 DEFAULT_HEART_BEAT_INTERVAL,
-                DEFAULT_HEART_BEAT_INTERVAL_UNIT);
+                DEFAULT_HEART_BEAT_INTERVAL_UNIT,
+                false, // compression
+                1, // eventLoopThreads
+                0L, // batchLingerMicros
+                DEFAULT_BATCH_MIN_BYTES,
+                Integer.MAX_VALUE); // batchMaxEntries
     }
 
     public boolean autoReconnectedUponDroppedConnection() {
@@ -88,7 +107,8 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
             boolean autoReconnectedUponDroppedConnection) {
         return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
                 autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
-                heartBeatIntervalUnit);
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
     }
 
     public ThrottlingConfig throttlingConfig() {
@@ -99,7 +119,8 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
         ThrottlingConfig.checkMillisecondBucketInterval(throttlingConfig, "TCP");
         return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
                 autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
-                heartBeatIntervalUnit);
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
     }
 
     public long heartBeatInterval(TimeUnit unit) {
@@ -113,7 +134,8 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
     public TcpTransportAndNetworkConfig serverPort(int serverPort) {
         return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
                 autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
-                heartBeatIntervalUnit);
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
     }
 
     public Set<InetSocketAddress> endpoints() {
@@ -128,7 +150,8 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
         }
         return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
                 autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
-                heartBeatIntervalUnit);
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
     }
 
     public int tcpBufferSize() {
@@ -140,14 +163,158 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
             throw new IllegalArgumentException();
         return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
                 autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
-                heartBeatIntervalUnit);
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
     }
 
     public TcpTransportAndNetworkConfig heartBeatInterval(long heartBeatInterval,
                                                           TimeUnit heartBeatIntervalUnit) {
         return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
                 autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
-                heartBeatIntervalUnit);
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
+    }
+
+    public boolean compression() {
+        return compression;
+    }
+
+    /**
+     * Configures whether batches of replicated entries, sent over TCP, should be compressed with
+     * Deflate. Compression is negotiated during the connection handshake: batches are compressed
+     * only if both nodes enable it, so nodes with and without compression support (including nodes
+     * running older versions of Chronicle Map) still interoperate. Batches that don't shrink are
+     * sent uncompressed.
+     *
+     * <p>Compression trades the CPU time of the replication thread for network bandwidth, it is
+     * worth enabling when values are redundant (e. g. text) and the link is slow. By default
+     * compression is disabled.
+     *
+     * @param compression {@code true} if entry batches should be compressed
+     * @return a new config with the specified compression setting
+     */
+    public TcpTransportAndNetworkConfig compression(boolean compression) {
+        return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
+                autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
+    }
+
+    public int eventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    /**
+     * Configures the number of threads, each running it's own selector, to serve TCP replication
+     * connections. The first thread binds the server port and distributes accepted connections
+     * across all threads in round-robin order, connections to the {@linkplain #endpoints()
+     * endpoints} are distributed across the threads as well. A connection is served by the same
+     * thread until it is closed. If a remote node is already connected via one thread, another
+     * connection from the same remote node, assigned to a different thread, is dropped.
+     *
+     * <p>A single thread (the default) is usually enough. More threads help when a node
+     * replicates with many remote nodes at high write rates, or when bootstrapping of a slow
+     * remote node shouldn't delay replication with other nodes. Note that {@linkplain
+     * #throttlingConfig() throttling} is applied to each thread separately.
+     *
+     * @param eventLoopThreads the number of replication threads
+     * @return a new config with the specified number of replication threads
+     * @throws IllegalArgumentException if the specified number is less than 1
+     */
+    public TcpTransportAndNetworkConfig eventLoopThreads(int eventLoopThreads) {
+        if (eventLoopThreads < 1) {
+            throw new IllegalArgumentException("eventLoopThreads should be positive, " +
+                    eventLoopThreads + " given");
+        }
+        return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
+                autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
+    }
+
+    public long batchLinger(TimeUnit unit) {
+        return unit.convert(batchLingerMicros, MICROSECONDS);
+    }
+
+    /**
+     * Configures how long replicated entries could be held back, to be sent to a remote node in
+     * a single batch with the following entries. While an incomplete batch lingers, the entries
+     * changed repeatedly are sent once, and bursts of small updates are coalesced into a few
+     * large TCP writes, rather than many tiny ones. A batch is sent as soon as the linger time
+     * since the first held back entry elapses, or the batch reaches {@linkplain
+     * #batchMinBytes(int) the minimum size} or {@linkplain #batchMaxEntries(int) the maximum
+     * number of entries}, whichever comes first.
+     *
+     * <p>By default the linger time is zero, i. e. entries are sent as soon as they are changed,
+     * for the lowest replication latency. A linger time of a few hundred microseconds is usually
+     * enough to increase throughput of write-heavy replicated maps considerably.
+     *
+     * @param lingerTime the maximum time entries could be held back, zero to disable batching
+     * @param unit the time unit of the {@code lingerTime}, it is truncated to microseconds
+     * @return a new config with the specified linger time
+     * @throws IllegalArgumentException if the specified linger time is negative
+     */
+    public TcpTransportAndNetworkConfig batchLinger(long lingerTime, TimeUnit unit) {
+        if (lingerTime < 0) {
+            throw new IllegalArgumentException("batch linger time shouldn't be negative, " +
+                    lingerTime + " given");
+        }
+        long batchLingerMicros = unit.toMicros(lingerTime);
+        return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
+                autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
+    }
+
+    public int batchMinBytes() {
+        return batchMinBytes;
+    }
+
+    /**
+     * Configures the size of the batch of replicated entries, in bytes, which is sent without
+     * waiting for the {@linkplain #batchLinger(long, TimeUnit) linger time} to elapse. Has no
+     * effect if the linger time is zero. Default is the default {@linkplain #tcpBufferSize(int)
+     * TCP buffer size}, 64 KB.
+     *
+     * @param batchMinBytes the size of the batch to be sent immediately
+     * @return a new config with the specified minimum batch size
+     * @throws IllegalArgumentException if the specified size is not positive
+     */
+    public TcpTransportAndNetworkConfig batchMinBytes(int batchMinBytes) {
+        if (batchMinBytes <= 0) {
+            throw new IllegalArgumentException("batchMinBytes should be positive, " +
+                    batchMinBytes + " given");
+        }
+        return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
+                autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
+    }
+
+    public int batchMaxEntries() {
+        return batchMaxEntries;
+    }
+
+    /**
+     * Configures the maximum number of replicated entries in a batch. A batch with this number of
+     * entries is sent without waiting for the {@linkplain #batchLinger(long, TimeUnit) linger
+     * time} to elapse, the following entries go to the next batch. By default the number of
+     * entries is not limited, batches are limited by the {@linkplain #tcpBufferSize(int) TCP
+     * buffer size} only.
+     *
+     * @param batchMaxEntries the maximum number of entries in a batch
+     * @return a new config with the specified maximum number of entries in a batch
+     * @throws IllegalArgumentException if the specified number is not positive
+     */
+    public TcpTransportAndNetworkConfig batchMaxEntries(int batchMaxEntries) {
+        if (batchMaxEntries <= 0) {
+            throw new IllegalArgumentException("batchMaxEntries should be positive, " +
+                    batchMaxEntries + " given");
+        }
+        return new TcpTransportAndNetworkConfig(serverPort, endpoints, tcpBufferSize,
+                autoReconnectedUponDroppedConnection, throttlingConfig, heartBeatInterval,
+                heartBeatIntervalUnit, compression, eventLoopThreads, batchLingerMicros,
+                batchMinBytes, batchMaxEntries);
     }
 
     @Override
@@ -165,6 +332,11 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
         if (endpoints != null ? !endpoints.equals(that.endpoints) : that.endpoints != null)
             return false;
         if (heartBeatIntervalUnit != that.heartBeatIntervalUnit) return false;
+        if (compression != that.compression) return false;
+        if (eventLoopThreads != that.eventLoopThreads) return false;
+        if (batchLingerMicros != that.batchLingerMicros) return false;
+        if (batchMinBytes != that.batchMinBytes) return false;
+        if (batchMaxEntries != that.batchMaxEntries) return false;
         if (throttlingConfig != null ? !throttlingConfig.equals(that.throttlingConfig) :
                 that.throttlingConfig != null)
             return false;
@@ -181,6 +353,11 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
         result = 31 * result + (throttlingConfig != null ? throttlingConfig.hashCode() : 0);
         result = 31 * result + (int) (heartBeatInterval ^ (heartBeatInterval >>> 32));
         result = 31 * result + (heartBeatIntervalUnit != null ? heartBeatIntervalUnit.hashCode() : 0);
+        result = 31 * result + (compression ? 1 : 0);
+        result = 31 * result + eventLoopThreads;
+        result = 31 * result + (int) (batchLingerMicros ^ (batchLingerMicros >>> 32));
+        result = 31 * result + batchMinBytes;
+        result = 31 * result + batchMaxEntries;
         return result;
     }
 
@@ -194,6 +371,11 @@ public final class TcpTransportAndNetworkConfig implements Serializable {
                 ", throttlingConfig=" + throttlingConfig +
                 ", heartBeatInterval=" + heartBeatInterval +
                 ", heartBeatIntervalUnit=" + heartBeatIntervalUnit +
+                ", compression=" + compression +
+                ", eventLoopThreads=" + eventLoopThreads +
+                ", batchLingerMicros=" + batchLingerMicros +
+                ", batchMinBytes=" + batchMinBytes +
+                ", batchMaxEntries=" + batchMaxEntries +
                 '}';
     }
 }
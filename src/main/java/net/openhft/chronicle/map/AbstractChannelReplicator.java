@@ -442,6 +442,9 @@ abstract class AbstractChannelReplicator implements Closeable {
         /** For writing entries for replication from Ch Map memory */
         private Bytes<ByteBuffer> entryIn;
 
+        // set during handshaking, if the remote node accepts value deltas
+        boolean acceptsDeltas;
+
         EntryCallback(@NotNull final Replica.EntryExternalizable externalizable,
                       final int tcpBufferSize) {
             this.externalizable = externalizable;
@@ -458,6 +461,11 @@ abstract class AbstractChannelReplicator implements Closeable {
             return entryIn.underlyingObject();
         }
 
+        @Override
+        public boolean acceptsDeltas() {
+            return acceptsDeltas;
+        }
+
         @Override
         public boolean shouldBeIgnored(final ReplicableEntry entry, final int chronicleId) {
             return !externalizable.identifierCheck(entry, chronicleId);
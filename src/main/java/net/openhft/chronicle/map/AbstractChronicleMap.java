@@ -27,6 +27,7 @@ import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import static java.util.Collections.emptyList;
 import static net.openhft.chronicle.hash.impl.util.Objects.requireNonNull;
@@ -71,11 +72,6 @@ interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V>, Serializable {
         forEachEntry(c -> action.accept(c.key().get(), c.value().get()));
     }
 
-    @Override
-    default void putAll(Map<? extends K, ? extends V> m) {
-        m.forEach(this::put);
-    }
-
     @NotNull
     @Override
     default Collection<V> values() {
@@ -127,6 +123,11 @@ interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V>, Serializable {
             public void forEach(java.util.function.Consumer<? super V> action) {
                 AbstractChronicleMap.this.forEachEntry(c -> action.accept(c.value().get()));
             }
+
+            @Override
+            public Spliterator<V> spliterator() {
+                return ChronicleMapSpliterator.ofValues(AbstractChronicleMap.this);
+            }
         };
     }
 
@@ -161,6 +162,11 @@ interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V>, Serializable {
             public void forEach(java.util.function.Consumer<? super K> action) {
                 AbstractChronicleMap.this.forEachEntry(c -> action.accept(c.key().get()));
             }
+
+            @Override
+            public Spliterator<K> spliterator() {
+                return ChronicleMapSpliterator.ofKeys(AbstractChronicleMap.this);
+            }
         };
     }
 
@@ -240,6 +246,16 @@ interface AbstractChronicleMap<K, V> extends ChronicleMap<K, V>, Serializable {
         });
     }
 
+    @Override
+    default void forEachEntryParallel(final Consumer<? super MapEntry<K, V>> action) {
+        requireNonNull(action);
+        IntStream.range(0, segments()).parallel().forEach(i -> {
+            try (MapSegmentContext<K, V, ?> c = segmentContext(i)) {
+                c.forEachSegmentEntry(action);
+            }
+        });
+    }
+
     @Override
     default boolean forEachEntryWhile(final Predicate<? super MapEntry<K, V>> action) {
         boolean interrupt = false;
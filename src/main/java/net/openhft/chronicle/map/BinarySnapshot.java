@@ -0,0 +1,306 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.HeapBytesStore;
+import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.serialization.SizedReader;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static net.openhft.chronicle.hash.serialization.StatefulCopyable.copyIfNeeded;
+
+/**
+ * Binary snapshot of the entries of a Chronicle Map: keys and values are written in the
+ * serialized form, as they are stored in the map, without deserialization.
+ *
+ * <p>Format: magic int, version byte and flags byte, followed by frames. Each frame contains
+ * entries of a single segment (a large segment is split into several frames): raw size (int),
+ * stored size (int), CRC32 of raw bytes (int) and stored bytes, which are raw bytes, deflated if
+ * the snapshot is compressed. Raw bytes are a sequence of entries: key size (int), key bytes,
+ * value size (int), value bytes. The frame with raw size of -1 ends the snapshot.
+ */
+final class BinarySnapshot {
+
+    static final int MAGIC = 0x434D5331; // "CMS1"
+    static final byte VERSION = 1;
+    static final byte COMPRESSED = 1;
+    static final int END_OF_SNAPSHOT = -1;
+
+    /**
+     * Entries of a segment are written in several frames, if their serialized size exceeds this,
+     * to bound the memory used by each writer and loader
+     */
+    static final int MAX_FRAME_SIZE = 1 << 24;
+
+    static <K, V> void write(VanillaChronicleMap<K, V, ?> map, File toFile, boolean compressed)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(toFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(compressed ? COMPRESSED : 0);
+            try {
+                IntStream.range(0, map.segments()).parallel().forEach(segmentIndex -> {
+                    try (FrameWriter writer = new FrameWriter(out, compressed);
+                         MapSegmentContext<K, V, ?> c = map.segmentContext(segmentIndex)) {
+                        c.forEachSegmentEntry(e -> writer.add(e.key(), e.value()));
+                        writer.flush();
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeInt(END_OF_SNAPSHOT);
+        }
+    }
+
+    static <K, V> void read(VanillaChronicleMap<K, V, ?> map, File fromFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(fromFile), 1 << 16))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(fromFile + " is not a Chronicle Map binary snapshot");
+            byte version = in.readByte();
+            if (version != VERSION)
+                throw new IOException("Unsupported binary snapshot version: " + version);
+            boolean compressed = (in.readByte() & COMPRESSED) != 0;
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            // read ahead a bounded number of frames, to bound the memory usage
+            int maxFramesInFlight = pool.getParallelism() + 1;
+            ArrayDeque<Future<?>> framesInFlight = new ArrayDeque<>();
+            try {
+                while (true) {
+                    int rawSize = in.readInt();
+                    if (rawSize == END_OF_SNAPSHOT)
+                        break;
+                    int storedSize = in.readInt();
+                    int checksum = in.readInt();
+                    if (rawSize < 0 || storedSize < 0)
+                        throw new IOException("Corrupted binary snapshot " + fromFile);
+                    byte[] stored = new byte[storedSize];
+                    in.readFully(stored);
+                    if (framesInFlight.size() == maxFramesInFlight)
+                        await(framesInFlight.poll());
+                    framesInFlight.add(pool.submit(() -> {
+                        loadFrame(map, stored, rawSize, checksum, compressed);
+                        return null;
+                    }));
+                }
+                while (!framesInFlight.isEmpty()) {
+                    await(framesInFlight.poll());
+                }
+            } finally {
+                for (Future<?> frame : framesInFlight) {
+                    frame.cancel(false);
+                }
+            }
+        }
+    }
+
+    private static void await(Future<?> frame) throws IOException {
+        try {
+            frame.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private static <K, V> void loadFrame(VanillaChronicleMap<K, V, ?> map, byte[] stored,
+                                         int rawSize, int checksum, boolean compressed)
+            throws IOException {
+        byte[] raw = compressed ? inflate(stored, rawSize) : stored;
+        if (raw.length != rawSize)
+            throw new IOException("Corrupted binary snapshot frame: wrong size");
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, rawSize);
+        if ((int) crc.getValue() != checksum)
+            throw new IOException("Corrupted binary snapshot frame: checksum mismatch");
+
+        HeapBytesStore<byte[]> store = BytesStore.wrap(raw);
+        SizedReader<K> keyReader = copyIfNeeded(map.originalKeyReader);
+        SizedReader<V> valueReader = copyIfNeeded(map.originalValueReader);
+        List<Data<K>> keys = new ArrayList<>();
+        List<Data<V>> values = new ArrayList<>();
+        int pos = 0;
+        while (pos < rawSize) {
+            int keySize = readInt(raw, pos);
+            keys.add(new SerializedData<>(store, raw, pos + 4, keySize, keyReader, null));
+            pos += 4 + keySize;
+            int valueSize = readInt(raw, pos);
+            values.add(new SerializedData<>(store, raw, pos + 4, valueSize, valueReader, null));
+            pos += 4 + valueSize;
+        }
+        if (pos != rawSize)
+            throw new IOException("Corrupted binary snapshot frame: wrong entry sizes");
+        map.putAllData(keys, values);
+    }
+
+    private static byte[] inflate(byte[] stored, int rawSize) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawSize];
+            int inflated = 0;
+            while (inflated < rawSize) {
+                int n = inflater.inflate(raw, inflated, rawSize - inflated);
+                if (n == 0 && (inflater.finished() || inflater.needsInput()))
+                    break;
+                inflated += n;
+            }
+            if (inflated != rawSize || !inflater.finished())
+                throw new IOException("Corrupted binary snapshot frame: wrong size");
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted binary snapshot frame", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int readInt(byte[] b, int pos) throws IOException {
+        if (pos + 4 > b.length)
+            throw new IOException("Corrupted binary snapshot frame: wrong entry sizes");
+        return ((b[pos] & 0xFF) << 24) | ((b[pos + 1] & 0xFF) << 16) |
+                ((b[pos + 2] & 0xFF) << 8) | (b[pos + 3] & 0xFF);
+    }
+
+    private static void writeInt(byte[] b, int pos, int v) {
+        b[pos] = (byte) (v >>> 24);
+        b[pos + 1] = (byte) (v >>> 16);
+        b[pos + 2] = (byte) (v >>> 8);
+        b[pos + 3] = (byte) v;
+    }
+
+    /**
+     * Accumulates serialized entries of a segment and writes them as frames. Not thread-safe, but
+     * frames from different writers could be written to the same stream concurrently.
+     */
+    private static final class FrameWriter implements AutoCloseable {
+        private final DataOutputStream out;
+        private final Deflater deflater;
+        private byte[] buffer = new byte[4096];
+        private HeapBytesStore<byte[]> store = BytesStore.wrap(buffer);
+        private int size = 0;
+        private byte[] deflated;
+
+        FrameWriter(DataOutputStream out, boolean compressed) {
+            this.out = out;
+            deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+        }
+
+        void add(Data<?> key, Data<?> value) {
+            long entrySize = 8L + key.size() + value.size();
+            if (entrySize > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Entry is too large for a binary snapshot");
+            if (size > 0 && size + entrySize > MAX_FRAME_SIZE)
+                flush();
+            ensureCapacity((int) (size + entrySize));
+            size = addData(key, size);
+            size = addData(value, size);
+        }
+
+        private int addData(Data<?> data, int pos) {
+            int dataSize = (int) data.size();
+            writeInt(buffer, pos, dataSize);
+            data.writeTo(store, pos + 4);
+            return pos + 4 + dataSize;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                byte[] newBuffer = new byte[Math.max(capacity, buffer.length * 2)];
+                System.arraycopy(buffer, 0, newBuffer, 0, size);
+                buffer = newBuffer;
+                store = BytesStore.wrap(buffer);
+            }
+        }
+
+        void flush() {
+            if (size == 0)
+                return;
+            CRC32 crc = new CRC32();
+            crc.update(buffer, 0, size);
+            byte[] stored = buffer;
+            int storedSize = size;
+            if (deflater != null) {
+                storedSize = deflate();
+                stored = deflated;
+            }
+            try {
+                synchronized (out) {
+                    out.writeInt(size);
+                    out.writeInt(storedSize);
+                    out.writeInt((int) crc.getValue());
+                    out.write(stored, 0, storedSize);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            size = 0;
+        }
+
+        private int deflate() {
+            deflater.reset();
+            deflater.setInput(buffer, 0, size);
+            deflater.finish();
+            if (deflated == null || deflated.length < size / 2)
+                deflated = new byte[Math.max(size / 2, 64)];
+            int deflatedSize = 0;
+            while (!deflater.finished()) {
+                if (deflatedSize == deflated.length) {
+                    byte[] newDeflated = new byte[deflated.length * 2];
+                    System.arraycopy(deflated, 0, newDeflated, 0, deflatedSize);
+                    deflated = newDeflated;
+                }
+                deflatedSize += deflater.deflate(
+                        deflated, deflatedSize, deflated.length - deflatedSize);
+            }
+            return deflatedSize;
+        }
+
+        @Override
+        public void close() {
+            if (deflater != null)
+                deflater.end();
+        }
+    }
+
+    private BinarySnapshot() {
+    }
+}
@@ -63,7 +63,7 @@ public final class ChannelProvider implements Closeable {
 
         if (tcpConfig != null) {
 
-            final TcpReplicator tcpReplicator = new TcpReplicator(
+            final Closeable tcpReplicator = TcpReplicator.startEventLoops(
                     channelProvider.asReplica,
                     channelProvider.asEntryExternalizable,
                     tcpConfig, hub.remoteNodeValidator(), hub.name(),
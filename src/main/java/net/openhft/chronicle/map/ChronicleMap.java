@@ -27,8 +27,10 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 
 /**
  * Extension of {@link ConcurrentMap} interface, stores the data off-heap.
@@ -167,6 +169,37 @@ public interface ChronicleMap<K, V> extends ConcurrentMap<K, V>,
      */
     <R> R getMapped(K key, @NotNull SerializableFunction<? super V, R> function);
 
+    /**
+     * Looks up all the given keys and passes each of them, along with the value to which it is
+     * mapped, or {@code null} if this map contains no mapping for the key, to the given action.
+     *
+     * <p>Unlike calling {@link #get(Object)} for each key, this method hashes all keys up front,
+     * groups them by segments and acquires each segment's read lock only once for all the keys
+     * falling into the segment. The action is called after all lookups are done, outside of any
+     * segment lock, in the iteration order of the given collection.
+     *
+     * <p>Lookups in different segments are not atomic with respect to each other.
+     *
+     * @param keys   the keys whose associated values are to be returned
+     * @param action the action to be performed for each key and the value it is mapped to
+     * @see #putAll(Map)
+     */
+    void getAll(Collection<? extends K> keys, BiConsumer<? super K, ? super V> action);
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * <p>Unlike calling {@link #put(Object, Object)} for each entry, this method hashes all keys
+     * up front, groups them by segments and acquires each segment's write lock only once for all
+     * the entries falling into the segment. Puts to different segments are not atomic with
+     * respect to each other.
+     *
+     * @param m mappings to be stored in this map
+     * @see #getAll(Collection, BiConsumer)
+     */
+    @Override
+    void putAll(Map<? extends K, ? extends V> m);
+
     /**
      * Exports all the entries to a {@link File} storing them in JSON format, an attempt is
      * made where possible to use standard java serialisation and keep the data human readable, data
@@ -199,6 +232,38 @@ public interface ChronicleMap<K, V> extends ConcurrentMap<K, V>,
      */
     void putAll(File fromFile) throws IOException;
 
+    /**
+     * Exports all the entries to a {@link File} in a binary format, storing keys and values in
+     * their serialized form, without deserialization. Unlike {@link #getAll(File)}, this method
+     * is intended for large maps: segments are written in parallel, each segment under its own
+     * read lock, so the snapshot is consistent per segment, but not across segments.
+     *
+     * <p>Each segment's entries are stored in frames, checked with a CRC32 checksum on import, and
+     * optionally compressed using Deflate.
+     *
+     * <p>The snapshot could be imported only into a map with the same key and value serializers,
+     * using {@link #importSnapshot(File)}.
+     *
+     * @param toFile the file to store all the entries to
+     * @param compressed whether to compress the snapshot frames
+     * @throws IOException if it is not possible to write the snapshot to {@code toFile}
+     * @see #importSnapshot(File)
+     */
+    void exportSnapshot(File toFile, boolean compressed) throws IOException;
+
+    /**
+     * Imports all the entries from a {@link File}, created by {@link #exportSnapshot(File,
+     * boolean)}. Similarly to {@link #putAll(File)}, existing entries are overwritten. Frames of
+     * the snapshot are loaded in parallel, a write lock is held only while the entries of a single
+     * frame are inserted into a segment.
+     *
+     * @param fromFile the file created by {@link #exportSnapshot(File, boolean)}
+     * @throws IOException if it is not possible to read the {@code fromFile}, or the snapshot is
+     * corrupted
+     * @see #exportSnapshot(File, boolean)
+     */
+    void importSnapshot(File fromFile) throws IOException;
+
     /**
      * Creates an empty value instance, which can be used with the
      * following methods :
@@ -22,8 +22,11 @@ import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.hash.ChronicleHashBuilder;
 import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
 import net.openhft.chronicle.hash.ChronicleHashInstanceBuilder;
+import net.openhft.chronicle.hash.KeyHashFunction;
 import net.openhft.chronicle.hash.impl.stage.entry.ChecksumStrategy;
 import net.openhft.chronicle.hash.impl.util.math.PoissonDistribution;
+import net.openhft.chronicle.hash.locks.DeadProcessLockRecovery;
+import net.openhft.chronicle.hash.locks.LockWaitStrategy;
 import net.openhft.chronicle.hash.replication.*;
 import net.openhft.chronicle.hash.serialization.*;
 import net.openhft.chronicle.hash.serialization.impl.SerializationBuilder;
@@ -32,12 +35,15 @@ import net.openhft.chronicle.set.ChronicleSetBuilder;
 import net.openhft.chronicle.threads.NamedThreadFactory;
 import net.openhft.chronicle.values.ValueModel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -46,7 +52,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.lang.Double.isNaN;
 import static java.lang.Math.round;
-import static net.openhft.chronicle.bytes.NativeBytesStore.lazyNativeBytesStoreWithFixedCapacity;
 import static net.openhft.chronicle.core.Maths.*;
 import static net.openhft.chronicle.hash.impl.CompactOffHeapLinearHashTable.*;
 import static net.openhft.chronicle.hash.impl.util.Objects.builderEquals;
@@ -158,9 +163,21 @@ public final class ChronicleMapBuilder<K, V> implements
 
     enum ChecksumEntries {YES, NO, IF_PERSISTED}
     private ChecksumEntries checksumEntries = ChecksumEntries.IF_PERSISTED;
+    private KeyHashFunction keyHashFunction = KeyHashFunction.CITY_1_1;
+    private int bloomFilterBitsPerEntry = 0;
+    private long changeLogCapacity = 0;
+    private int changeLogMaxKeySize = 0;
+
+    private LockWaitStrategy lockWaitStrategy = LockWaitStrategy.busySpin();
+    private DeadProcessLockRecovery deadProcessLockRecovery = DeadProcessLockRecovery.NONE;
+    private boolean recordStatistics = false;
+    private File hugePagesDirectory = null;
+    private boolean preTouch = false;
+    private long syncPeriodMillis = 0;
 
     private boolean putReturnsNull = false;
     private boolean removeReturnsNull = false;
+    private boolean optimisticReads = false;
 
     // replication
     private TimeProvider timeProvider = MicrosecondPrecisionSystemTimeProvider.instance();
@@ -1037,6 +1054,37 @@ public final class ChronicleMapBuilder<K, V> implements
         return removeReturnsNull;
     }
 
+    /**
+     * Configures if {@link ChronicleMap#get(Object) get()} and {@link ChronicleMap#getUsing(
+     * Object, Object) getUsing()} calls on the maps created by this {@code ChronicleMapBuilder}
+     * should first try to read the value without acquiring the segment read lock.
+     *
+     * <p>An optimistic read copies the value bytes to a thread-local buffer and then checks that
+     * the segment has not been write-locked in the meantime, using the segment write version.
+     * If it has, or the key is not in the first tier of the segment, the read is retried under
+     * the read lock, as usual. Optimistic reads avoid CAS operations on the segment header cache
+     * line, which is shared by all threads accessing the segment, so they scale much better with
+     * many reader threads on read-mostly maps.
+     *
+     * <p>Optimistic reads are not used for value interfaces and {@code Byteable} values, which are
+     * read as references to the off-heap memory, in replicated maps and in maps with custom
+     * {@link #mapMethods(MapMethods) map methods}.
+     *
+     * <p>By default optimistic reads are not used. This configuration is not persisted, i. e.
+     * each process, accessing a persisted map, could use it's own configuration.
+     *
+     * @param optimisticReads if {@code get()} should try to read values without locking
+     * @return this builder back
+     */
+    public ChronicleMapBuilder<K, V> optimisticReads(boolean optimisticReads) {
+        this.optimisticReads = optimisticReads;
+        return this;
+    }
+
+    boolean optimisticReads() {
+        return optimisticReads;
+    }
+
     @Override
     public ChronicleMapBuilder<K, V> maxBloatFactor(double maxBloatFactor) {
         if (isNaN(maxBloatFactor) || maxBloatFactor < 1.0 || maxBloatFactor > 1_000.0) {
@@ -1092,7 +1140,18 @@ public final class ChronicleMapBuilder<K, V> implements
                 ", entries=" + entries() +
                 ", putReturnsNull=" + putReturnsNull() +
                 ", removeReturnsNull=" + removeReturnsNull() +
+                ", optimisticReads=" + optimisticReads() +
                 ", timeProvider=" + timeProvider() +
+                ", keyHashFunction=" + keyHashFunction() +
+                ", bloomFilterBitsPerEntry=" + bloomFilterBitsPerEntry() +
+                ", changeLogCapacity=" + changeLogCapacity() +
+                ", changeLogMaxKeySize=" + changeLogMaxKeySize() +
+                ", lockWaitStrategy=" + lockWaitStrategy() +
+                ", deadProcessLockRecovery=" + deadProcessLockRecovery() +
+                ", recordStatistics=" + recordStatistics() +
+                ", hugePagesDirectory=" + hugePagesDirectory() +
+                ", preTouch=" + preTouch() +
+                ", syncPeriodMillis=" + syncPeriodMillis() +
                 ", keyBuilder=" + keyBuilder +
                 ", valueBuilder=" + valueBuilder +
                 '}';
@@ -1205,6 +1264,115 @@ public final class ChronicleMapBuilder<K, V> implements
         return aligned64BitMemoryOperationsAtomic;
     }
 
+    @Override
+    public ChronicleMapBuilder<K, V> keyHashFunction(@NotNull KeyHashFunction keyHashFunction) {
+        this.keyHashFunction = Objects.requireNonNull(keyHashFunction);
+        return this;
+    }
+
+    KeyHashFunction keyHashFunction() {
+        return keyHashFunction;
+    }
+
+    @Override
+    public ChronicleMapBuilder<K, V> bloomFilterBitsPerEntry(int bitsPerEntry) {
+        if (bitsPerEntry < 0 || bitsPerEntry > 64) {
+            throw new IllegalArgumentException("Bloom filter bits per entry should be " +
+                    "from 0 to 64, " + bitsPerEntry + " given");
+        }
+        this.bloomFilterBitsPerEntry = bitsPerEntry;
+        return this;
+    }
+
+    int bloomFilterBitsPerEntry() {
+        return bloomFilterBitsPerEntry;
+    }
+
+    @Override
+    public ChronicleMapBuilder<K, V> changeLog(long capacity, int maxKeySize) {
+        if (capacity < 0L || maxKeySize < 0) {
+            throw new IllegalArgumentException("Change log capacity and max key size should be " +
+                    "non-negative, capacity=" + capacity + ", maxKeySize=" + maxKeySize + " given");
+        }
+        this.changeLogCapacity = capacity > 0L ? nextPower2(capacity, 1L) : 0L;
+        this.changeLogMaxKeySize = maxKeySize;
+        return this;
+    }
+
+    long changeLogCapacity() {
+        return changeLogCapacity;
+    }
+
+    int changeLogMaxKeySize() {
+        return changeLogMaxKeySize;
+    }
+
+    @Override
+    public ChronicleMapBuilder<K, V> lockWaitStrategy(@NotNull LockWaitStrategy lockWaitStrategy) {
+        this.lockWaitStrategy = Objects.requireNonNull(lockWaitStrategy);
+        return this;
+    }
+
+    LockWaitStrategy lockWaitStrategy() {
+        return lockWaitStrategy;
+    }
+
+    @Override
+    public ChronicleMapBuilder<K, V> deadProcessLockRecovery(
+            @NotNull DeadProcessLockRecovery deadProcessLockRecovery) {
+        this.deadProcessLockRecovery = Objects.requireNonNull(deadProcessLockRecovery);
+        return this;
+    }
+
+    DeadProcessLockRecovery deadProcessLockRecovery() {
+        return deadProcessLockRecovery;
+    }
+
+    @Override
+    public ChronicleMapBuilder<K, V> recordStatistics(boolean recordStatistics) {
+        this.recordStatistics = recordStatistics;
+        return this;
+    }
+
+    boolean recordStatistics() {
+        return recordStatistics;
+    }
+
+    @Override
+    public ChronicleMapBuilder<K, V> hugePagesDirectory(@Nullable File hugePagesDirectory) {
+        this.hugePagesDirectory = hugePagesDirectory;
+        return this;
+    }
+
+    File hugePagesDirectory() {
+        return hugePagesDirectory;
+    }
+
+    @Override
+    public ChronicleMapBuilder<K, V> preTouch(boolean preTouch) {
+        this.preTouch = preTouch;
+        return this;
+    }
+
+    boolean preTouch() {
+        return preTouch;
+    }
+
+    @Override
+    public ChronicleMapBuilder<K, V> syncPeriod(long syncPeriod, TimeUnit unit) {
+        long syncPeriodMillis = unit.toMillis(syncPeriod);
+        if (syncPeriod < 0 || (syncPeriod > 0 && syncPeriodMillis < 1)) {
+            throw new IllegalArgumentException("sync period should be 0 or >= 1 millisecond, " +
+                    syncPeriod + " " + unit + " is given");
+        }
+        this.syncPeriodMillis = syncPeriodMillis;
+        return this;
+    }
+
+    long syncPeriodMillis() {
+        return syncPeriodMillis;
+    }
+
     /**
      * Configures the {@code DataAccess} and {@code SizedReader} used to serialize and deserialize
      * values to and from off-heap memory in maps, created by this builder.
@@ -1341,6 +1509,57 @@ public final class ChronicleMapBuilder<K, V> implements
         return clone().createWithFile(file, singleHashReplication, null);
     }
 
+    @Override
+    public ChronicleMap<K, V> resizePersisted(File source, File target) throws IOException {
+        if (singleHashReplication != null)
+            throw new IllegalStateException("Replicated Chronicle Map couldn't be resized");
+        if (!source.exists())
+            throw new FileNotFoundException("Source file " + source + " doesn't exist");
+        File sourceFile = source.getCanonicalFile();
+        File targetFile = target.getCanonicalFile();
+        boolean inPlace = sourceFile.equals(targetFile);
+        if (!inPlace && targetFile.length() > 0)
+            throw new IOException("Target file " + target + " already exists");
+        try (ChronicleMap<K, V> sourceMap = clone().createWithFile(sourceFile, null, null)) {
+            if (sourceMap instanceof ReplicatedChronicleMap)
+                throw new IllegalStateException("Replicated Chronicle Map couldn't be resized");
+            File copyFile = inPlace ?
+                    File.createTempFile(targetFile.getName(), ".resize",
+                            targetFile.getParentFile()) :
+                    targetFile;
+            boolean copied = false;
+            try {
+                try (ChronicleMap<K, V> copy = clone().createWithFile(copyFile, null, null)) {
+                    copyEntries(sourceMap, copy);
+                }
+                if (inPlace) {
+                    Files.move(copyFile.toPath(), targetFile.toPath(),
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+                copied = true;
+            } finally {
+                if (!copied)
+                    copyFile.delete();
+            }
+        }
+        return clone().createWithFile(targetFile, null, null);
+    }
+
+    private static <K, V> void copyEntries(ChronicleMap<K, V> source, ChronicleMap<K, V> target) {
+        // copy Data, to avoid deserialization of keys and values
+        source.forEachEntryParallel(e -> {
+            try (ExternalMapQueryContext<K, V, ?> q = target.queryContext(e.key())) {
+                q.updateLock().lock();
+                MapAbsentEntry<K, V> absentEntry = q.absentEntry();
+                if (absentEntry == null) {
+                    throw new IllegalStateException(
+                            "Key " + e.key() + " is copied from the source map twice");
+                }
+                absentEntry.doInsert(e.value());
+            }
+        });
+    }
+
     @Override
     public ChronicleMap<K, V> create() {
         // clone() to make this builder instance thread-safe, because createWithoutFile() method
@@ -1370,17 +1589,23 @@ public final class ChronicleMapBuilder<K, V> implements
                      ObjectInputStream ois = new ObjectInputStream(fis)) {
                     Object m;
                     byte serialization = ois.readByte();
-                    if (serialization == XML_SERIALIZATION) {
-                        m = deserializeHeaderViaXStream(ois);
-                    } else if (serialization == BINARY_SERIALIZATION) {
-                        try {
-                            m = ois.readObject();
-                        } catch (ClassNotFoundException e) {
-                            throw new AssertionError(e);
+                    try {
+                        if (serialization == XML_SERIALIZATION) {
+                            m = deserializeHeaderViaXStream(ois);
+                        } else if (serialization == BINARY_SERIALIZATION) {
+                            try {
+                                m = ois.readObject();
+                            } catch (ClassNotFoundException e) {
+                                throw new AssertionError(e);
+                            }
+                        } else {
+                            throw new IOException("Unknown map header serialization type: " +
+                                    serialization);
                         }
-                    } else {
-                        throw new IOException("Unknown map header serialization type: " +
-                                serialization);
+                    } catch (InvalidClassException | InvalidObjectException e) {
+                        // the header layout, or the data file format version differs
+                        throw new IOException("The file " + file + " is created by an " +
+                                "incompatible version of Chronicle Map", e);
                     }
                     @SuppressWarnings("unchecked")
                     VanillaChronicleMap<K, V, ?> map = (VanillaChronicleMap<K, V, ?>) m;
@@ -1394,6 +1619,8 @@ public final class ChronicleMapBuilder<K, V> implements
                                 "Expected length is " + expectedFileLength);
                     }
                     map.createMappedStoreAndSegments(file);
+                    if (preTouch)
+                        map.preTouch();
                     // This is needed to property initialize key and value serialization builders,
                     // which are later used in replication
                     preMapConstruction();
@@ -1499,12 +1726,13 @@ public final class ChronicleMapBuilder<K, V> implements
 //                throw new IllegalStateException("Windows cannot support this configuration");
 //            }
 
-            BytesStore bytesStore =
-                    lazyNativeBytesStoreWithFixedCapacity(map.sizeInBytesWithoutTiers());
+            BytesStore bytesStore = map.allocateInMemoryStore(map.sizeInBytesWithoutTiers());
             map.createMappedStoreAndSegments(bytesStore);
             return establishReplication(map, singleHashReplication, channel);
         } catch (IOException e) {
-            // file-less version should never trigger an IOException.
+            // file-less version triggers an IOException only if huge pages cannot be mapped
+            if (hugePagesDirectory != null)
+                throw new IllegalStateException("Cannot map huge pages in " + hugePagesDirectory, e);
             throw new AssertionError(e);
         }
     }
@@ -1514,6 +1742,10 @@ public final class ChronicleMapBuilder<K, V> implements
             throws IOException {
         preMapConstruction();
         if (replicated) {
+            if (changeLogCapacity > 0) {
+                throw new IllegalStateException("Change log is not supported by replicated " +
+                        "maps, use replication modification iterators instead");
+            }
             AbstractReplication replication;
             if (singleHashReplication != null) {
                 replication = singleHashReplication;
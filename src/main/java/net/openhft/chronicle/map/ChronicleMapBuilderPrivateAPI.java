@@ -17,6 +17,7 @@
 package net.openhft.chronicle.map;
 
 import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
+import net.openhft.chronicle.hash.KeyHashFunction;
 import net.openhft.chronicle.hash.serialization.impl.SerializationBuilder;
 
 class ChronicleMapBuilderPrivateAPI<K> implements ChronicleHashBuilderPrivateAPI<K> {
@@ -81,4 +82,24 @@ class ChronicleMapBuilderPrivateAPI<K> implements ChronicleHashBuilderPrivateAPI
     public boolean checksumEntries() {
         return b.checksumEntries();
     }
+
+    @Override
+    public KeyHashFunction keyHashFunction() {
+        return b.keyHashFunction();
+    }
+
+    @Override
+    public int bloomFilterBitsPerEntry() {
+        return b.bloomFilterBitsPerEntry();
+    }
+
+    @Override
+    public long changeLogCapacity() {
+        return b.changeLogCapacity();
+    }
+
+    @Override
+    public int changeLogMaxKeySize() {
+        return b.changeLogMaxKeySize();
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import java.util.ArrayDeque;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spliterator over a range of segments of a {@code ChronicleMap}, splits by halving the range.
+ * Like {@link ChronicleMapIterator}, reads all entries of a segment under the segment's lock into
+ * a buffer, and then passes them to the action outside of the lock.
+ */
+final class ChronicleMapSpliterator<K, V, E>
+        implements Spliterator<E>, Consumer<MapEntry<K, V>> {
+
+    static <K, V> Spliterator<Entry<K, V>> ofEntries(AbstractChronicleMap<K, V> map) {
+        return new ChronicleMapSpliterator<>(map, entry -> {
+            K key = entry.key().getUsing(null);
+            V value = entry.value().getUsing(null);
+            return new WriteThroughEntry<>(map, key, value);
+        }, DISTINCT | NONNULL | CONCURRENT);
+    }
+
+    static <K, V> Spliterator<K> ofKeys(AbstractChronicleMap<K, V> map) {
+        return new ChronicleMapSpliterator<>(map, entry -> entry.key().getUsing(null),
+                DISTINCT | NONNULL | CONCURRENT);
+    }
+
+    static <K, V> Spliterator<V> ofValues(AbstractChronicleMap<K, V> map) {
+        return new ChronicleMapSpliterator<>(map, entry -> entry.value().getUsing(null),
+                NONNULL | CONCURRENT);
+    }
+
+    private final AbstractChronicleMap<K, V> map;
+    private final Function<MapEntry<K, V>, E> read;
+    private final int characteristics;
+    private final long estimatedSegmentSize;
+    private final Queue<E> entryBuffer = new ArrayDeque<>();
+    /**
+     * The lowest index of the segment covered by this spliterator, inclusive
+     */
+    private int lowSegmentIndex;
+    /**
+     * The index of the next segment to read, segments are read from higher indexes to lower, as
+     * in {@link ChronicleMapIterator}
+     */
+    private int segmentIndex;
+
+    private ChronicleMapSpliterator(AbstractChronicleMap<K, V> map,
+                                    Function<MapEntry<K, V>, E> read, int characteristics) {
+        this(map, read, characteristics, map.longSize() / map.segments(),
+                0, map.segments() - 1);
+    }
+
+    private ChronicleMapSpliterator(AbstractChronicleMap<K, V> map,
+                                    Function<MapEntry<K, V>, E> read, int characteristics,
+                                    long estimatedSegmentSize,
+                                    int lowSegmentIndex, int segmentIndex) {
+        this.map = map;
+        this.read = read;
+        this.characteristics = characteristics;
+        this.estimatedSegmentSize = estimatedSegmentSize;
+        this.lowSegmentIndex = lowSegmentIndex;
+        this.segmentIndex = segmentIndex;
+    }
+
+    private boolean fillEntryBuffer() {
+        while (entryBuffer.isEmpty()) {
+            if (segmentIndex < lowSegmentIndex)
+                return false;
+            try (MapSegmentContext<K, V, ?> c = map.segmentContext(segmentIndex)) {
+                segmentIndex--;
+                if (c.size() > 0)
+                    c.forEachSegmentEntry(this);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void accept(MapEntry<K, V> e) {
+        entryBuffer.add(read.apply(e));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        if (!fillEntryBuffer())
+            return false;
+        action.accept(entryBuffer.poll());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+        while (fillEntryBuffer()) {
+            E e;
+            while ((e = entryBuffer.poll()) != null) {
+                action.accept(e);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        int remainingSegments = segmentIndex - lowSegmentIndex + 1;
+        if (remainingSegments < 2)
+            return null;
+        int splitSegmentIndex = lowSegmentIndex + remainingSegments / 2;
+        ChronicleMapSpliterator<K, V, E> lowerHalf = new ChronicleMapSpliterator<>(
+                map, read, characteristics, estimatedSegmentSize,
+                lowSegmentIndex, splitSegmentIndex - 1);
+        lowSegmentIndex = splitSegmentIndex;
+        return lowerHalf;
+    }
+
+    @Override
+    public long estimateSize() {
+        return entryBuffer.size() +
+                ((long) (segmentIndex - lowSegmentIndex + 1)) * estimatedSegmentSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.algo.hashing.LongHashFunction;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.bytes.RandomDataOutput;
+import net.openhft.chronicle.hash.AbstractData;
+import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.serialization.impl.IntegerMarshaller;
+import org.jetbrains.annotations.Nullable;
+
+final class IntIntChronicleMapImpl implements IntIntChronicleMap {
+
+    private final VanillaChronicleMap<Integer, Integer, ?> map;
+    private final ThreadLocal<IntData[]> data =
+            ThreadLocal.withInitial(() -> new IntData[] {new IntData(), new IntData()});
+
+    IntIntChronicleMapImpl(ChronicleMap<Integer, Integer> map) {
+        if (!(map instanceof VanillaChronicleMap))
+            throw new IllegalArgumentException("Map is not created by ChronicleMapBuilder: " + map);
+        VanillaChronicleMap<Integer, Integer, ?> m = (VanillaChronicleMap<Integer, Integer, ?>) map;
+        if (!(m.originalKeyReader instanceof IntegerMarshaller) ||
+                !(m.originalValueReader instanceof IntegerMarshaller)) {
+            throw new IllegalArgumentException("Map should use the default Integer key and value " +
+                    "serializers, " + m.originalKeyReader + " and " + m.originalValueReader +
+                    " are configured");
+        }
+        this.map = m;
+    }
+
+    @Override
+    public int get(int key, int defaultValue) {
+        try (ExternalMapQueryContext<Integer, Integer, ?> q = map.queryContext(keyData(key))) {
+            MapEntry<Integer, Integer> entry = q.entry();
+            if (entry == null)
+                return defaultValue;
+            Data<Integer> value = entry.value();
+            return value.bytes().readInt(value.offset());
+        }
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        try (ExternalMapQueryContext<Integer, Integer, ?> q = map.queryContext(keyData(key))) {
+            return q.entry() != null;
+        }
+    }
+
+    @Override
+    public void put(int key, int value) {
+        IntData[] data = this.data.get();
+        try (ExternalMapQueryContext<Integer, Integer, ?> q = map.queryContext(data[0].set(key))) {
+            q.updateLock().lock();
+            MapEntry<Integer, Integer> entry = q.entry();
+            if (entry != null) {
+                q.replaceValue(entry, data[1].set(value));
+            } else {
+                q.insert(q.absentEntry(), data[1].set(value));
+            }
+        }
+    }
+
+    @Override
+    public int addAndGet(int key, int delta) {
+        IntData[] data = this.data.get();
+        try (ExternalMapQueryContext<Integer, Integer, ?> q = map.queryContext(data[0].set(key))) {
+            q.updateLock().lock();
+            MapEntry<Integer, Integer> entry = q.entry();
+            int newValue;
+            if (entry != null) {
+                Data<Integer> value = entry.value();
+                newValue = value.bytes().readInt(value.offset()) + delta;
+                q.replaceValue(entry, data[1].set(newValue));
+            } else {
+                newValue = delta;
+                q.insert(q.absentEntry(), data[1].set(newValue));
+            }
+            return newValue;
+        }
+    }
+
+    @Override
+    public boolean remove(int key) {
+        try (ExternalMapQueryContext<Integer, Integer, ?> q = map.queryContext(keyData(key))) {
+            q.updateLock().lock();
+            MapEntry<Integer, Integer> entry = q.entry();
+            if (entry == null)
+                return false;
+            q.remove(entry);
+            return true;
+        }
+    }
+
+    @Override
+    public long longSize() {
+        return map.longSize();
+    }
+
+    @Override
+    public ChronicleMap<Integer, Integer> asMap() {
+        return map;
+    }
+
+    @Override
+    public void close() {
+        map.close();
+    }
+
+    private IntData keyData(int key) {
+        return data.get()[0].set(key);
+    }
+
+    @Override
+    public String toString() {
+        return "IntIntChronicleMap{" + map + "}";
+    }
+
+    /**
+     * Mutable {@code Data} of a primitive {@code int}, serialized the same way as by {@link
+     * IntegerMarshaller}.
+     */
+    static final class IntData extends AbstractData<Integer> {
+        private final BytesStore bytes = BytesStore.wrap(new byte[4]);
+        private int value;
+
+        IntData set(int value) {
+            this.value = value;
+            bytes.writeInt(0, value);
+            return this;
+        }
+
+        @Override
+        public RandomDataInput bytes() {
+            return bytes;
+        }
+
+        @Override
+        public long offset() {
+            return 0;
+        }
+
+        @Override
+        public long size() {
+            return 4;
+        }
+
+        @Override
+        public long hash(LongHashFunction f) {
+            return f.hashInt(value);
+        }
+
+        @Override
+        public boolean equivalent(RandomDataInput source, long sourceOffset) {
+            return source.readInt(sourceOffset) == value;
+        }
+
+        @Override
+        public void writeTo(RandomDataOutput target, long targetOffset) {
+            target.writeInt(targetOffset, value);
+        }
+
+        @Override
+        public Integer get() {
+            return value;
+        }
+
+        @Override
+        public Integer getUsing(@Nullable Integer using) {
+            return value;
+        }
+    }
+}
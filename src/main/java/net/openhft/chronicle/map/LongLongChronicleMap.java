@@ -0,0 +1,98 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import java.io.Closeable;
+
+/**
+ * Primitive {@code long} to {@code long} view of a {@link ChronicleMap ChronicleMap<Long, Long>},
+ * which accesses keys and values without boxing and without allocating {@code Data} wrappers on
+ * each query. Entries of such a map are constantly-sized, 8-byte keys and values are stored
+ * without size prefixes.
+ *
+ * <p>Example: <pre>{@code
+ * LongLongChronicleMap counters = LongLongChronicleMap.wrap(
+ *         ChronicleMap.of(Long.class, Long.class).entries(1_000_000_000L).createPersistedTo(file));
+ * counters.addAndGet(key, 1);}</pre>
+ *
+ * <p>The wrapped map could be still accessed via {@link #asMap()}, modifications are visible
+ * through both views. Closing this view closes the wrapped map.
+ *
+ * @see IntIntChronicleMap
+ */
+public interface LongLongChronicleMap extends Closeable {
+
+    /**
+     * Wraps the given {@code ChronicleMap} with {@code Long} keys and values, created by {@link
+     * ChronicleMapBuilder} with the default {@code Long} serializers.
+     *
+     * @param map the map to wrap
+     * @return a primitive view of the given map
+     * @throws IllegalArgumentException if the given map is not created by {@code
+     * ChronicleMapBuilder}, or custom key or value serializers are configured
+     */
+    static LongLongChronicleMap wrap(ChronicleMap<Long, Long> map) {
+        return new LongLongChronicleMapImpl(map);
+    }
+
+    /**
+     * Returns the value to which the given key is mapped, or {@code defaultValue} if this map
+     * contains no mapping for the key.
+     */
+    long get(long key, long defaultValue);
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the given key.
+     */
+    boolean containsKey(long key);
+
+    /**
+     * Associates the given value with the given key. Unlike {@link ChronicleMap#put(Object,
+     * Object)}, doesn't return the previous value.
+     */
+    void put(long key, long value);
+
+    /**
+     * Atomically adds the given delta to the value mapped to the given key, if the key is absent,
+     * {@code delta} is inserted.
+     *
+     * @return the updated value
+     */
+    long addAndGet(long key, long delta);
+
+    /**
+     * Removes the mapping for the given key, if present.
+     *
+     * @return {@code true} if the mapping was removed
+     */
+    boolean remove(long key);
+
+    /**
+     * Returns the number of entries in this map.
+     */
+    long longSize();
+
+    /**
+     * Returns the wrapped {@code ChronicleMap}.
+     */
+    ChronicleMap<Long, Long> asMap();
+
+    /**
+     * Closes the wrapped {@code ChronicleMap}.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,187 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.algo.hashing.LongHashFunction;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.bytes.RandomDataOutput;
+import net.openhft.chronicle.hash.AbstractData;
+import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.serialization.impl.LongMarshaller;
+import org.jetbrains.annotations.Nullable;
+
+final class LongLongChronicleMapImpl implements LongLongChronicleMap {
+
+    private final VanillaChronicleMap<Long, Long, ?> map;
+    private final ThreadLocal<LongData[]> data =
+            ThreadLocal.withInitial(() -> new LongData[] {new LongData(), new LongData()});
+
+    LongLongChronicleMapImpl(ChronicleMap<Long, Long> map) {
+        if (!(map instanceof VanillaChronicleMap))
+            throw new IllegalArgumentException("Map is not created by ChronicleMapBuilder: " + map);
+        VanillaChronicleMap<Long, Long, ?> m = (VanillaChronicleMap<Long, Long, ?>) map;
+        if (!(m.originalKeyReader instanceof LongMarshaller) ||
+                !(m.originalValueReader instanceof LongMarshaller)) {
+            throw new IllegalArgumentException("Map should use the default Long key and value " +
+                    "serializers, " + m.originalKeyReader + " and " + m.originalValueReader +
+                    " are configured");
+        }
+        this.map = m;
+    }
+
+    @Override
+    public long get(long key, long defaultValue) {
+        try (ExternalMapQueryContext<Long, Long, ?> q = map.queryContext(keyData(key))) {
+            MapEntry<Long, Long> entry = q.entry();
+            if (entry == null)
+                return defaultValue;
+            Data<Long> value = entry.value();
+            return value.bytes().readLong(value.offset());
+        }
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        try (ExternalMapQueryContext<Long, Long, ?> q = map.queryContext(keyData(key))) {
+            return q.entry() != null;
+        }
+    }
+
+    @Override
+    public void put(long key, long value) {
+        LongData[] data = this.data.get();
+        try (ExternalMapQueryContext<Long, Long, ?> q = map.queryContext(data[0].set(key))) {
+            q.updateLock().lock();
+            MapEntry<Long, Long> entry = q.entry();
+            if (entry != null) {
+                q.replaceValue(entry, data[1].set(value));
+            } else {
+                q.insert(q.absentEntry(), data[1].set(value));
+            }
+        }
+    }
+
+    @Override
+    public long addAndGet(long key, long delta) {
+        LongData[] data = this.data.get();
+        try (ExternalMapQueryContext<Long, Long, ?> q = map.queryContext(data[0].set(key))) {
+            q.updateLock().lock();
+            MapEntry<Long, Long> entry = q.entry();
+            long newValue;
+            if (entry != null) {
+                Data<Long> value = entry.value();
+                newValue = value.bytes().readLong(value.offset()) + delta;
+                q.replaceValue(entry, data[1].set(newValue));
+            } else {
+                newValue = delta;
+                q.insert(q.absentEntry(), data[1].set(newValue));
+            }
+            return newValue;
+        }
+    }
+
+    @Override
+    public boolean remove(long key) {
+        try (ExternalMapQueryContext<Long, Long, ?> q = map.queryContext(keyData(key))) {
+            q.updateLock().lock();
+            MapEntry<Long, Long> entry = q.entry();
+            if (entry == null)
+                return false;
+            q.remove(entry);
+            return true;
+        }
+    }
+
+    @Override
+    public long longSize() {
+        return map.longSize();
+    }
+
+    @Override
+    public ChronicleMap<Long, Long> asMap() {
+        return map;
+    }
+
+    @Override
+    public void close() {
+        map.close();
+    }
+
+    private LongData keyData(long key) {
+        return data.get()[0].set(key);
+    }
+
+    @Override
+    public String toString() {
+        return "LongLongChronicleMap{" + map + "}";
+    }
+
+    /**
+     * Mutable {@code Data} of a primitive {@code long}, serialized the same way as by {@link
+     * LongMarshaller}.
+     */
+    static final class LongData extends AbstractData<Long> {
+        private final BytesStore bytes = BytesStore.wrap(new byte[8]);
+        private long value;
+
+        LongData set(long value) {
+            this.value = value;
+            bytes.writeLong(0, value);
+            return this;
+        }
+
+        @Override
+        public RandomDataInput bytes() {
+            return bytes;
+        }
+
+        @Override
+        public long offset() {
+            return 0;
+        }
+
+        @Override
+        public long size() {
+            return 8;
+        }
+
+        @Override
+        public long hash(LongHashFunction f) {
+            return f.hashLong(value);
+        }
+
+        @Override
+        public boolean equivalent(RandomDataInput source, long sourceOffset) {
+            return source.readLong(sourceOffset) == value;
+        }
+
+        @Override
+        public void writeTo(RandomDataOutput target, long targetOffset) {
+            target.writeLong(targetOffset, value);
+        }
+
+        @Override
+        public Long get() {
+            return value;
+        }
+
+        @Override
+        public Long getUsing(@Nullable Long using) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesUtil;
+import net.openhft.chronicle.bytes.PointerBytesStore;
+import net.openhft.chronicle.bytes.VanillaBytes;
+import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.impl.CompactOffHeapLinearHashTable;
+import net.openhft.chronicle.hash.impl.HashStatistics;
+import net.openhft.chronicle.hash.impl.SegmentHeader;
+import net.openhft.chronicle.hash.impl.TierCountersArea;
+import net.openhft.chronicle.hash.serialization.DataAccess;
+import net.openhft.chronicle.hash.serialization.SizedReader;
+
+import static net.openhft.chronicle.hash.impl.VanillaChronicleHash.TIER_COUNTERS_AREA_SIZE;
+import static net.openhft.chronicle.hash.serialization.StatefulCopyable.copyIfNeeded;
+
+/**
+ * Looks up values in {@link VanillaChronicleMap} without acquiring segment locks, see {@link
+ * ChronicleMapBuilder#optimisticReads(boolean)}. The value bytes are copied to the buffer while
+ * the segment might be concurrently updated, then the segment write version is validated, and
+ * only then the value is deserialized from the buffer. Only the first tier of the segment is
+ * searched.
+ *
+ * <p>Instances are thread-local, not thread-safe.
+ */
+final class OptimisticReader<K, V> {
+
+    /**
+     * Returned by {@link #get}, if the value should be looked up under the segment read lock
+     */
+    static final Object LOCKED_READ_REQUIRED = new Object();
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final int FOUND = 0;
+    private static final int ABSENT = 1;
+    private static final int NOT_FOUND_IN_FIRST_TIER = 2;
+    private static final int INCONSISTENT = 3;
+
+    private final VanillaChronicleMap<K, V, ?> map;
+    private final DataAccess<K> keyDataAccess;
+    private final SizedReader<V> valueReader;
+    private final PointerBytesStore segmentBS = new PointerBytesStore();
+    private final Bytes segmentBytes = new VanillaBytes(segmentBS);
+    private final Bytes valueCopy = Bytes.allocateElasticDirect(64);
+    private final long entrySpaceOffset;
+    private final HashStatistics.ContextCounters statisticsCounters;
+
+    OptimisticReader(VanillaChronicleMap<K, V, ?> map) {
+        this.map = map;
+        keyDataAccess = map.originalKeyDataAccess.copy();
+        valueReader = copyIfNeeded(map.originalValueReader);
+        // see SegmentStages.initSegment()
+        entrySpaceOffset = map.segmentHashLookupOuterSize + TIER_COUNTERS_AREA_SIZE +
+                map.segmentFreeListOuterSize + map.segmentBloomFilterSize +
+                map.segmentEntrySpaceInnerOffset;
+        statisticsCounters =
+                map.statistics != null ? map.statistics.newContextCounters(this) : null;
+    }
+
+    /**
+     * Returns the value mapped to the given key (read into {@code using}, if possible), {@code
+     * null} if the key is absent, or {@link #LOCKED_READ_REQUIRED}, if the segment is
+     * concurrently updated or the key might be in the extra tiers of the segment.
+     */
+    Object get(K key, V using) {
+        if (!map.isOpen()) // let the locked read throw the exception
+            return LOCKED_READ_REQUIRED;
+        Data<K> keyData = keyDataAccess.getData(key);
+        try {
+            long keyHash = map.keyHashFunction().hash(keyData);
+            int segmentIndex = map.hashSplitting.segmentIndex(keyHash);
+            long searchKey = map.hashLookup.maskUnsetKey(map.hashSplitting.segmentHash(keyHash));
+            SegmentHeader segmentHeader = map.segmentHeader;
+            long segmentHeaderAddress = map.segmentHeaderAddress(segmentIndex);
+            long segmentBaseAddr = map.segmentBaseAddr(segmentIndex);
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                long stamp = segmentHeader.tryOptimisticRead(segmentHeaderAddress);
+                if (stamp < 0L)
+                    return LOCKED_READ_REQUIRED;
+                int result;
+                try {
+                    result = search(segmentBaseAddr, searchKey, keyData);
+                } catch (RuntimeException e) {
+                    // torn read of sizes, should fail the validation below
+                    result = INCONSISTENT;
+                }
+                if (!segmentHeader.validate(segmentHeaderAddress, stamp))
+                    continue;
+                if (result == FOUND || result == ABSENT) {
+                    if (statisticsCounters != null)
+                        statisticsCounters.lookup(result == FOUND);
+                    return result == FOUND ?
+                            valueReader.read(valueCopy, valueCopy.readRemaining(), using) : null;
+                }
+                return LOCKED_READ_REQUIRED;
+            }
+            return LOCKED_READ_REQUIRED;
+        } finally {
+            keyDataAccess.uninit();
+        }
+    }
+
+    /**
+     * Searches the key in the first tier of the segment, see HashLookupSearch.nextPos() and
+     * KeySearch.initKeySearch(). All offsets and sizes read from the segment are checked to lie
+     * within the segment, because they might be garbage, when read concurrently with writes.
+     */
+    private int search(long segmentBaseAddr, long searchKey, Data<K> keyData) {
+        long segmentSize = map.segmentSize;
+        segmentBS.set(segmentBaseAddr, segmentSize);
+        segmentBytes.clear();
+        segmentBytes.readLimit(segmentSize);
+        CompactOffHeapLinearHashTable hl = map.hashLookup;
+        long pos = hl.hlPos(searchKey);
+        long capacity = hl.slotsBetween(pos, pos);
+        long probedSlots = 0L;
+        while (probedSlots < capacity) {
+            long foundPos = hl.findKeyOrEmpty(
+                    segmentBaseAddr, pos, searchKey, capacity - probedSlots);
+            if (foundPos < 0L)
+                return INCONSISTENT;
+            long hashLookupEntry = hl.readEntry(segmentBaseAddr, foundPos);
+            if (hl.empty(hashLookupEntry)) {
+                long nextTierIndex = TierCountersArea.nextTierIndex(
+                        segmentBaseAddr + map.segmentHashLookupOuterSize);
+                return nextTierIndex == 0L ? ABSENT : NOT_FOUND_IN_FIRST_TIER;
+            }
+            probedSlots += (foundPos == pos ? 0L : hl.slotsBetween(pos, foundPos)) + 1L;
+            pos = hl.step(foundPos);
+            long chunk = hl.value(hashLookupEntry);
+            if (chunk >= map.actualChunksPerSegment)
+                return INCONSISTENT;
+            if (keyEquals(entrySpaceOffset + chunk * map.chunkSize, keyData))
+                return copyValue(segmentBytes.readPosition());
+        }
+        return INCONSISTENT;
+    }
+
+    private boolean keyEquals(long keySizeOffset, Data<K> keyData) {
+        segmentBytes.readPosition(keySizeOffset);
+        long keySize = map.keySizeMarshaller.readSize(segmentBytes);
+        long keyOffset = segmentBytes.readPosition();
+        if (keySize != keyData.size() || keySize > map.segmentSize - keyOffset)
+            return false;
+        if (!BytesUtil.bytesEqual(segmentBS, keyOffset,
+                keyData.bytes(), keyData.offset(), keySize)) {
+            return false;
+        }
+        segmentBytes.readPosition(keyOffset + keySize);
+        return true;
+    }
+
+    /**
+     * Copies the value, the size of which is at the given offset, see
+     * MapEntryStages.initValueSize()
+     */
+    private int copyValue(long valueSizeOffset) {
+        segmentBytes.readPosition(valueSizeOffset);
+        long valueSize = map.readValueSize(segmentBytes);
+        map.alignReadPosition(segmentBytes);
+        long valueOffset = segmentBytes.readPosition();
+        if (valueSize < 0L || valueSize > map.segmentSize - valueOffset)
+            return INCONSISTENT;
+        valueCopy.clear();
+        valueCopy.write(segmentBS, valueOffset, valueSize);
+        return FOUND;
+    }
+}
@@ -205,6 +205,16 @@ public interface Replica extends Closeable {
         public void onBeforeEntry() {
         }
 
+        /**
+         * If the receiver of the entries accepts value deltas, see {@link
+         * net.openhft.chronicle.hash.replication.AbstractReplication#deltaReplication()}, otherwise
+         * only full values are passed to {@link #onEntry(Bytes, int, long)}. {@code false} by
+         * default.
+         */
+        public boolean acceptsDeltas() {
+            return false;
+        }
+
 
         /**
          * its possible that the entry should now be ignored, for example although rare its
@@ -17,8 +17,11 @@
 package net.openhft.chronicle.map;
 
 import net.openhft.chronicle.algo.bitset.*;
+import net.openhft.chronicle.algo.hashing.LongHashFunction;
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.RandomDataInput;
 import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.VanillaGlobalMutableState;
 import net.openhft.chronicle.hash.impl.TierCountersArea;
 import net.openhft.chronicle.hash.impl.VanillaChronicleHash;
@@ -28,7 +31,9 @@ import net.openhft.chronicle.hash.replication.ReplicableEntry;
 import net.openhft.chronicle.hash.replication.TimeProvider;
 import net.openhft.chronicle.map.impl.CompiledReplicatedMapIterationContext;
 import net.openhft.chronicle.map.impl.CompiledReplicatedMapQueryContext;
+import net.openhft.chronicle.map.impl.QueryContextInterface;
 import net.openhft.chronicle.map.replication.MapRemoteOperations;
+import net.openhft.chronicle.map.replication.MapReplicableEntry;
 import net.openhft.chronicle.values.Values;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -38,6 +43,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -91,6 +97,12 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
     // for file, jdbc and UDP replication
     public static final int RESERVED_MOD_ITER = 8;
     public static final int ADDITIONAL_ENTRY_BYTES = 10;
+    /**
+     * Written instead of the "is deleted" flag of a replicated entry, if the key is followed by
+     * a range of the value bytes, rather than the whole value
+     */
+    public static final byte DELTA_ENTRY = 2;
+    private static final LongHashFunction DELTA_VALUE_HASH = LongHashFunction.xx_r39();
     private static final long serialVersionUID = 0L;
     private static final Logger LOG = LoggerFactory.getLogger(ReplicatedChronicleMap.class);
     private static final long LAST_UPDATED_HEADER_SIZE = 128L * 8L;
@@ -108,6 +120,17 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
     private transient AtomicReferenceArray<ModificationIterator> modificationIterators;
     private transient long startOfModificationIterators;
     private transient boolean bootstrapOnlyLocalEntries;
+    private transient boolean deltaReplication;
+
+    /**
+     * Delta states of the entries, keyed by {@link #deltaStateKey(long, long)}. An entry has a
+     * delta state only while its changes, made via {@code acquireContext()} since the base
+     * version, are pending to be sent to remote nodes
+     */
+    private transient ConcurrentHashMap<Long, DeltaState> deltaStates;
+    private transient ThreadLocal<AcquiredValue> acquiredValue;
+    private transient ThreadLocal<DeltaState> deltaToWrite;
+    private transient ThreadLocal<Bytes> expandedDeltas;
 
     public transient long cleanupTimeout;
     public transient TimeUnit cleanupTimeoutUnit;
@@ -162,6 +185,11 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                 BYTES.toBits(tierBulkModIterBitSetSizeInBytes(tiersInBulk));
         tierBulkModIterFrameForUpdates = new SingleThreadedFlatBitSetFrame(tierBulkBitSetSize);
         tierBulkModIterFrameForIteration = new ConcurrentFlatBitSetFrame(tierBulkBitSetSize);
+
+        deltaStates = new ConcurrentHashMap<>();
+        acquiredValue = ThreadLocal.withInitial(AcquiredValue::new);
+        deltaToWrite = new ThreadLocal<>();
+        expandedDeltas = ThreadLocal.withInitial(Bytes::elasticByteBuffer);
     }
 
     @Override
@@ -173,9 +201,16 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         cleanupTimeoutUnit = builder.cleanupTimeoutUnit;
     }
 
+    @Override
+    boolean optimisticReadsSupported() {
+        // entries are followed by replication bytes, and removed entries are kept in segments
+        return false;
+    }
+
     void initTransientsFromReplication(AbstractReplication replication) {
         this.localIdentifier = replication.identifier();
         this.bootstrapOnlyLocalEntries = replication.bootstrapOnlyLocalEntries();
+        this.deltaReplication = replication.deltaReplication();
         if (localIdentifier == -1)
             throw new IllegalStateException("localIdentifier should not be -1");
     }
@@ -306,11 +341,79 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
             final ModificationIterator modIter = new ModificationIterator(remoteIdentifier);
             modificationIterators.set(remoteIdentifier, modIter);
             modIterSet.set(remoteIdentifier);
+            // the new remote node is not known to hold the base versions of the deltas
+            deltaStates.clear();
             return modIter;
         }
     }
 
+    public boolean deltaReplication() {
+        return deltaReplication;
+    }
+
+    private static long deltaStateKey(long tierIndex, long pos) {
+        return (tierIndex << 32) | pos;
+    }
+
+    @Override
+    void onAcquireContext(QueryContextInterface<K, V, R> q) {
+        if (deltaReplication)
+            acquiredValue.get().init(q, (MapReplicableEntry<K, V>) q.entry());
+    }
+
+    @Override
+    public void replaceAcquiredValue(
+            MapEntryOperations<K, V, ?> q, MapEntry<K, V> entry, Data<V> newValue) {
+        if (!deltaReplication) {
+            super.replaceAcquiredValue(q, entry, newValue);
+            return;
+        }
+        AcquiredValue acquired = acquiredValue.get();
+        try {
+            acquired.computeChangedRange(q, newValue);
+            // raiseChange() is called from within, and picks up the changed range
+            super.replaceAcquiredValue(q, entry, newValue);
+        } finally {
+            acquired.reset();
+        }
+    }
+
+    /**
+     * Called before the entry is marked as changed for all remote nodes. The entry keeps the delta
+     * state, only if it is changed via {@code acquireContext()}, and the previous version is local
+     * and already sent to all remote nodes, or the previous version is produced by the delta state
+     * of the entry.
+     */
+    private void updateDeltaState(long tierIndex, long pos, long timestamp) {
+        long key = deltaStateKey(tierIndex, pos);
+        AcquiredValue acquired = acquiredValue.get();
+        if (!acquired.changed) {
+            deltaStates.remove(key);
+            return;
+        }
+        acquired.changed = false;
+        DeltaState state = deltaStates.get(key);
+        if (state != null && !state.isProduced(
+                acquired.baseTimestamp, acquired.baseIdentifier, acquired.baseValueHash)) {
+            // the entry is updated without the delta state since the last delta
+            deltaStates.remove(key);
+            state = null;
+        }
+        if (state != null) {
+            state.union(acquired.from, acquired.to);
+        } else if (acquired.baseIdentifier == localIdentifier && !isChanged(tierIndex, pos)) {
+            state = new DeltaState(acquired.baseTimestamp, acquired.baseIdentifier,
+                    acquired.from, acquired.to);
+            deltaStates.put(key, state);
+        } else {
+            return;
+        }
+        state.produced(timestamp, localIdentifier, acquired.newValueHash);
+    }
+
     public void raiseChange(long tierIndex, long pos, long timestamp) {
+        if (deltaReplication)
+            updateDeltaState(tierIndex, pos, timestamp);
         for (long next = modIterSet.nextSetBit(0L); next > 0L;
              next = modIterSet.nextSetBit(next + 1L)) {
             try {
@@ -322,6 +425,8 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
     }
 
     public void dropChange(long tierIndex, long pos) {
+        if (deltaReplication)
+            deltaStates.remove(deltaStateKey(tierIndex, pos));
         for (long next = modIterSet.nextSetBit(0L); next > 0L;
              next = modIterSet.nextSetBit(next + 1L)) {
             try {
@@ -334,6 +439,8 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
 
     public void moveChange(long oldTierIndex, long oldPos, long newTierIndex, long newPos,
                            long timestamp) {
+        if (deltaReplication)
+            deltaStates.remove(deltaStateKey(oldTierIndex, oldPos));
         for (long next = modIterSet.nextSetBit(0L); next > 0L;
              next = modIterSet.nextSetBit(next + 1L)) {
             try {
@@ -426,6 +533,7 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         }
 
         final long valuePosition = entry.readPosition();
+        final DeltaState delta = isDeleted ? null : deltaToWrite.get();
         destination.writeLong(bootstrapTime);
         keySizeMarshaller.writeSize(destination, keySize);
         valueSizeMarshaller.writeSize(destination, valueSize);
@@ -434,11 +542,33 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         if (identifier == 0)
             throw new IllegalStateException("Identifier can't be 0");
         destination.writeByte(identifier);
-        destination.writeBoolean(isDeleted);
+        if (delta != null) {
+            destination.writeByte(DELTA_ENTRY);
+        } else {
+            destination.writeBoolean(isDeleted);
+        }
 
         // write the key
         destination.write(entry, keyPosition, keySize);
 
+        // skipping the alignment, as alignment wont work when we send the data over the wire.
+        long valueAddr = entry.address(valuePosition);
+        long skip = alignAddr(valueAddr, alignment) - valueAddr;
+
+        if (delta != null) {
+            assert delta.to <= valueSize;
+            destination.writeStopBit(delta.baseTimestamp);
+            destination.writeByte(delta.baseIdentifier);
+            destination.writeStopBit(delta.from);
+            destination.writeStopBit(delta.to - delta.from);
+            destination.write(entry, valuePosition + skip + delta.from, delta.to - delta.from);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("WRITING DELTA TO DEST -  into local-id={}, key={}, range=[{}, {})",
+                        identifier(), entry.toString().trim(), delta.from, delta.to);
+            }
+            return;
+        }
+
         boolean debugEnabled = LOG.isDebugEnabled();
         String message = null;
         if (debugEnabled) {
@@ -455,9 +585,6 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
         if (isDeleted)
             return;
 
-        // skipping the alignment, as alignment wont work when we send the data over the wire.
-        long valueAddr = entry.address(valuePosition);
-        long skip = alignAddr(valueAddr, alignment) - valueAddr;
         // writes the value
         destination.write(entry, valuePosition + skip, valueSize);
 
@@ -510,10 +637,20 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
      */
     @Override
     public void readExternalEntry(@NotNull Bytes source) {
+        Bytes expanded = null;
         try (CompiledReplicatedMapQueryContext<K, V, R> remoteOpContext = mapContext()) {
             remoteOpContext.initReplicationInput(source);
-            remoteOpContext.processReplicatedEvent();
+            if (!remoteOpContext.deltaInput()) {
+                remoteOpContext.processReplicatedEvent();
+                return;
+            }
+            Bytes output = expandedDeltas.get();
+            if (remoteOpContext.expandDelta(output))
+                expanded = output;
         }
+        // the delta, expanded to the full entry, goes through the usual remote operations
+        if (expanded != null)
+            readExternalEntry(expanded);
     }
 
     private ChainingInterface i() {
@@ -789,12 +926,43 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
                         context.segmentBytes()
                                 .readLimit(context.valueOffset() + context.valueSize());
                         context.segmentBytes().readPosition(context.keySizeOffset());
-                        boolean success = entryCallback.onEntry(
-                                context.segmentBytes(), chronicleId, bootStrapTimeStamp());
+                        // remote nodes, which don't accept deltas, get full values
+                        DeltaState delta = deltaReplication && entryCallback.acceptsDeltas() ?
+                                deltaStates.get(deltaStateKey(context.tierIndex(), segmentPos)) :
+                                null;
+                        if (delta != null && !delta.isProduced(context.timestamp(),
+                                context.identifier(), context.value().hash(DELTA_VALUE_HASH))) {
+                            // the entry is updated without the delta state, e. g. by another
+                            // process, the full value is sent
+                            deltaStates.remove(
+                                    deltaStateKey(context.tierIndex(), segmentPos), delta);
+                            delta = null;
+                        }
+                        boolean success;
+                        if (delta != null) {
+                            deltaToWrite.set(delta);
+                            try {
+                                success = entryCallback.onEntry(
+                                        context.segmentBytes(), chronicleId, bootStrapTimeStamp());
+                            } finally {
+                                deltaToWrite.set(null);
+                            }
+                        } else {
+                            success = entryCallback.onEntry(
+                                    context.segmentBytes(), chronicleId, bootStrapTimeStamp());
+                        }
                         entryCallback.onAfterEntry();
 
-                        if (success)
+                        if (success) {
                             changesForUpdatesClear(position);
+                            // the delta is sent to all remote nodes, the next change of the entry
+                            // is based on the current version
+                            if (delta != null && !ReplicatedChronicleMap.this.isChanged(
+                                    context.tierIndex(), segmentPos)) {
+                                deltaStates.remove(
+                                        deltaStateKey(context.tierIndex(), segmentPos), delta);
+                            }
+                        }
 
                         return success;
                     }
@@ -839,6 +1007,8 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
 
         @Override
         public void dirtyEntries(long fromTimeStamp) {
+            // the bootstrapped remote node is not known to hold the base versions of the deltas
+            deltaStates.clear();
             try (CompiledReplicatedMapIterationContext<K, V, R> c = iterationContext()) {
                 // iterate over all the segments and mark bit in the modification iterator
                 // that correspond to entries with an older timestamp
@@ -868,4 +1038,120 @@ public class ReplicatedChronicleMap<K, V, R> extends VanillaChronicleMap<K, V, R
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The base version of the entry and the range of the value bytes, changed since. Delta states
+     * are kept on heap, so the version, produced by the last delta, is recorded to detect updates
+     * of the entry, made without the delta state, e. g. by another process.
+     */
+    static final class DeltaState {
+        final long baseTimestamp;
+        final byte baseIdentifier;
+        long from;
+        long to;
+        long producedTimestamp;
+        byte producedIdentifier;
+        long producedValueHash;
+
+        DeltaState(long baseTimestamp, byte baseIdentifier, long from, long to) {
+            this.baseTimestamp = baseTimestamp;
+            this.baseIdentifier = baseIdentifier;
+            this.from = from;
+            this.to = to;
+        }
+
+        void produced(long timestamp, byte identifier, long valueHash) {
+            producedTimestamp = timestamp;
+            producedIdentifier = identifier;
+            producedValueHash = valueHash;
+        }
+
+        /**
+         * Returns {@code true} if the given version of the entry is produced by the last delta.
+         * Versions, produced in the same millisecond by the same node, are told apart by the
+         * value hashes.
+         */
+        boolean isProduced(long timestamp, byte identifier, long valueHash) {
+            return producedTimestamp == timestamp && producedIdentifier == identifier &&
+                    producedValueHash == valueHash;
+        }
+
+        void union(long from, long to) {
+            if (from >= to)
+                return;
+            if (this.from >= this.to) {
+                this.from = from;
+                this.to = to;
+            } else {
+                this.from = Math.min(this.from, from);
+                this.to = Math.max(this.to, to);
+            }
+        }
+    }
+
+    /**
+     * The copy of the value bytes of the entry, acquired via {@code acquireContext()} in the
+     * current thread, and the range of the bytes, changed when the value is written back.
+     */
+    static final class AcquiredValue {
+        private final Bytes snapshot = Bytes.elasticByteBuffer();
+        private long snapshotSize;
+        private Object context;
+        long baseTimestamp;
+        byte baseIdentifier;
+        long baseValueHash;
+
+        /** If the changed range is computed and not yet picked up by raiseChange() */
+        boolean changed;
+        long from;
+        long to;
+        long newValueHash;
+
+        void init(Object context, MapReplicableEntry<?, ?> entry) {
+            changed = false;
+            if (entry == null) {
+                // the entry is going to be inserted, full value should be replicated
+                this.context = null;
+                return;
+            }
+            this.context = context;
+            baseTimestamp = entry.originTimestamp();
+            baseIdentifier = entry.originIdentifier();
+            Data<?> value = entry.value();
+            baseValueHash = value.hash(DELTA_VALUE_HASH);
+            snapshotSize = value.size();
+            snapshot.clear();
+            snapshot.writeSkip(snapshotSize);
+            value.writeTo(snapshot, 0);
+        }
+
+        void computeChangedRange(Object context, Data<?> newValue) {
+            long size = newValue.size();
+            if (this.context != context || size != snapshotSize)
+                return;
+            RandomDataInput bytes = newValue.bytes();
+            long offset = newValue.offset();
+            long from = 0;
+            while (from + 8 <= size && snapshot.readLong(from) == bytes.readLong(offset + from))
+                from += 8;
+            while (from < size && snapshot.readByte(from) == bytes.readByte(offset + from))
+                from++;
+            long to = size;
+            while (to - 8 >= from &&
+                    snapshot.readLong(to - 8) == bytes.readLong(offset + to - 8)) {
+                to -= 8;
+            }
+            while (to > from && snapshot.readByte(to - 1) == bytes.readByte(offset + to - 1))
+                to--;
+            this.from = from;
+            this.to = to;
+            newValueHash = newValue.hash(DELTA_VALUE_HASH);
+            changed = true;
+        }
+
+        void reset() {
+            context = null;
+            changed = false;
+        }
+    }
+}
@@ -21,7 +21,7 @@ import net.openhft.chronicle.values.Group;
 
 interface ReplicatedGlobalMutableState extends VanillaGlobalMutableState {
 
-    @Group(5)
+    @Group(7)
     int getCurrentCleanupSegmentIndex();
     void setCurrentCleanupSegmentIndex(int currentCleanupSegmentIndex);
 }
@@ -34,7 +34,7 @@ interface Replicator {
 
     static Replicator tcp(final AbstractReplication replication) {
         return (builder, replica, entryExternalizable, replicatedMap) ->
-                new TcpReplicator(replica, entryExternalizable,
+                TcpReplicator.startEventLoops(replica, entryExternalizable,
                         replication.tcpTransportAndNetwork(), replication.remoteNodeValidator(),
                         replication.name(), replication.connectionListener());
     }
@@ -0,0 +1,97 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.HeapBytesStore;
+import net.openhft.chronicle.bytes.RandomDataInput;
+import net.openhft.chronicle.hash.AbstractData;
+import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.serialization.DataAccess;
+import net.openhft.chronicle.hash.serialization.SizedReader;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Serialized key or value in a heap byte array, which stays valid independently from the data
+ * access, it is serialized with, e. g. to put several entries as {@link Data} with {@link
+ * VanillaChronicleMap#putAllData}. Deserialized only if the map needs the object, e. g. to notify
+ * listeners.
+ */
+final class SerializedData<T> extends AbstractData<T> {
+
+    /**
+     * Copies the serialized form of the given object.
+     */
+    static <T> SerializedData<T> copyOf(
+            T instance, DataAccess<T> dataAccess, SizedReader<T> reader) {
+        try {
+            Data<T> data = dataAccess.getData(instance);
+            byte[] array = new byte[Math.toIntExact(data.size())];
+            HeapBytesStore<byte[]> store = BytesStore.wrap(array);
+            data.writeTo(store, 0);
+            return new SerializedData<>(store, array, 0, array.length, reader, instance);
+        } finally {
+            dataAccess.uninit();
+        }
+    }
+
+    private final HeapBytesStore<byte[]> store;
+    private final byte[] array;
+    private final int offset;
+    private final int size;
+    private final SizedReader<T> reader;
+    private final T instance;
+
+    SerializedData(HeapBytesStore<byte[]> store, byte[] array, int offset, int size,
+                   SizedReader<T> reader, @Nullable T instance) {
+        this.store = store;
+        this.array = array;
+        this.offset = offset;
+        this.size = size;
+        this.reader = reader;
+        this.instance = instance;
+    }
+
+    @Override
+    public RandomDataInput bytes() {
+        return store;
+    }
+
+    @Override
+    public long offset() {
+        return store.start() + offset;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public T get() {
+        return instance != null ? instance : getUsing(null);
+    }
+
+    @Override
+    public T getUsing(@Nullable T using) {
+        Bytes in = Bytes.wrapForRead(array);
+        in.readPosition(offset);
+        in.readLimit(offset + size);
+        return reader.read(in, size, using);
+    }
+}
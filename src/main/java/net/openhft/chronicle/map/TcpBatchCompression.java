@@ -0,0 +1,164 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflates batches of entries, written by {@link TcpReplicator} into it's output buffer, into a
+ * single frame, and inflates received frames. The frame format is: frame state byte, frame size
+ * (int), raw size of the batch (int), deflated batch. The raw batch is a sequence of entries in
+ * the usual (uncompressed) wire format.
+ *
+ * <p>Not thread-safe, should be accessed only from the replicator's selector thread, apart from
+ * {@link #uncompressedBytes()} and {@link #compressedBytes()} metrics.
+ */
+final class TcpBatchCompression {
+
+    static final byte COMPRESSED_ENTRIES = 2;
+    static final int FRAME_HEADER_SIZE = 1 + 4 + 4;
+
+    /**
+     * Smaller batches (e. g. a single small entry) are not worth compression
+     */
+    private static final int MIN_BATCH_SIZE = 256;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    private byte[] raw = new byte[1024];
+    private byte[] compressed = new byte[1024];
+    private byte[] inflated = new byte[1024];
+    private Bytes inflatedBytes = Bytes.wrapForRead(inflated);
+
+    private volatile long uncompressedBytes;
+    private volatile long compressedBytes;
+
+    /**
+     * Replaces the entries written to the {@code buffer} from the {@code batchStart} position with
+     * a compressed frame, if this makes the batch smaller.
+     *
+     * @param buffer     the output buffer of a connection, it's underlying {@code ByteBuffer}
+     *                   should be indexed from the buffer start
+     * @param batchStart the position of the first entry of the batch in the buffer
+     * @return {@code true} if the batch is compressed
+     */
+    boolean compress(@NotNull Bytes buffer, long batchStart) {
+        int rawSize = (int) (buffer.writePosition() - batchStart);
+        if (rawSize < MIN_BATCH_SIZE)
+            return false;
+        if (raw.length < rawSize)
+            raw = new byte[Math.max(rawSize, raw.length * 2)];
+        ByteBuffer bb = ((ByteBuffer) buffer.underlyingObject()).duplicate();
+        bb.limit((int) batchStart + rawSize).position((int) batchStart);
+        bb.get(raw, 0, rawSize);
+
+        deflater.reset();
+        deflater.setInput(raw, 0, rawSize);
+        deflater.finish();
+        // the frame should be smaller than the raw batch, otherwise compression is useless
+        int maxCompressedSize = rawSize - FRAME_HEADER_SIZE - 1;
+        if (compressed.length < maxCompressedSize)
+            compressed = new byte[Math.max(maxCompressedSize, compressed.length * 2)];
+        int compressedSize = 0;
+        while (!deflater.finished() && compressedSize < maxCompressedSize) {
+            compressedSize += deflater.deflate(
+                    compressed, compressedSize, maxCompressedSize - compressedSize);
+        }
+        uncompressedBytes += rawSize;
+        if (!deflater.finished()) {
+            compressedBytes += rawSize;
+            return false;
+        }
+
+        buffer.writePosition(batchStart);
+        buffer.writeByte(COMPRESSED_ENTRIES);
+        buffer.writeInt(4 + compressedSize);
+        buffer.writeInt(rawSize);
+        buffer.write(compressed, 0, compressedSize);
+        compressedBytes += FRAME_HEADER_SIZE + compressedSize;
+        return true;
+    }
+
+    /**
+     * Inflates a compressed frame, which payload (after the frame state byte and size) is read
+     * from the {@code in} bytes.
+     *
+     * @param in        the bytes, positioned at the payload of a compressed frame
+     * @param frameSize the size of the frame payload
+     * @return bytes to read the raw batch of entries from
+     * @throws IllegalStateException if the frame is corrupted
+     */
+    Bytes inflate(@NotNull Bytes in, int frameSize) {
+        int rawSize = in.readInt();
+        int compressedSize = frameSize - 4;
+        if (rawSize < 0 || compressedSize < 0)
+            throw new IllegalStateException("Corrupted compressed entries frame");
+        if (compressed.length < compressedSize)
+            compressed = new byte[Math.max(compressedSize, compressed.length * 2)];
+        in.read(compressed, 0, compressedSize);
+        if (inflated.length < rawSize) {
+            inflated = new byte[Math.max(rawSize, inflated.length * 2)];
+            inflatedBytes = Bytes.wrapForRead(inflated);
+        }
+
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedSize);
+        try {
+            int inflatedSize = 0;
+            while (inflatedSize < rawSize) {
+                int n = inflater.inflate(inflated, inflatedSize, rawSize - inflatedSize);
+                if (n == 0 && (inflater.finished() || inflater.needsInput()))
+                    break;
+                inflatedSize += n;
+            }
+            if (inflatedSize != rawSize || !inflater.finished())
+                throw new IllegalStateException("Corrupted compressed entries frame: wrong size");
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed entries frame", e);
+        }
+        inflatedBytes.readPosition(0);
+        inflatedBytes.readLimit(rawSize);
+        return inflatedBytes;
+    }
+
+    /**
+     * @return the total size of entry batches, compression of which was attempted
+     */
+    long uncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * @return the total size of frames, sent in place of the batches, counted in {@link
+     * #uncompressedBytes()}
+     */
+    long compressedBytes() {
+        return compressedBytes;
+    }
+
+    void close() {
+        deflater.end();
+        inflater.end();
+    }
+}
@@ -40,13 +40,17 @@ import java.nio.CharBuffer;
 import java.nio.channels.*;
 import java.nio.charset.StandardCharsets;
 import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static java.nio.channels.SelectionKey.*;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static net.openhft.chronicle.algo.MemoryUnit.*;
 import static net.openhft.chronicle.algo.bytes.Access.checkedBytesStoreAccess;
 import static net.openhft.chronicle.hash.impl.util.BuildVersion.version;
@@ -74,6 +78,18 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
     private static final byte NOT_SET = 0;//(byte) HEARTBEAT.ordinal();
     private static final Logger LOG = LoggerFactory.getLogger(TcpReplicator.class.getName());
     private static final int BUFFER_SIZE = 0x100000; // 1MB
+    /**
+     * Appended to the version, sent during handshaking, to tell the remote node that compressed
+     * entry frames are accepted. Older nodes consider it a part of the version number, so don't
+     * break the handshaking.
+     */
+    static final String COMPRESSION_VERSION_SUFFIX = "__deflate";
+    /**
+     * Appended to the version, sent during handshaking (before the compression suffix), to tell
+     * the remote node that value deltas are accepted. Older nodes read the delta entry marker as
+     * the "deleted" flag, so deltas are sent only to the nodes, which send this suffix.
+     */
+    static final String DELTA_VERSION_SUFFIX = "__delta";
 
     public static final long SPIN_LOOP_TIME_IN_NONOSECONDS = TimeUnit.MICROSECONDS.toNanos(500);
     private final SelectionKey[] selectionKeysStore = new SelectionKey[Byte.MAX_VALUE + 1];
@@ -100,14 +116,81 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
     @Nullable
     RemoteNodeValidator remoteNodeValidator;
     private final String name;
+    @Nullable
+    private final TcpBatchCompression compression;
+
+    private final int eventLoopIndex;
+    // all event loops of the node, if there are more than one, otherwise null
+    @Nullable
+    private final TcpReplicator<K, V>[] eventLoops;
+    // the event loop to assign the next accepted connection to
+    private int nextEventLoop = 0;
+    // the keys of the connections by remote identifiers, shared by all event loops of the node,
+    // if there are more than one, otherwise null. Connections to the same remote node share the
+    // modification iterator, so they should be served by the same event loop
+    @Nullable
+    private final AtomicReferenceArray<SelectionKey> remoteIdentifierKeys;
 
     private long selectorTimeout;
 
+    // zero if entries are sent as soon as they are changed
+    private final long batchLingerNanos;
+    // keys of the connections, which hold back incomplete batches of entries
+    private final Set<SelectionKey> lingeringKeys = new LinkedHashSet<>();
+
 
     enum State {
         CONNECTED, DISCONNECTED;
     }
 
+    /**
+     * Creates and starts {@link TcpTransportAndNetworkConfig#eventLoopThreads()} replicators, each
+     * running it's own selector thread. The first one binds the server port and assigns accepted
+     * connections to the event loops in round-robin order, connections to the endpoints are
+     * distributed across the event loops as well.
+     *
+     * @return a token to close all the started event loops
+     * @throws IOException on an io error.
+     */
+    static Closeable startEventLoops(@NotNull final Replica replica,
+                                     @NotNull final Replica.EntryExternalizable externalizable,
+                                     @NotNull final TcpTransportAndNetworkConfig replicationConfig,
+                                     @Nullable final RemoteNodeValidator remoteNodeValidator,
+                                     String name,
+                                     @Nullable final ConnectionListener connectionListener)
+            throws IOException {
+        int threads = replicationConfig.eventLoopThreads();
+        if (threads == 1) {
+            return new TcpReplicator(replica, externalizable, replicationConfig,
+                    remoteNodeValidator, name, connectionListener);
+        }
+        final TcpReplicator[] eventLoops = new TcpReplicator[threads];
+        final AtomicReferenceArray<SelectionKey> remoteIdentifierKeys =
+                new AtomicReferenceArray<>(Byte.MAX_VALUE + 1);
+        boolean success = false;
+        try {
+            // the first event loop is started last, when the others are ready to accept
+            // connections from it
+            for (int i = threads - 1; i >= 0; i--) {
+                eventLoops[i] = new TcpReplicator(replica, externalizable, replicationConfig,
+                        remoteNodeValidator, name, connectionListener, i, eventLoops,
+                        remoteIdentifierKeys);
+            }
+            success = true;
+        } finally {
+            if (!success)
+                closeEventLoops(eventLoops);
+        }
+        return () -> closeEventLoops(eventLoops);
+    }
+
+    private static void closeEventLoops(TcpReplicator[] eventLoops) {
+        for (TcpReplicator eventLoop : eventLoops) {
+            if (eventLoop != null)
+                eventLoop.close();
+        }
+    }
+
     /**
      * @throws IOException on an io error.
      */
@@ -118,8 +201,27 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
                          String name,
                          @Nullable final ConnectionListener connectionListener)
             throws IOException {
+        this(replica, externalizable, replicationConfig, remoteNodeValidator, name,
+                connectionListener, 0, null, null);
+    }
 
-        super("TcpSocketReplicator-" + replica.identifier(), replicationConfig.throttlingConfig());
+    private TcpReplicator(@NotNull final Replica replica,
+                          @NotNull final Replica.EntryExternalizable externalizable,
+                          @NotNull final TcpTransportAndNetworkConfig replicationConfig,
+                          @Nullable final RemoteNodeValidator remoteNodeValidator,
+                          String name,
+                          @Nullable final ConnectionListener connectionListener,
+                          int eventLoopIndex, @Nullable TcpReplicator<K, V>[] eventLoops,
+                          @Nullable AtomicReferenceArray<SelectionKey> remoteIdentifierKeys)
+            throws IOException {
+
+        super("TcpSocketReplicator-" + replica.identifier() +
+                        (eventLoops != null ? "-" + eventLoopIndex : ""),
+                replicationConfig.throttlingConfig());
+
+        this.eventLoopIndex = eventLoopIndex;
+        this.eventLoops = eventLoops;
+        this.remoteIdentifierKeys = remoteIdentifierKeys;
 
         final ThrottlingConfig throttlingConfig = replicationConfig.throttlingConfig();
         long throttleBucketInterval = throttlingConfig.bucketInterval(MILLISECONDS);
@@ -127,6 +229,7 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
         heartBeatIntervalMillis = replicationConfig.heartBeatInterval(MILLISECONDS);
 
         selectorTimeout = Math.min(heartBeatIntervalMillis / 4, throttleBucketInterval);
+        batchLingerNanos = replicationConfig.batchLinger(NANOSECONDS);
 
         this.replica = replica;
         this.localIdentifier = replica.identifier();
@@ -136,6 +239,7 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
 
         this.remoteNodeValidator = remoteNodeValidator;
         this.name = name;
+        compression = replicationConfig.compression() ? new TcpBatchCompression() : null;
 
         this.connectionListener = (connectionListener == null) ? null : new ConnectionListener() {
 
@@ -168,9 +272,14 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
             final InetSocketAddress serverInetSocketAddress =
                     new InetSocketAddress(replicationConfig.serverPort());
             final Details serverDetails = new Details(serverInetSocketAddress, localIdentifier);
-            new ServerConnector(serverDetails).connect();
+            if (eventLoopIndex == 0)
+                new ServerConnector(serverDetails).connect();
 
+            int endpointIndex = 0;
             for (InetSocketAddress client : replicationConfig.endpoints()) {
+                // all event loops iterate the same set, so each endpoint is connected once
+                if (eventLoops != null && endpointIndex++ % eventLoops.length != eventLoopIndex)
+                    continue;
                 final Details clientDetails = new Details(client, localIdentifier);
                 new ClientConnector(clientDetails).connect();
             }
@@ -191,6 +300,10 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
                 // set the OP_WRITE when data is ready to send
                 opWriteUpdater.applyUpdates();
 
+                // set the OP_WRITE when the held back batches should be sent
+                if (!lingeringKeys.isEmpty())
+                    sendLingeringBatches(System.nanoTime());
+
                 if (useJavaNIOSelectionKeys) {
                     // use the standard java nio selector
 
@@ -241,6 +354,11 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
             if (!isClosed) {
                 closeResources();
             }
+            if (compression != null) {
+                LOG.info("name={}, compressed entry batches: {} bytes -> {} bytes", name,
+                        compression.uncompressedBytes(), compression.compressedBytes());
+                compression.close();
+            }
         }
     }
 
@@ -294,14 +412,61 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
     private int select() throws IOException {
 
         long start = System.nanoTime();
+        long lingerRemainingNanos;
 
-        while (System.nanoTime() < start + SPIN_LOOP_TIME_IN_NONOSECONDS) {
+        while (true) {
             final int keys = selector.selectNow();
             if (keys != 0)
                 return keys;
+            final long nanoTime = System.nanoTime();
+            lingerRemainingNanos = lingerRemainingNanos(nanoTime);
+            // the held back batches should be sent
+            if (lingerRemainingNanos <= 0L)
+                return 0;
+            // select with timeout has millisecond granularity, shorter linger times are awaited
+            // by spinning
+            if (nanoTime >= start + SPIN_LOOP_TIME_IN_NONOSECONDS &&
+                    lingerRemainingNanos >= MILLISECONDS.toNanos(1))
+                break;
         }
 
-        return selector.select(selectorTimeout);
+        if (lingeringKeys.isEmpty())
+            return selector.select(selectorTimeout);
+        // wake up in time to send the held back batches
+        long lingerTimeout = NANOSECONDS.toMillis(lingerRemainingNanos);
+        return selector.select(Math.min(selectorTimeout, lingerTimeout));
+    }
+
+    /**
+     * Returns the nanos until the first of the held back batches should be sent, or {@code
+     * Long.MAX_VALUE} if there are no held back batches.
+     */
+    private long lingerRemainingNanos(final long nanoTime) {
+        long remainingNanos = Long.MAX_VALUE;
+        for (final SelectionKey key : lingeringKeys) {
+            // invalid keys are removed in sendLingeringBatches()
+            if (!key.isValid())
+                return 0L;
+            final Attached attached = (Attached) key.attachment();
+            remainingNanos = Math.min(remainingNanos,
+                    attached.entryWriter.lingerRemainingNanos(nanoTime));
+        }
+        return remainingNanos;
+    }
+
+    private void sendLingeringBatches(final long nanoTime) {
+        for (Iterator<SelectionKey> it = lingeringKeys.iterator(); it.hasNext(); ) {
+            final SelectionKey key = it.next();
+            if (!key.isValid()) {
+                it.remove();
+                continue;
+            }
+            final Attached attached = (Attached) key.attachment();
+            if (attached.entryWriter.lingerElapsed(nanoTime)) {
+                enableOpWrite(key);
+                it.remove();
+            }
+        }
     }
 
     /**
@@ -506,13 +671,14 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
                 closeables.add(server);
         }
 
+        final TcpReplicator<K, V> eventLoop = nextEventLoop();
         SocketChannel channel = null;
 
         try {
             channel = server.accept();
         } finally {
             if (channel != null)
-                closeables.add(channel);
+                eventLoop.closeables.add(channel);
         }
 
         channel.configureBlocking(false);
@@ -521,6 +687,52 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
         channel.socket().setSoTimeout(0);
         channel.socket().setSoLinger(false, 0);
 
+        if (eventLoop == this) {
+            registerAccepted(channel);
+        } else {
+            // the registration has be be run on the same thread as the selector
+            final SocketChannel acceptedChannel = channel;
+            eventLoop.addPendingRegistration(() -> {
+                try {
+                    eventLoop.registerAccepted(acceptedChannel);
+                } catch (ClosedChannelException e) {
+                    LOG.debug("", e);
+                }
+            });
+            eventLoop.selector.wakeup();
+        }
+    }
+
+    /**
+     * Returns {@code false} if the remote identifier is served by an open connection of another
+     * event loop of this node.
+     */
+    private boolean claimRemoteIdentifier(final byte remoteIdentifier,
+                                          @NotNull final SelectionKey key) {
+        if (remoteIdentifierKeys == null || remoteIdentifier < 0)
+            return true;
+        while (true) {
+            final SelectionKey servingKey = remoteIdentifierKeys.get(remoteIdentifier);
+            if (servingKey != null && servingKey.selector() != selector &&
+                    servingKey.isValid() && servingKey.channel().isOpen()) {
+                return false;
+            }
+            if (remoteIdentifierKeys.compareAndSet(remoteIdentifier, servingKey, key))
+                return true;
+        }
+    }
+
+    @NotNull
+    private TcpReplicator<K, V> nextEventLoop() {
+        if (eventLoops == null)
+            return this;
+        TcpReplicator<K, V> eventLoop = eventLoops[nextEventLoop];
+        nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+        return eventLoop != null ? eventLoop : this;
+    }
+
+    private void registerAccepted(@NotNull final SocketChannel channel)
+            throws ClosedChannelException {
         final Attached attached = new Attached();
         attached.entryReader = new TcpSocketChannelEntryReader();
         attached.entryWriter = new TcpSocketChannelEntryWriter();
@@ -618,6 +830,13 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
             if (remoteIdentifier == Byte.MIN_VALUE)
                 return;
 
+            if (!claimRemoteIdentifier(remoteIdentifier, key)) {
+                // the remote node reconnects, if the other connection is dropped
+                throw new IllegalStateException("dropping connection, as the remote-identifier " +
+                        "is already served by another event loop, identifier=" +
+                        remoteIdentifier);
+            }
+
             attached.remoteIdentifier = remoteIdentifier;
 
             final SocketChannel channel = (SocketChannel) key.channel();
@@ -688,6 +907,19 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
             if (attached.serverVersion == null)
                 return;
 
+            if (attached.serverVersion.endsWith(COMPRESSION_VERSION_SUFFIX)) {
+                attached.serverVersion = attached.serverVersion.substring(0,
+                        attached.serverVersion.length() - COMPRESSION_VERSION_SUFFIX.length());
+                // the remote node accepts compressed frames, use them if enabled locally as well
+                writer.compressEntries = compression != null;
+            }
+
+            if (attached.serverVersion.endsWith(DELTA_VERSION_SUFFIX)) {
+                attached.serverVersion = attached.serverVersion.substring(0,
+                        attached.serverVersion.length() - DELTA_VERSION_SUFFIX.length());
+                writer.entryCallback.acceptsDeltas = true;
+            }
+
             if (!isValidVersionNumber(attached.serverVersion)) {
                 LOG.warn("Closing the remote connection : Please check that you don't have " +
                         "a third party system incorrectly connecting to ChronicleMap, " +
@@ -765,6 +997,14 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
         } else if (attached.remoteModificationIterator != null)
             entryWriter.entriesToBuffer(attached.remoteModificationIterator);
 
+        if (batchLingerNanos > 0 && attached.isHandShakingComplete() &&
+                !entryWriter.isWorkIncomplete() && entryWriter.holdsBackBatch(System.nanoTime())) {
+            // OP_WRITE is set again on the next change, or when the linger time elapses
+            key.interestOps(key.interestOps() & ~OP_WRITE);
+            lingeringKeys.add(key);
+            return;
+        }
+
         try {
             final int len = entryWriter.writeBufferToSocket(socketChannel, approxTime);
 
@@ -1104,6 +1344,13 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
         @Nullable
         public Work uncompletedWork;
         private long lastSentTime;
+        // set during handshaking, if both this and the remote node enable compression
+        boolean compressEntries;
+        // the number of entries written to the buffer since the last write to the socket
+        private int batchEntries;
+        // if the buffered entries are held back, to be sent in a larger batch
+        private boolean holdingBack;
+        private long holdBackStartNanos;
 
         private TcpSocketChannelEntryWriter() {
             entryCallback = new EntryCallback(externalizable, replicationConfig.tcpBufferSize());
@@ -1144,7 +1391,11 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
         }
 
         void writeServerVersion() {
-            String version = String.format("%1$" + 64 + "s", version());
+            // deltas are accepted regardless of the local delta replication config
+            String localVersion = version() + DELTA_VERSION_SUFFIX;
+            if (compression != null)
+                localVersion += COMPRESSION_VERSION_SUFFIX;
+            String version = String.format("%1$" + 64 + "s", localVersion);
             ByteBuffer codedVersion = StandardCharsets.US_ASCII.encode(version);
             if (codedVersion.remaining() != 64)
                 throw new AssertionError();
@@ -1159,9 +1410,11 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
          */
         void entriesToBuffer(@NotNull final Replica.ModificationIterator modificationIterator) {
 
+            final long batchStart = entryIn().writePosition();
+            final int batchMaxEntries = replicationConfig.batchMaxEntries();
             int entriesWritten = 0;
             try {
-                for (; ; entriesWritten++) {
+                for (; batchEntries < batchMaxEntries; entriesWritten++) {
 
                     long start = entryIn().writePosition();
 
@@ -1172,8 +1425,9 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
                     // this case success will return false, so we return so that we can send to
                     // the socket what we have.
                     if (!success)
-                        return;
+                        break;
 
+                    batchEntries++;
                     long entrySize = entryIn().writePosition() - start;
 
                     if (entrySize > largestEntrySoFar)
@@ -1182,8 +1436,8 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
                     // we've filled up the buffer lets give another channel a chance to send
                     // some data
                     if (entryIn().writeRemaining() <= largestEntrySoFar ||
-                            entryIn().writePosition() > replicationConfig.tcpBufferSize())
-                        return;
+                            entryIn().readRemaining() > replicationConfig.tcpBufferSize())
+                        break;
 
                     // if we have space in the buffer to write more data and we just wrote data
                     // into the buffer then let try and write some more
@@ -1192,10 +1446,55 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
                 if (LOG.isDebugEnabled())
                     LOG.debug("Entries written: {}", entriesWritten);
             }
+
+            if (compressEntries && entryIn().writePosition() > batchStart) {
+                assert compression != null;
+                boolean compressed = compression.compress(entryIn(), batchStart);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Entry batch compressed={}, total compression ratio={}",
+                            compressed, (double) compression.uncompressedBytes() /
+                                    compression.compressedBytes());
+                }
+            }
         }
 
         /**
-         * writes the contents of the buffer to the socket
+         * Checks if the buffered entries should be held back, to be sent together with the
+         * entries changed later. The batch is held back until the {@linkplain
+         * TcpTransportAndNetworkConfig#batchLinger(long, TimeUnit) linger time} elapses, or the
+         * batch reaches the configured size or number of entries.
+         *
+         * @param nanoTime the current {@link System#nanoTime()}
+         * @return {@code true} if the buffer shouldn't be written to the socket yet
+         */
+        boolean holdsBackBatch(final long nanoTime) {
+            final Bytes in = entryIn();
+            // don't hold back the remainder of a partially written batch
+            if (in.readRemaining() == 0 || in.readPosition() != 0 ||
+                    in.readRemaining() >= replicationConfig.batchMinBytes() ||
+                    batchEntries >= replicationConfig.batchMaxEntries()) {
+                return false;
+            }
+            if (!holdingBack) {
+                holdingBack = true;
+                holdBackStartNanos = nanoTime;
+            }
+            return !lingerElapsed(nanoTime);
+        }
+
+        boolean lingerElapsed(final long nanoTime) {
+            return lingerRemainingNanos(nanoTime) <= 0L;
+        }
+
+        long lingerRemainingNanos(final long nanoTime) {
+            return holdingBack ? batchLingerNanos - (nanoTime - holdBackStartNanos) : 0L;
+        }
+
+        /**
+         * writes the contents of the buffer to the socket. The socket is written directly from the
+         * (direct) buffer, which the entries are serialized to. After a partial write, the unsent
+         * bytes are left in place and the next write continues from the buffer's read position,
+         * the buffer is compacted only when the sent prefix grows larger than the tcp buffer size.
          *
          * @param socketChannel the socket to publish the buffer to
          * @param approxTime    an approximation of the current time in millis
@@ -1214,26 +1513,43 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
             // if we still have some unwritten writer from last time
             lastSentTime = approxTime;
 
-            out.position(0);
-            out.limit(bytesToWrite);
+            out.limit((int) in.writePosition());
+            out.position((int) in.readPosition());
 
             final int bytesWritten = socketChannel.write(out);
 
             if (LOG.isDebugEnabled())
                 LOG.debug("bytes-written=" + bytesWritten);
 
+            if (bytesWritten > 0) {
+                // the batch is sent, the next one starts
+                batchEntries = 0;
+                holdingBack = false;
+            }
+
             if (bytesWritten == bytesToWrite) {
-                out.clear();
                 in.clear();
             } else {
-                out.compact();
-                in.writePosition(out.position());
-                out.clear();
+                in.readSkip(bytesWritten);
+                if (in.readPosition() >= replicationConfig.tcpBufferSize())
+                    compact(in, out);
             }
+            out.clear();
 
             return bytesWritten;
         }
 
+        /**
+         * moves the unsent bytes to the start of the buffer
+         */
+        private void compact(@NotNull final Bytes in, @NotNull final ByteBuffer out) {
+            out.limit((int) in.writePosition());
+            out.position((int) in.readPosition());
+            out.compact();
+            in.clear();
+            in.writePosition(out.position());
+        }
+
 
         /**
          * used to send an single zero byte if we have not send any data for up to the
@@ -1366,7 +1682,15 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
                     final long limit = entryOut.readLimit();
                     entryOut.readLimit(nextEntryPos);
 
-                    externalizable.readExternalEntry(entryOut);
+                    if (state == TcpBatchCompression.COMPRESSED_ENTRIES) {
+                        if (compression == null) {
+                            throw new IllegalStateException("Compressed entries are received " +
+                                    "from a remote node, but compression is not enabled locally");
+                        }
+                        entriesFromBatch(compression.inflate(entryOut, (int) sizeInBytes));
+                    } else {
+                        externalizable.readExternalEntry(entryOut);
+                    }
 
                     entryOut.readLimit(limit);
 
@@ -1382,6 +1706,24 @@ public final class TcpReplicator<K, V> extends AbstractChannelReplicator impleme
             }
         }
 
+        /**
+         * reads entries from an inflated batch, the batch contains entries in the same format,
+         * as they are sent over the network without compression
+         */
+        private void entriesFromBatch(@NotNull Bytes batch) {
+            final long batchLimit = batch.readLimit();
+            while (batch.readRemaining() > 0) {
+                // the entry state
+                batch.readByte();
+                final int entrySize = batch.readInt();
+                final long nextEntryPos = batch.readPosition() + entrySize;
+                batch.readLimit(nextEntryPos);
+                externalizable.readExternalEntry(batch);
+                batch.readLimit(batchLimit);
+                batch.readPosition(nextEntryPos);
+            }
+        }
+
         /**
          * compacts the buffer and updates the {@code socketIn} and {@code entryOut} accordingly
          */
@@ -16,11 +16,17 @@
 
 package net.openhft.chronicle.map;
 
+import net.openhft.chronicle.bytes.Byteable;
 import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.hash.ChecksumEntry;
 import net.openhft.chronicle.hash.Data;
+import net.openhft.chronicle.hash.impl.BigSegmentHeader;
+import net.openhft.chronicle.hash.impl.HashStatistics;
+import net.openhft.chronicle.hash.impl.TierCountersArea;
 import net.openhft.chronicle.hash.impl.VanillaChronicleHash;
 import net.openhft.chronicle.hash.impl.stage.hash.ChainingInterface;
+import net.openhft.chronicle.hash.locks.DeadProcessLockRecovery;
 import net.openhft.chronicle.hash.serialization.DataAccess;
 import net.openhft.chronicle.hash.serialization.SizeMarshaller;
 import net.openhft.chronicle.hash.serialization.SizedReader;
@@ -31,13 +37,18 @@ import net.openhft.chronicle.map.impl.CompiledMapQueryContext;
 import net.openhft.chronicle.map.impl.ret.InstanceReturnValue;
 import net.openhft.chronicle.values.Values;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.util.Set;
+import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
+import static net.openhft.chronicle.hash.serialization.StatefulCopyable.copyIfNeeded;
 import static net.openhft.chronicle.map.ChronicleMapBuilder.greatestCommonDivisor;
 import static net.openhft.chronicle.values.ValueModel.$$NATIVE;
 
@@ -46,7 +57,9 @@ public class VanillaChronicleMap<K, V, R>
         ExternalMapQueryContext<K, V, ?>>
         implements AbstractChronicleMap<K, V> {
 
-    private static final long serialVersionUID = 4L;
+    private static final Logger LOG = LoggerFactory.getLogger(VanillaChronicleMap.class);
+
+    private static final long serialVersionUID = 5L;
 
     /////////////////////////////////////////////////
     // Value Data model
@@ -57,6 +70,10 @@ public class VanillaChronicleMap<K, V, R>
     public final DataAccess<V> originalValueDataAccess;
 
     public final boolean constantlySizedEntry;
+    /**
+     * The size of all values, if it is constant and not stored in entries, otherwise -1
+     */
+    public transient long constantValueSize;
 
     /////////////////////////////////////////////////
     // Memory management and dependent fields
@@ -68,6 +85,7 @@ public class VanillaChronicleMap<K, V, R>
     // Behavior
     transient boolean putReturnsNull;
     transient boolean removeReturnsNull;
+    transient boolean optimisticReads;
 
     transient Set<Entry<K, V>> entrySet;
     
@@ -76,6 +94,7 @@ public class VanillaChronicleMap<K, V, R>
     public transient DefaultValueProvider<K, V> defaultValueProvider;
     
     transient ThreadLocal<ChainingInterface> cxt;
+    transient ThreadLocal<OptimisticReader<K, V>> optimisticReader;
 
     public VanillaChronicleMap(ChronicleMapBuilder<K, V> builder) throws IOException {
         super(builder);
@@ -113,10 +132,45 @@ public class VanillaChronicleMap<K, V, R>
     void initTransientsFromBuilder(ChronicleMapBuilder<K, V> builder) {
         putReturnsNull = builder.putReturnsNull();
         removeReturnsNull = builder.removeReturnsNull();
+        optimisticReads = builder.optimisticReads();
 
         this.entryOperations = (MapEntryOperations<K, V, R>) builder.entryOperations;
         this.methods = (MapMethods<K, V, R>) builder.methods;
         this.defaultValueProvider = builder.defaultValueProvider;
+        statistics = builder.recordStatistics() ? new HashStatistics(this) : null;
+        hugePagesDirectory = builder.hugePagesDirectory();
+        syncPeriodMillis = builder.syncPeriodMillis();
+        DeadProcessLockRecovery recovery = builder.deadProcessLockRecovery();
+        segmentHeader = new BigSegmentHeader(builder.lockWaitStrategy(),
+                recovery != DeadProcessLockRecovery.NONE,
+                recovery == DeadProcessLockRecovery.RELEASE_AND_VERIFY_CHECKSUMS ?
+                        this::verifyChecksumsAfterLockRecovery : null,
+                statistics);
+    }
+
+    /**
+     * Is called when the lock of the segment is released after a dead process, the segment is
+     * not locked by the current thread.
+     */
+    private void verifyChecksumsAfterLockRecovery(long segmentHeaderAddress) {
+        int segmentIndex = segmentIndexBySegmentHeaderAddress(segmentHeaderAddress);
+        if (!checksumEntries) {
+            LOG.warn("Cannot verify entries of segment {} after lock recovery, because " +
+                    "entry checksums are not stored", segmentIndex);
+            return;
+        }
+        long[] wrongChecksums = {0L};
+        try (MapSegmentContext<K, V, ?> c = segmentContext(segmentIndex)) {
+            c.forEachSegmentEntry(e -> {
+                if (!((ChecksumEntry) e).checkSum()) {
+                    wrongChecksums[0]++;
+                    LOG.error("Entry with key {} in segment {} has wrong checksum",
+                            e.key(), segmentIndex);
+                }
+            });
+        }
+        LOG.warn("Verified entries of segment {} after lock recovery, {} entries have wrong " +
+                "checksums", segmentIndex, wrongChecksums[0]);
     }
 
     @Override
@@ -126,7 +180,9 @@ public class VanillaChronicleMap<K, V, R>
     }
 
     private void initOwnTransients() {
+        constantValueSize = constantUnstoredSize(valueSizeMarshaller);
         cxt = new ThreadLocal<>();
+        optimisticReader = ThreadLocal.withInitial(() -> new OptimisticReader<>(this));
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -206,6 +262,7 @@ public class VanillaChronicleMap<K, V, R>
         // TODO optimize to update lock in certain cases
         try {
             q.writeLock().lock();
+            onAcquireContext(q);
             checkAcquiredUsing(acquireUsingBody(q, usingValue), usingValue);
             return q.acquireHandle();
         } catch (Throwable e) {
@@ -218,6 +275,24 @@ public class VanillaChronicleMap<K, V, R>
         }
     }
 
+    /**
+     * Called in {@link #acquireContext(Object, Object)} under the write lock, before the value is
+     * acquired. {@link ReplicatedChronicleMap} overrides this method to remember the value bytes
+     * for delta replication.
+     */
+    void onAcquireContext(QueryContextInterface<K, V, R> q) {
+        // no-op by default
+    }
+
+    /**
+     * Writes back the value, acquired via {@link #acquireContext(Object, Object)}, when the
+     * returned handle is closed.
+     */
+    public void replaceAcquiredValue(
+            MapEntryOperations<K, V, ?> q, MapEntry<K, V> entry, Data<V> newValue) {
+        q.replaceValue(entry, newValue);
+    }
+
     private static <V> void checkAcquiredUsing(V acquired, V using) {
         if (acquired != using) {
             throw new IllegalArgumentException("acquire*() MUST reuse the given " +
@@ -315,6 +390,24 @@ public class VanillaChronicleMap<K, V, R>
         return q;
     }
 
+    @Override
+    public int compactTiers() {
+        int releasedTiers = 0;
+        for (int segmentIndex = 0; segmentIndex < actualSegments; segmentIndex++) {
+            // racy check, just to avoid locking segments which don't have extra tiers, unless
+            // Bloom filters of segments should be rebuilt anyway
+            long tierCountersAreaAddr = segmentBaseAddr(segmentIndex) + segmentHashLookupOuterSize;
+            if (segmentBloomFilterSize == 0L &&
+                    TierCountersArea.nextTierIndex(tierCountersAreaAddr) == 0L)
+                continue;
+            try (IterationContext<K, V, ?> c = iterationContext()) {
+                c.initSegmentIndex(segmentIndex);
+                releasedTiers += c.compactSegmentTiers();
+            }
+        }
+        return releasedTiers;
+    }
+
     @Override
     public MapSegmentContext<K, V, ?> segmentContext(int segmentIndex) {
         IterationContext<K, V, ?> c = iterationContext();
@@ -322,8 +415,24 @@ public class VanillaChronicleMap<K, V, R>
         return c;
     }
 
+    /**
+     * Optimistic reads bypass {@link #methods} and the entry layout of {@link
+     * ReplicatedChronicleMap}, and values which are read as off-heap references cannot be read
+     * from a copy.
+     */
+    boolean optimisticReadsSupported() {
+        return optimisticReads && methods == DefaultSpi.mapMethods() &&
+                nativeValueClass == null && !Byteable.class.isAssignableFrom(vClass);
+    }
+
     @Override
     public V get(Object key) {
+        if (optimisticReadsSupported()) {
+            checkKey(key);
+            Object value = optimisticReader.get().get((K) key, null);
+            if (value != OptimisticReader.LOCKED_READ_REQUIRED)
+                return (V) value;
+        }
         try (QueryContextInterface<K, V, R> q = queryContext(key)) {
             methods.get(q, q.defaultReturnValue());
             return q.defaultReturnValue().returnValue();
@@ -332,6 +441,12 @@ public class VanillaChronicleMap<K, V, R>
 
     @Override
     public V getUsing(K key, V usingValue) {
+        if (optimisticReadsSupported()) {
+            checkKey(key);
+            Object value = optimisticReader.get().get(key, usingValue);
+            if (value != OptimisticReader.LOCKED_READ_REQUIRED)
+                return (V) value;
+        }
         try (QueryContextInterface<K, V, R> q = queryContext(key)) {
             q.usingReturnValue().initUsingReturnValue(usingValue);
             methods.get(q, q.usingReturnValue());
@@ -409,6 +524,154 @@ public class VanillaChronicleMap<K, V, R>
         }
     }
 
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        List<Data<K>> keys = new ArrayList<>(m.size());
+        List<Data<V>> values = new ArrayList<>(m.size());
+        DataAccess<K> keyDataAccess = originalKeyDataAccess.copy();
+        DataAccess<V> valueDataAccess = originalValueDataAccess.copy();
+        SizedReader<K> keyReader = copyIfNeeded(originalKeyReader);
+        SizedReader<V> valueReader = copyIfNeeded(originalValueReader);
+        m.forEach((k, v) -> {
+            checkKey(k);
+            checkValue(v);
+            // serialized once, to be held while the entries are grouped by segments
+            keys.add(SerializedData.copyOf(k, keyDataAccess, keyReader));
+            values.add(SerializedData.copyOf(v, valueDataAccess, valueReader));
+        });
+        putAllData(keys, values);
+    }
+
+    /**
+     * Puts the given serialized entries, grouped by segments, so that each segment is locked once.
+     * Used by {@link #putAll(Map)}, and by {@link BinarySnapshot} to avoid deserialization of keys
+     * and values.
+     */
+    void putAllData(List<Data<K>> keys, List<Data<V>> values) {
+        long[] keyHashes = new long[keys.size()];
+        long[] order = new long[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            long keyHash = keyHashFunction().hash(keys.get(i));
+            keyHashes[i] = keyHash;
+            order[i] = (((long) hashSplitting.segmentIndex(keyHash)) << 32) | i;
+        }
+        Arrays.sort(order);
+        for (int from = 0, to; from < order.length; from = to) {
+            to = segmentGroupEnd(order, from);
+            int first = (int) order[from];
+            try (QueryContextInterface<K, V, R> q = queryContext(keys.get(first))) {
+                // Taking the write lock in the outermost context once, puts in the nested
+                // contexts below only increment the same-thread lock counts
+                q.writeLock().lock();
+                methods.put(q, values.get(first), NullReturnValue.get());
+                for (int i = from + 1; i < to; i++) {
+                    int index = (int) order[i];
+                    Data<K> key = keys.get(index);
+                    if (keyHashes[first] == keyHashes[index] &&
+                            Data.bytesEquivalent(q.queriedKey(), key)) {
+                        methods.put(q, values.get(index), NullReturnValue.get());
+                        continue;
+                    }
+                    try (QueryContextInterface<K, V, R> nested = queryContext(key)) {
+                        methods.put(nested, values.get(index), NullReturnValue.get());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void exportSnapshot(File toFile, boolean compressed) throws IOException {
+        BinarySnapshot.write(this, toFile, compressed);
+    }
+
+    @Override
+    public void importSnapshot(File fromFile) throws IOException {
+        BinarySnapshot.read(this, fromFile);
+    }
+
+    @Override
+    public void getAll(Collection<? extends K> keys,
+                       BiConsumer<? super K, ? super V> action) {
+        List<K> keyList = new ArrayList<>(keys);
+        DataAccess<K> keyDataAccess = originalKeyDataAccess.copy();
+        long[] keyHashes = new long[keyList.size()];
+        long[] order = sortBySegments(keyList, keyDataAccess, keyHashes);
+        Object[] values = new Object[keyList.size()];
+        for (int from = 0, to; from < order.length; from = to) {
+            to = segmentGroupEnd(order, from);
+            int first = (int) order[from];
+            try (QueryContextInterface<K, V, R> q = queryContext(keyList.get(first))) {
+                // Taking the read lock in the outermost context once, lookups in the nested
+                // contexts below only increment the same-thread lock count
+                q.readLock().lock();
+                methods.get(q, q.defaultReturnValue());
+                values[first] = q.defaultReturnValue().returnValue();
+                for (int i = from + 1; i < to; i++) {
+                    int index = (int) order[i];
+                    K key = keyList.get(index);
+                    if (sameKey(q, keyHashes[first], key, keyHashes[index], keyDataAccess)) {
+                        values[index] = values[first];
+                        continue;
+                    }
+                    try (QueryContextInterface<K, V, R> nested = queryContext(key)) {
+                        methods.get(nested, nested.defaultReturnValue());
+                        values[index] = nested.defaultReturnValue().returnValue();
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < values.length; i++) {
+            action.accept(keyList.get(i), (V) values[i]);
+        }
+    }
+
+    /**
+     * Returns indexes of the given keys in the lower halves of longs, and indexes of segments to
+     * which the keys belong in the upper halves, sorted, i. e. grouped by segments.
+     */
+    private long[] sortBySegments(List<K> keys, DataAccess<K> keyDataAccess, long[] keyHashes) {
+        long[] order = new long[keys.size()];
+        try {
+            for (int i = 0; i < order.length; i++) {
+                K key = keys.get(i);
+                checkKey(key);
+                long keyHash = keyHashFunction().hash(keyDataAccess.getData(key));
+                keyHashes[i] = keyHash;
+                order[i] = (((long) hashSplitting.segmentIndex(keyHash)) << 32) | i;
+            }
+        } finally {
+            keyDataAccess.uninit();
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    private static int segmentGroupEnd(long[] order, int from) {
+        long segmentIndex = order[from] >>> 32;
+        int to = from + 1;
+        while (to < order.length && (order[to] >>> 32) == segmentIndex) {
+            to++;
+        }
+        return to;
+    }
+
+    /**
+     * Nested same-thread contexts cannot query the key, which is already queried in the outer
+     * context, so keys which are equal to the outer context's key in serialized form are handled
+     * in the outer context.
+     */
+    private static <K> boolean sameKey(QueryContextInterface<K, ?, ?> q, long queriedKeyHash,
+                                       K key, long keyHash, DataAccess<K> keyDataAccess) {
+        if (queriedKeyHash != keyHash)
+            return false;
+        try {
+            return Data.bytesEquivalent(q.queriedKey(), keyDataAccess.getData(key));
+        } finally {
+            keyDataAccess.uninit();
+        }
+    }
+
     @Override
     public V remove(Object key) {
         try (QueryContextInterface<K, V, R> q = queryContext(key)) {
@@ -23,4 +23,6 @@ public interface IterationContext<K, V, R> extends MapEntry<K, V>, MapSegmentCon
     long pos();
     
     void initSegmentIndex(int segmentIndex);
+
+    int compactSegmentTiers();
 }
@@ -58,6 +58,10 @@ public abstract class MapEntryStages<K, V> extends HashEntryStages<K>
 
     void initValueSize(long valueSize) {
         this.valueSize = valueSize;
+        if (mh.m().constantValueSize >= 0) {
+            valueOffset = constantValueOffset();
+            return;
+        }
         Bytes segmentBytes = s.segmentBytesForWrite();
         segmentBytes.writePosition(valueSizeOffset);
         mh.m().valueSizeMarshaller.writeSize(segmentBytes, valueSize);
@@ -70,6 +74,13 @@ public abstract class MapEntryStages<K, V> extends HashEntryStages<K>
     }
 
     void initValueSize() {
+        long constantValueSize = mh.m().constantValueSize;
+        if (constantValueSize >= 0) {
+            // fast path, the value size is not stored
+            valueSize = constantValueSize;
+            valueOffset = constantValueOffset();
+            return;
+        }
         Bytes segmentBytes = s.segmentBytesForRead();
         segmentBytes.readPosition(valueSizeOffset);
         valueSize = mh.m().readValueSize(segmentBytes);
@@ -81,6 +92,15 @@ public abstract class MapEntryStages<K, V> extends HashEntryStages<K>
         valueOffset = segmentBytes.readPosition();
     }
 
+    /**
+     * The same alignment as in {@link #initValueSize()}, computed without positioning the segment
+     * bytes, because the size is not stored.
+     */
+    private long constantValueOffset() {
+        long segmentBaseAddr = s.segmentBaseAddr;
+        return alignAddr(segmentBaseAddr + valueSizeOffset, mh.m().alignment) - segmentBaseAddr;
+    }
+
     void initValueSize_EqualToOld(long oldValueSizeOffset, long oldValueSize, long oldValueOffset) {
         valueSize = oldValueSize;
         valueOffset = valueSizeOffset + (oldValueOffset - oldValueSizeOffset);
@@ -210,6 +230,8 @@ public abstract class MapEntryStages<K, V> extends HashEntryStages<K>
     }
 
     protected void relocation(Data<V> newValue, long newSizeOfEverythingBeforeValue) {
+        if (s.statisticsCounters != null)
+            s.statisticsCounters.relocation();
         s.innerWriteLock.lock();
         s.free(pos, entrySizeInChunks);
         long entrySize = innerEntrySize(newSizeOfEverythingBeforeValue, newValue.size());
@@ -234,10 +256,16 @@ public abstract class MapEntryStages<K, V> extends HashEntryStages<K>
         CompactOffHeapLinearHashTable hl = hh.h().hashLookup;
         long oldEntry = hl.readEntry(oldHashLookupAddr, oldHashLookupPos);
         hl.checkValueForPut(pos);
-        hl.writeEntryVolatile(s.segmentBaseAddr, hlp.hashLookupPos,
+        long newHashLookupPos =
+                tierHasChanged ? ks.hashLookupSearch.insertPos() : hlp.hashLookupPos;
+        hl.writeEntryVolatile(s.segmentBaseAddr, newHashLookupPos,
                 oldEntry, hl.key(oldEntry), pos);
-        if (tierHasChanged)
+        if (tierHasChanged) {
+            // the key is already copied to the new tier
+            s.bloomFilterAdd(hh.h().keyHashFunction().hashMemory(
+                    s.segmentBaseAddr + keyOffset, keySize));
             hl.remove(oldHashLookupAddr, oldHashLookupPos);
+        }
     }
 
     public final long entrySize(long keySize, long valueSize) {
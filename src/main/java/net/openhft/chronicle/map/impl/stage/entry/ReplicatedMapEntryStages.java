@@ -61,7 +61,7 @@ public abstract class ReplicatedMapEntryStages<K, V> extends MapEntryStages<K, V
         return replicationBytesOffset + 8L;
     }
 
-    byte identifier() {
+    public byte identifier() {
         return s.segmentBS.readByte(identifierOffset());
     }
 
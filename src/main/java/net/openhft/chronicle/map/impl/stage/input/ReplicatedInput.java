@@ -22,6 +22,7 @@ import net.openhft.chronicle.hash.impl.stage.entry.SegmentStages;
 import net.openhft.chronicle.hash.impl.stage.hash.LogHolder;
 import net.openhft.chronicle.hash.impl.stage.query.KeySearch;
 import net.openhft.chronicle.hash.replication.RemoteOperationContext;
+import net.openhft.chronicle.map.ReplicatedChronicleMap;
 import net.openhft.chronicle.map.impl.ReplicatedChronicleMapHolder;
 import net.openhft.chronicle.map.impl.stage.data.DummyValueZeroData;
 import net.openhft.chronicle.map.impl.stage.data.bytes.ReplicatedInputKeyBytesData;
@@ -73,6 +74,13 @@ public abstract class ReplicatedInput<K, V, R>
     @Stage("ReplicationInput") public byte riId;
     @Stage("ReplicationInput") public boolean isDeleted;
 
+    // delta replication, see ReplicatedChronicleMap.writeExternalEntry()
+    @Stage("ReplicationInput") public boolean riDelta;
+    @Stage("ReplicationInput") public long riDeltaBaseTimestamp;
+    @Stage("ReplicationInput") public byte riDeltaBaseIdentifier;
+    @Stage("ReplicationInput") public long riDeltaOffset;
+    @Stage("ReplicationInput") public long riDeltaSize;
+
 
     public void initReplicationInput(Bytes replicatedInputBytes) {
         initReplicatedInputBytes(replicatedInputBytes);
@@ -84,10 +92,81 @@ public abstract class ReplicatedInput<K, V, R>
         riId = replicatedInputBytes.readByte();
         ru.initReplicationUpdate(riTimestamp, riId);
 
-        isDeleted = replicatedInputBytes.readBoolean();
+        riDelta = replicatedInputBytes.readByte(replicatedInputBytes.readPosition()) ==
+                ReplicatedChronicleMap.DELTA_ENTRY;
+        if (riDelta) {
+            replicatedInputBytes.readSkip(1);
+            isDeleted = false;
+        } else {
+            isDeleted = replicatedInputBytes.readBoolean();
+        }
 
         riKeyOffset = replicatedInputBytes.readPosition();
         riValueOffset = riKeyOffset + riKeySize;
+        if (riDelta) {
+            replicatedInputBytes.readPosition(riValueOffset);
+            riDeltaBaseTimestamp = replicatedInputBytes.readStopBit();
+            riDeltaBaseIdentifier = replicatedInputBytes.readByte();
+            riDeltaOffset = replicatedInputBytes.readStopBit();
+            riDeltaSize = replicatedInputBytes.readStopBit();
+            riValueOffset = replicatedInputBytes.readPosition();
+        }
+    }
+
+    public boolean deltaInput() {
+        return riDelta;
+    }
+
+    /**
+     * Applies the range of value bytes, received in a delta entry, to the value of the local
+     * entry, and writes the result to the given {@code output} in the format of a full replicated
+     * entry, which then should be processed via {@link #processReplicatedEvent()} as usual.
+     *
+     * <p>The range could be applied only if the local entry is the version, the delta is based on,
+     * or any later version, replicated from the same node. Otherwise this method returns {@code
+     * false}: the local entry is either newer than the delta, or the remote node is going to
+     * receive the conflicting local version and send back the full value.
+     *
+     * @return {@code true} if the full entry is written to the output
+     */
+    public boolean expandDelta(Bytes output) {
+        if (riId == mh.m().identifier())
+            return false;
+
+        q.initInputKey(replicatedInputKeyBytesValue);
+        s.innerUpdateLock.lock();
+        if (!q.entryPresent() || e.valueSize != riValueSize || !deltaBaseMatches()) {
+            if (lh.LOG.isDebugEnabled()) {
+                lh.LOG.debug("DELTA NOT APPLICABLE -  into local-id={}, remote-id={}, key={}",
+                        mh.m().identifier(), riId, ks.inputKey);
+            }
+            return false;
+        }
+
+        output.clear();
+        output.writeLong(bootstrapTimestamp);
+        mh.m().keySizeMarshaller.writeSize(output, riKeySize);
+        mh.m().valueSizeMarshaller.writeSize(output, riValueSize);
+        output.writeStopBit(riTimestamp);
+        output.writeByte(riId);
+        output.writeBoolean(false);
+        output.write(replicatedInputBytes, riKeyOffset, riKeySize);
+        long valueOffset = output.writePosition();
+        output.writeSkip(riValueSize);
+        q.entry().value().writeTo(output, valueOffset);
+        output.write(valueOffset + riDeltaOffset, replicatedInputBytes, riValueOffset,
+                riDeltaSize);
+        return true;
+    }
+
+    private boolean deltaBaseMatches() {
+        long timestamp = e.timestamp();
+        byte identifier = e.identifier();
+        if (timestamp == riDeltaBaseTimestamp && identifier == riDeltaBaseIdentifier)
+            return true;
+        // a previous delta from the same node is already applied
+        return identifier == riId && timestamp >= riDeltaBaseTimestamp &&
+                timestamp <= riTimestamp;
     }
 
     public void processReplicatedEvent() {
@@ -109,6 +188,7 @@ public abstract class ReplicatedInput<K, V, R>
                         mh.m().identifier(), riId, ks.inputKey);
             }
             mh.m().remoteOperations.remove(this);
+            raiseChangeIfDiscarded();
             return;
         }
 
@@ -121,10 +201,21 @@ public abstract class ReplicatedInput<K, V, R>
 
 
         mh.m().remoteOperations.put(this, replicatedInputValueBytesValue);
-
+        raiseChangeIfDiscarded();
 
         if (debugEnabled) {
             lh.LOG.debug(message + "value=" + replicatedInputValueBytesValue + ")");
         }
     }
+
+    /**
+     * With delta replication, if the remote node has sent a version, older than the local one, it
+     * might be unable to apply deltas of the local entry, so the full entry is sent back.
+     */
+    private void raiseChangeIfDiscarded() {
+        if (mh.m().deltaReplication() && ks.searchStatePresent() &&
+                e.identifier() == mh.m().identifier()) {
+            ru.raiseChange();
+        }
+    }
 }
@@ -16,6 +16,7 @@
 
 package net.openhft.chronicle.map.impl.stage.iter;
 
+import net.openhft.chronicle.hash.ChangeType;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.impl.stage.iter.HashSegmentIteration;
 import net.openhft.chronicle.map.MapContext;
@@ -40,11 +41,21 @@ public abstract class MapSegmentIteration<K, V, R> extends HashSegmentIteration<
         try {
             entry.innerDefaultReplaceValue(newValue);
             entry.checksumStrategy.computeAndStoreChecksum();
+            entry.recordChange(ChangeType.REPLACE);
         } finally {
             s.innerWriteLock.unlock();
         }
     }
 
+    /**
+     * Values are aligned by their addresses, so the copied value is aligned only if the
+     * distance of the copying is a multiple of the alignment
+     */
+    @Override
+    protected boolean entryCouldBeCopiedAsIs(long fromAddr, long toAddr) {
+        return ((toAddr - fromAddr) & (entry.mh.m().alignment - 1)) == 0;
+    }
+
     @NotNull
     @Override
     public MapContext<K, V, ?> context() {
@@ -63,6 +63,12 @@ public abstract class ReplicatedMapSegmentIteration<K, V, R> extends MapSegmentI
         }
     }
 
+    @Override
+    protected void entryMovedToPrecedingTier(long oldTierIndex, long oldPos, long newPos) {
+        e.readExistingEntry(newPos);
+        ru.moveChange(oldTierIndex, oldPos, newPos);
+    }
+
     @Override
     public boolean forEachSegmentReplicableEntryWhile(
             Predicate<? super ReplicableEntry> predicate) {
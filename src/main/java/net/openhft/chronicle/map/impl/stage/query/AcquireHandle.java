@@ -18,6 +18,7 @@ package net.openhft.chronicle.map.impl.stage.query;
 
 import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.hash.impl.stage.hash.CheckOnEachPublicOperation;
+import net.openhft.chronicle.map.impl.VanillaChronicleMapHolder;
 import net.openhft.chronicle.map.impl.stage.ret.UsingReturnValue;
 import net.openhft.sg.StageRef;
 import net.openhft.sg.Staged;
@@ -26,13 +27,14 @@ import net.openhft.sg.Staged;
 public class AcquireHandle<K, V> implements Closeable {
     
     @StageRef CheckOnEachPublicOperation checkOnEachPublicOperation;
+    @StageRef VanillaChronicleMapHolder<K, V, ?> mh;
     @StageRef MapQuery<K, V, ?> q;
     @StageRef UsingReturnValue<V> usingReturn;
 
     @Override
     public void close() {
         checkOnEachPublicOperation.checkOnEachPublicOperation();
-        q.replaceValue(q.entry(), q.wrapValueAsData(usingReturn.returnValue()));
+        mh.m().replaceAcquiredValue(q, q.entry(), q.wrapValueAsData(usingReturn.returnValue()));
         q.close();
     }
 }
@@ -16,6 +16,7 @@
 
 package net.openhft.chronicle.map.impl.stage.query;
 
+import net.openhft.chronicle.hash.ChangeType;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.impl.stage.entry.HashLookupSearch;
 import net.openhft.chronicle.hash.impl.stage.entry.SegmentStages;
@@ -77,6 +78,7 @@ public abstract class MapAbsent<K, V> implements MapAbsentEntry<K, V> {
             ks.setSearchState(PRESENT);
             q.initPresenceOfEntry(EntryPresence.PRESENT);
             e.checksumStrategy.computeAndStoreChecksum();
+            e.recordChange(ChangeType.INSERT);
         } else {
             throw new IllegalStateException(
                     "Entry is present in the map when doInsert() is called");
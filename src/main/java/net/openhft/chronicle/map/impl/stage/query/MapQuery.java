@@ -16,6 +16,7 @@
 
 package net.openhft.chronicle.map.impl.stage.query;
 
+import net.openhft.chronicle.hash.ChangeType;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.hash.impl.stage.query.HashQuery;
 import net.openhft.chronicle.hash.impl.stage.query.KeySearch;
@@ -109,6 +110,7 @@ public abstract class MapQuery<K, V, R> extends HashQuery<K>
         putPrefix();
         if (entryPresent()) {
             e.innerDefaultReplaceValue(newValue);
+            e.recordChange(ChangeType.REPLACE);
             s.incrementModCount();
             ks.setSearchState(PRESENT);
             initPresenceOfEntry(EntryPresence.PRESENT);
@@ -19,6 +19,9 @@ package net.openhft.chronicle.set;
 import net.openhft.chronicle.hash.ChronicleHashBuilder;
 import net.openhft.chronicle.hash.ChronicleHashBuilderPrivateAPI;
 import net.openhft.chronicle.hash.ChronicleHashInstanceBuilder;
+import net.openhft.chronicle.hash.KeyHashFunction;
+import net.openhft.chronicle.hash.locks.DeadProcessLockRecovery;
+import net.openhft.chronicle.hash.locks.LockWaitStrategy;
 import net.openhft.chronicle.hash.replication.SingleChronicleHashReplication;
 import net.openhft.chronicle.hash.replication.TcpTransportAndNetworkConfig;
 import net.openhft.chronicle.hash.replication.TimeProvider;
@@ -26,6 +29,7 @@ import net.openhft.chronicle.hash.serialization.*;
 import net.openhft.chronicle.map.ChronicleMap;
 import net.openhft.chronicle.map.ChronicleMapBuilder;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -268,6 +272,61 @@ public final class ChronicleSetBuilder<K>
         return this;
     }
 
+    @Override
+    public ChronicleSetBuilder<K> lockWaitStrategy(@NotNull LockWaitStrategy lockWaitStrategy) {
+        chronicleMapBuilder.lockWaitStrategy(lockWaitStrategy);
+        return this;
+    }
+
+    @Override
+    public ChronicleSetBuilder<K> deadProcessLockRecovery(
+            @NotNull DeadProcessLockRecovery deadProcessLockRecovery) {
+        chronicleMapBuilder.deadProcessLockRecovery(deadProcessLockRecovery);
+        return this;
+    }
+
+    @Override
+    public ChronicleSetBuilder<K> keyHashFunction(@NotNull KeyHashFunction keyHashFunction) {
+        chronicleMapBuilder.keyHashFunction(keyHashFunction);
+        return this;
+    }
+
+    @Override
+    public ChronicleSetBuilder<K> hugePagesDirectory(@Nullable File hugePagesDirectory) {
+        chronicleMapBuilder.hugePagesDirectory(hugePagesDirectory);
+        return this;
+    }
+
+    @Override
+    public ChronicleSetBuilder<K> preTouch(boolean preTouch) {
+        chronicleMapBuilder.preTouch(preTouch);
+        return this;
+    }
+
+    @Override
+    public ChronicleSetBuilder<K> syncPeriod(long syncPeriod, TimeUnit unit) {
+        chronicleMapBuilder.syncPeriod(syncPeriod, unit);
+        return this;
+    }
+
+    @Override
+    public ChronicleSetBuilder<K> bloomFilterBitsPerEntry(int bitsPerEntry) {
+        chronicleMapBuilder.bloomFilterBitsPerEntry(bitsPerEntry);
+        return this;
+    }
+
+    @Override
+    public ChronicleSetBuilder<K> changeLog(long capacity, int maxKeySize) {
+        chronicleMapBuilder.changeLog(capacity, maxKeySize);
+        return this;
+    }
+
+    @Override
+    public ChronicleSetBuilder<K> recordStatistics(boolean recordStatistics) {
+        chronicleMapBuilder.recordStatistics(recordStatistics);
+        return this;
+    }
+
     @Override
     public ChronicleSetBuilder<K> replication(SingleChronicleHashReplication replication) {
         chronicleMapBuilder.replication(replication);
@@ -304,6 +363,12 @@ public final class ChronicleSetBuilder<K>
         return new SetFromMap<>(map);
     }
 
+    @Override
+    public ChronicleSet<K> resizePersisted(File source, File target) throws IOException {
+        ChronicleMap<K, DummyValue> map = chronicleMapBuilder.resizePersisted(source, target);
+        return new SetFromMap<>(map);
+    }
+
     /**
      * @deprecated don't use private API in the client code
      */
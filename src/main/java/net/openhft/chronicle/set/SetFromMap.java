@@ -16,6 +16,8 @@
 
 package net.openhft.chronicle.set;
 
+import net.openhft.chronicle.hash.ChangeLogCursor;
+import net.openhft.chronicle.hash.ChronicleHashStatistics;
 import net.openhft.chronicle.hash.Data;
 import net.openhft.chronicle.map.ChronicleMap;
 import org.jetbrains.annotations.NotNull;
@@ -27,6 +29,7 @@ import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -71,6 +74,11 @@ class SetFromMap<E> extends AbstractSet<E>
         return s.iterator();
     }
 
+    @Override
+    public Spliterator<E> spliterator() {
+        return s.spliterator();
+    }
+
     public Object[] toArray() {
         return s.toArray();
     }
@@ -156,6 +164,41 @@ class SetFromMap<E> extends AbstractSet<E>
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void forEachEntryParallel(Consumer<? super SetEntry<E>> action) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ChronicleHashStatistics statistics() {
+        return m.statistics();
+    }
+
+    @Override
+    public int compactTiers() {
+        return m.compactTiers();
+    }
+
+    @Override
+    public long preTouch() {
+        return m.preTouch();
+    }
+
+    @Override
+    public void sync() {
+        m.sync();
+    }
+
+    @Override
+    public int snapshotTo(File target) {
+        return m.snapshotTo(target);
+    }
+
+    @Override
+    public ChangeLogCursor<E> changeLogCursor() {
+        return m.changeLogCursor();
+    }
+
     @Override
     public File file() {
         return m.file();
@@ -0,0 +1,110 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.hash.locks.LockWaitStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static net.openhft.chronicle.hash.impl.BigSegmentHeader.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class BigSegmentHeaderTest {
+
+    /**
+     * Process ids on Linux are limited by 2^22
+     */
+    private static final long DEAD_PROCESS_ID = Integer.MAX_VALUE;
+
+    private long address;
+
+    @Before
+    public void allocateSegmentHeader() {
+        address = OS.memory().allocate(64);
+        OS.memory().setMemory(address, 64, (byte) 0);
+    }
+
+    @After
+    public void freeSegmentHeader() {
+        OS.memory().freeMemory(address, 64);
+    }
+
+    @Test
+    public void writeLockOfDeadProcessIsRecovered() {
+        assumeTrue(OS.isLinux());
+        long[] recoveredAddress = {0L};
+        BigSegmentHeader header = new BigSegmentHeader(LockWaitStrategy.busySpin(), true,
+                a -> recoveredAddress[0] = a, null);
+        OS.memory().writeInt(address + COUNT_WORD_OFFSET, WRITE_LOCKED_COUNT_WORD);
+        OS.memory().writeLong(address + EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET,
+                (DEAD_PROCESS_ID << 32) | 1L);
+
+        header.writeLock(address);
+        assertEquals(address, recoveredAddress[0]);
+        header.writeUnlock(address);
+        assertEquals(0, OS.memory().readInt(address + COUNT_WORD_OFFSET));
+    }
+
+    @Test
+    public void writeVersionIsEvenBeforeLockOfDeadWriterIsReleased() throws InterruptedException {
+        assumeTrue(OS.isLinux());
+        BigSegmentHeader header = new BigSegmentHeader(LockWaitStrategy.busySpin(), true,
+                null, null);
+        for (int i = 0; i < 1000; i++) {
+            // the dead process died in the middle of a write, leaving the version odd
+            OS.memory().writeInt(address + WRITE_VERSION_OFFSET, 2 * i + 1);
+            OS.memory().writeLong(address + EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET,
+                    (DEAD_PROCESS_ID << 32) | 1L);
+            OS.memory().writeOrderedInt(null, address + COUNT_WORD_OFFSET,
+                    WRITE_LOCKED_COUNT_WORD);
+
+            // a concurrent locker must not get in while the version is still odd, otherwise
+            // it holds the write lock with an even version
+            int[] contenderVersion = {-1};
+            Thread contender = new Thread(() -> {
+                while (!INSTANCE.tryWriteLock(address)) {
+                    Thread.yield();
+                }
+                contenderVersion[0] = OS.memory().readInt(address + WRITE_VERSION_OFFSET);
+                INSTANCE.writeUnlock(address);
+            });
+            contender.start();
+            header.writeLock(address);
+            int version = OS.memory().readInt(address + WRITE_VERSION_OFFSET);
+            header.writeUnlock(address);
+            contender.join();
+
+            assertTrue("version " + version + " is even under the write lock",
+                    (version & 1) != 0);
+            assertTrue("version " + contenderVersion[0] + " is even under the write lock",
+                    (contenderVersion[0] & 1) != 0);
+            assertEquals(0, OS.memory().readInt(address + WRITE_VERSION_OFFSET) & 1);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void writeLockOfDeadProcessIsNotRecoveredByDefault() {
+        OS.memory().writeInt(address + COUNT_WORD_OFFSET, WRITE_LOCKED_COUNT_WORD);
+        OS.memory().writeLong(address + EXCLUSIVE_LOCK_HOLDER_THREAD_ID_OFFSET,
+                (DEAD_PROCESS_ID << 32) | 1L);
+        BigSegmentHeader.INSTANCE.writeLock(address);
+    }
+}
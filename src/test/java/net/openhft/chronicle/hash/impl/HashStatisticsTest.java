@@ -0,0 +1,55 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.hash.impl.HashStatistics.ContextCounters;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class HashStatisticsTest {
+
+    @Test
+    public void countersOfCollectedContextsAreFoldedAndUnregistered()
+            throws InterruptedException {
+        HashStatistics statistics = new HashStatistics(null);
+        Object liveContext = new Object();
+        statistics.newContextCounters(liveContext).lookup(false);
+        Object deadContext = new Object();
+        ContextCounters deadContextCounters = statistics.newContextCounters(deadContext);
+        deadContextCounters.lookup(true);
+        deadContextCounters.hashLookupProbes(3);
+        assertEquals(2, statistics.registrations());
+
+        WeakReference<Object> deadContextRef = new WeakReference<>(deadContext);
+        deadContext = null;
+        // the registration is enqueued some time after the context is collected
+        for (int t = 0; t < 1000 &&
+                (deadContextRef.get() != null || statistics.registrations() > 1); t++) {
+            System.gc();
+            Thread.sleep(1);
+        }
+        assertEquals(1, statistics.registrations());
+        assertEquals(2, statistics.getLookups());
+        assertEquals(1, statistics.getHits());
+        assertEquals(3, statistics.getHashLookupProbes());
+        assertNotNull(liveContext);
+    }
+}
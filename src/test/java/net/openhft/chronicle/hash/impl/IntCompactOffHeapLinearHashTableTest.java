@@ -0,0 +1,132 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.map.ChronicleMap;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntCompactOffHeapLinearHashTableTest {
+
+    /**
+     * Scalar probing, the same as the default {@link CompactOffHeapLinearHashTable} implementation
+     */
+    static long findKeyOrEmptyScalar(CompactOffHeapLinearHashTable hl, long addr, long pos,
+                                     long key, long slots) {
+        for (; slots > 0; slots--) {
+            long entry = hl.readEntry(addr, pos);
+            if (hl.empty(entry) || hl.key(entry) == key)
+                return pos;
+            pos = hl.step(pos);
+        }
+        return -1L;
+    }
+
+    @Test(timeout = 10_000)
+    public void searchInFullHashLookupTerminates() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMap.of(Integer.class, Integer.class)
+                .entries(1000)
+                .actualSegments(1)
+                .create()) {
+            VanillaChronicleHash h = (VanillaChronicleHash) map;
+            CompactOffHeapLinearHashTable hl = h.hashLookup;
+            long addr = h.segmentBaseAddr(0);
+            map.put(1, 1);
+            long entry1 = singleEntry(hl, addr, 0L);
+            map.put(2, 2);
+            long entry2 = singleEntry(hl, addr, entry1);
+            long searchKey1 = hl.key(entry1);
+            long searchKey2 = hl.key(entry2);
+            assertNotEquals(searchKey1, searchKey2);
+
+            // all slots are occupied by other keys, except the last slot to probe, where the
+            // key bits match the key 1, but the entry is of the key 2
+            long searchStartPos = hl.hlPos(searchKey1);
+            long pos = 0L;
+            do {
+                long key = pos == hl.stepBack(searchStartPos) ? searchKey1 : searchKey2;
+                hl.writeEntryVolatile(addr, pos, hl.readEntry(addr, pos), key, hl.value(entry2));
+                pos = hl.step(pos);
+            } while (pos != 0L);
+
+            try {
+                map.get(1);
+                fail("search in the full hash lookup should fail");
+            } catch (IllegalStateException expected) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Returns the single non-empty entry in the hash lookup, other than {@code exceptEntry}
+     */
+    private static long singleEntry(CompactOffHeapLinearHashTable hl, long addr,
+                                    long exceptEntry) {
+        long result = 0L;
+        long pos = 0L;
+        do {
+            long entry = hl.readEntry(addr, pos);
+            if (!hl.empty(entry) && entry != exceptEntry) {
+                assertTrue(hl.empty(result));
+                result = entry;
+            }
+            pos = hl.step(pos);
+        } while (pos != 0L);
+        assertFalse(hl.empty(result));
+        return result;
+    }
+
+    @Test
+    public void wordProbingIsEquivalentToScalarProbing() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMap.of(Integer.class, Integer.class)
+                .entries(1000)
+                .create()) {
+            VanillaChronicleHash h = (VanillaChronicleHash) map;
+            assertTrue(h.hashLookup instanceof IntCompactOffHeapLinearHashTable);
+            CompactOffHeapLinearHashTable hl = h.hashLookup;
+            long capacity = h.segmentHashLookupCapacity;
+            long size = capacity * 4;
+            long addr = OS.memory().allocate(size);
+            try {
+                Random random = new Random(0);
+                long keyMask = CompactOffHeapLinearHashTable.mask(h.segmentHashLookupKeyBits);
+                for (int fill = 0; fill <= 100; fill += 10) {
+                    for (long pos = 0; pos < size; pos += 4) {
+                        long entry = random.nextInt(100) < fill ?
+                                (random.nextInt() & ~keyMask) | hl.maskUnsetKey(random.nextInt(8))
+                                : 0L;
+                        OS.memory().writeInt(addr + pos, (int) entry);
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        long key = hl.maskUnsetKey(random.nextInt(8));
+                        long pos = (random.nextInt((int) capacity)) * 4L;
+                        long slots = 1 + random.nextInt((int) capacity);
+                        assertEquals(findKeyOrEmptyScalar(hl, addr, pos, key, slots),
+                                hl.findKeyOrEmpty(addr, pos, key, slots));
+                    }
+                }
+            } finally {
+                OS.memory().freeMemory(addr, size);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.hash.impl;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.hash.ChangeLogCursor;
+import net.openhft.chronicle.map.ChronicleMap;
+import net.openhft.chronicle.map.ChronicleMapBuilder;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.openhft.chronicle.hash.impl.ChangeLog.NEXT_SEQUENCE_OFFSET;
+import static org.junit.Assert.*;
+
+public class VanillaChangeLogCursorTest {
+
+    @Test
+    public void recordOfDeadAppenderIsSkippedAsLost() throws InterruptedException {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .changeLog(16, 4)
+                .create()) {
+            ChangeLogCursor<Integer> cursor = map.changeLogCursor();
+            ChangeLog changeLog = ((VanillaChronicleHash<?, ?, ?, ?>) map).changeLog;
+            // the appender claims the sequence 0 and dies before the commit
+            OS.memory().writeLong(changeLog.address + NEXT_SEQUENCE_OFFSET, 1L);
+            map.put(1, 1);
+
+            assertFalse(cursor.next());
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(
+                    VanillaChangeLogCursor.UNCOMMITTED_RECORD_TIMEOUT_NANOS) + 100L);
+            assertTrue(cursor.next());
+            assertEquals(1L, cursor.sequence());
+            assertEquals((Integer) 1, cursor.key());
+            assertEquals(1L, cursor.lostChanges());
+            assertFalse(cursor.next());
+        }
+    }
+}
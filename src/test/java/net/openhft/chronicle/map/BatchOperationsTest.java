@@ -0,0 +1,74 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BatchOperationsTest {
+
+    @Test
+    public void putAllAndGetAll() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(10_000)
+                .actualSegments(8)
+                .create()) {
+            Map<Integer, Integer> batch = new HashMap<>();
+            for (int i = 0; i < 10_000; i++) {
+                batch.put(i, -i);
+            }
+            map.putAll(batch);
+            assertEquals(batch, map);
+
+            List<Integer> keys = asList(5, 10_001, 3, 5, 9_999);
+            List<Integer> gotKeys = new ArrayList<>();
+            List<Integer> gotValues = new ArrayList<>();
+            map.getAll(keys, (k, v) -> {
+                gotKeys.add(k);
+                gotValues.add(v);
+            });
+            assertEquals(keys, gotKeys);
+            assertEquals(asList(-5, null, -3, -5, -9_999), gotValues);
+        }
+    }
+
+    @Test
+    public void putAllKeysEqualInSerializedForm() {
+        try (ChronicleMap<CharSequence, Integer> map = ChronicleMapBuilder
+                .of(CharSequence.class, Integer.class)
+                .averageKey("key")
+                .entries(100)
+                .actualSegments(1)
+                .create()) {
+            Map<CharSequence, Integer> batch = new LinkedHashMap<>();
+            batch.put("key", 1);
+            batch.put("other", 2);
+            batch.put(new StringBuilder("key"), 3);
+            map.putAll(batch);
+            assertEquals(2, map.size());
+            assertEquals((Integer) 3, map.get("key"));
+            assertEquals((Integer) 2, map.get("other"));
+            assertNull(map.get("absent"));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+
+public class BinarySnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static ChronicleMap<Integer, CharSequence> map(int entries) {
+        return ChronicleMapBuilder.of(Integer.class, CharSequence.class)
+                .averageValue("value-1000")
+                .entries(entries)
+                .create();
+    }
+
+    void roundTrip(boolean compressed) throws IOException {
+        File file = folder.newFile("snapshot.bin");
+        int entries = 10_000;
+        try (ChronicleMap<Integer, CharSequence> from = map(entries);
+             ChronicleMap<Integer, CharSequence> to = map(entries)) {
+            for (int i = 0; i < entries; i++) {
+                from.put(i, "value-" + i);
+            }
+            to.put(0, "overwritten");
+            to.put(-1, "kept");
+            from.exportSnapshot(file, compressed);
+            to.importSnapshot(file);
+            assertEquals(entries + 1, to.size());
+            for (int i = 0; i < entries; i++) {
+                assertEquals("value-" + i, to.get(i).toString());
+            }
+            assertEquals("kept", to.get(-1).toString());
+        }
+    }
+
+    @Test
+    public void roundTripUncompressed() throws IOException {
+        roundTrip(false);
+    }
+
+    @Test
+    public void roundTripCompressed() throws IOException {
+        roundTrip(true);
+    }
+
+    @Test
+    public void emptyMap() throws IOException {
+        File file = folder.newFile("empty.bin");
+        try (ChronicleMap<Integer, CharSequence> from = map(100);
+             ChronicleMap<Integer, CharSequence> to = map(100)) {
+            from.exportSnapshot(file, true);
+            to.importSnapshot(file);
+            assertEquals(0, to.size());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedSnapshot() throws IOException {
+        File file = folder.newFile("corrupted.bin");
+        try (ChronicleMap<Integer, CharSequence> from = map(1000);
+             ChronicleMap<Integer, CharSequence> to = map(1000)) {
+            for (int i = 0; i < 1000; i++) {
+                from.put(i, "value-" + i);
+            }
+            from.exportSnapshot(file, false);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // flip a byte within the first frame's entries, after the headers
+                long pos = 6 + 12 + 10;
+                raf.seek(pos);
+                int b = raf.read();
+                raf.seek(pos);
+                raf.write(b ^ 0xFF);
+            }
+            to.importSnapshot(file);
+        }
+    }
+}
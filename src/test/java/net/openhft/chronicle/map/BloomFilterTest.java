@@ -0,0 +1,127 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.impl.VanillaChronicleHash;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+
+    static ChronicleMapBuilder<Integer, CharSequence> builder(int entries) {
+        return ChronicleMapBuilder.of(Integer.class, CharSequence.class)
+                .entries(entries)
+                .averageValue("value-1000")
+                .maxBloatFactor(10.0)
+                .actualSegments(1)
+                .bloomFilterBitsPerEntry(10)
+                .recordStatistics(true);
+    }
+
+    @Test
+    public void absentKeysAreNotProbed() {
+        try (ChronicleMap<Integer, CharSequence> map = builder(1000).create()) {
+            assertTrue(((VanillaChronicleHash) map).segmentBloomFilterSize > 0);
+            for (int i = 0; i < 1000; i++) {
+                map.put(i, "value-" + i);
+            }
+            long probesBefore = map.statistics().getHashLookupProbes();
+            for (int i = 1000; i < 11_000; i++) {
+                assertNull(map.get(i));
+            }
+            long probes = map.statistics().getHashLookupProbes() - probesBefore;
+            assertTrue("probes: " + probes, probes < 2_000);
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("value-" + i, map.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    public void absentKeysAreNotProbedWithManySegments() {
+        // keys of the same segment share the low bits of the hash, the filter shouldn't rely
+        // on them
+        int entries = 10_000;
+        try (ChronicleMap<Integer, CharSequence> map =
+                     builder(entries).actualSegments(32).create()) {
+            for (int i = 0; i < entries; i++) {
+                map.put(i, "value-" + i);
+            }
+            long probesBefore = map.statistics().getHashLookupProbes();
+            for (int i = entries; i < entries * 11; i++) {
+                assertNull(map.get(i));
+            }
+            long probes = map.statistics().getHashLookupProbes() - probesBefore;
+            assertTrue("probes: " + probes, probes < entries * 2);
+        }
+    }
+
+    @Test
+    public void tieredSegmentsAndRelocations() {
+        int entries = 1000;
+        try (ChronicleMap<Integer, CharSequence> map = builder(entries).create()) {
+            for (int i = 0; i < entries * 5; i++) {
+                map.put(i, "v" + i);
+            }
+            assertTrue(map.statistics().getExtraTiersInUse() > 0);
+            // larger values force relocations, some of them into other tiers
+            for (int i = 0; i < entries * 5; i++) {
+                map.put(i, "value-value-" + i);
+            }
+            assertEquals(entries * 5, map.size());
+            for (int i = 0; i < entries * 5; i++) {
+                assertEquals("value-value-" + i, map.get(i).toString());
+            }
+            for (int i = entries * 5; i < entries * 6; i++) {
+                assertNull(map.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void filtersAreRebuiltOnCompaction() {
+        int entries = 1000;
+        try (ChronicleMap<Integer, CharSequence> map = builder(entries).create()) {
+            for (int i = 0; i < entries * 5; i++) {
+                map.put(i, "v" + i);
+            }
+            for (int i = 0; i < entries * 5; i += 2) {
+                map.remove(i);
+            }
+            map.compactTiers();
+            assertEquals(entries * 5 / 2, map.size());
+            for (int i = 0; i < entries * 5; i++) {
+                if (i % 2 == 1) {
+                    assertEquals("v" + i, map.get(i).toString());
+                } else {
+                    assertNull(map.get(i));
+                }
+            }
+            // entries moved to preceding tiers are still updated in place
+            for (int i = 1; i < entries * 5; i += 2) {
+                map.put(i, "value-" + i);
+            }
+            assertEquals(entries * 5 / 2, map.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyBitsPerEntry() {
+        ChronicleMapBuilder.of(Integer.class, Integer.class).bloomFilterBitsPerEntry(65);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.ChangeLogCursor;
+import net.openhft.chronicle.hash.ChangeType;
+import net.openhft.chronicle.set.ChronicleSet;
+import net.openhft.chronicle.set.ChronicleSetBuilder;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ChangeLogTest {
+
+    private static <K> void assertNextChange(ChangeLogCursor<K> cursor, long sequence,
+                                             ChangeType changeType, K key) {
+        assertTrue(cursor.next());
+        assertEquals(sequence, cursor.sequence());
+        assertEquals(changeType, cursor.changeType());
+        assertTrue(cursor.keyAvailable());
+        assertEquals(key, cursor.key());
+    }
+
+    @Test
+    public void changesAreRecorded() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .changeLog(16, 4)
+                .create()) {
+            map.put(0, 0);
+            ChangeLogCursor<Integer> cursor = map.changeLogCursor();
+            assertFalse(cursor.next());
+
+            long startTime = System.currentTimeMillis();
+            map.put(1, 1);
+            map.put(1, 2);
+            map.remove(1);
+            map.entrySet().removeIf(e -> e.getKey() == 0);
+
+            assertNextChange(cursor, 1, ChangeType.INSERT, 1);
+            assertTrue(cursor.timestamp() >= startTime);
+            long keyHash = cursor.keyHash();
+            assertNextChange(cursor, 2, ChangeType.REPLACE, 1);
+            assertEquals(keyHash, cursor.keyHash());
+            assertNextChange(cursor, 3, ChangeType.REMOVE, 1);
+            assertNextChange(cursor, 4, ChangeType.REMOVE, 0);
+            assertFalse(cursor.next());
+
+            cursor.moveTo(0);
+            assertNextChange(cursor, 0, ChangeType.INSERT, 0);
+            assertEquals(0, cursor.lostChanges());
+        }
+    }
+
+    @Test
+    public void overwrittenChangesAreCountedAsLost() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .changeLog(10, 4)
+                .create()) {
+            ChangeLogCursor<Integer> cursor = map.changeLogCursor();
+            for (int i = 0; i < 100; i++) {
+                map.put(i, i);
+            }
+            // the capacity is rounded up to 16
+            assertNextChange(cursor, 84, ChangeType.INSERT, 84);
+            assertEquals(84, cursor.lostChanges());
+            int changes = 1;
+            while (cursor.next()) {
+                changes++;
+            }
+            assertEquals(16, changes);
+        }
+    }
+
+    @Test
+    public void keysNotFittingRecordsAreNotAvailable() {
+        try (ChronicleMap<String, Integer> map = ChronicleMapBuilder
+                .of(String.class, Integer.class)
+                .entries(1000)
+                .averageKeySize(20)
+                .changeLog(16, 8)
+                .create()) {
+            ChangeLogCursor<String> cursor = map.changeLogCursor();
+            map.put("short", 1);
+            map.put("a much longer key, than 8 bytes", 2);
+            assertNextChange(cursor, 0, ChangeType.INSERT, "short");
+            assertTrue(cursor.next());
+            assertFalse(cursor.keyAvailable());
+        }
+    }
+
+    @Test
+    public void changeLogIsSharedViaPersistedFile() throws IOException {
+        File file = File.createTempFile("changeLog", ".dat");
+        file.delete();
+        file.deleteOnExit();
+        ChronicleSetBuilder<Integer> builder = ChronicleSetBuilder
+                .of(Integer.class)
+                .entries(1000)
+                .changeLog(64, 4);
+        try (ChronicleSet<Integer> set1 = builder.createPersistedTo(file);
+             ChronicleSet<Integer> set2 = builder.createPersistedTo(file)) {
+            ChangeLogCursor<Integer> cursor = set2.changeLogCursor();
+            set1.add(42);
+            set1.remove(42);
+            assertNextChange(cursor, 0, ChangeType.INSERT, 42);
+            assertNextChange(cursor, 1, ChangeType.REMOVE, 42);
+            assertFalse(cursor.next());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void changeLogIsNotConfigured() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .create()) {
+            map.changeLogCursor();
+        }
+    }
+}
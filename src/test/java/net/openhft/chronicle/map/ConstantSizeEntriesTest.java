@@ -0,0 +1,93 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConstantSizeEntriesTest {
+
+    @Test
+    public void constantKeysAndValues() {
+        try (ChronicleMap<Long, Long> map = ChronicleMapBuilder.of(Long.class, Long.class)
+                .entries(10_000)
+                .create()) {
+            VanillaChronicleMap<?, ?, ?> m = (VanillaChronicleMap<?, ?, ?>) map;
+            assertEquals(8L, m.constantKeySize);
+            assertEquals(8L, m.constantValueSize);
+            Map<Long, Long> expected = new HashMap<>();
+            for (long i = 0; i < 10_000; i++) {
+                map.put(i, -i);
+                expected.put(i, -i);
+            }
+            for (long i = 0; i < 10_000; i += 3) {
+                map.remove(i);
+                expected.remove(i);
+            }
+            for (long i = 1; i < 10_000; i += 3) {
+                assertEquals((Long) (-i), map.replace(i, i));
+                expected.put(i, i);
+            }
+            assertEquals(expected, new HashMap<>(map));
+        }
+    }
+
+    @Test
+    public void constantKeysAndVariableValues() {
+        try (ChronicleMap<Integer, CharSequence> map = ChronicleMapBuilder
+                .of(Integer.class, CharSequence.class)
+                .entries(1000)
+                .averageValue("value-1000")
+                .create()) {
+            VanillaChronicleMap<?, ?, ?> m = (VanillaChronicleMap<?, ?, ?>) map;
+            assertEquals(4L, m.constantKeySize);
+            assertEquals(-1L, m.constantValueSize);
+            for (int i = 0; i < 1000; i++) {
+                map.put(i, "value-" + i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                map.put(i, "longer-value-" + i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("longer-value-" + i, map.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    public void variableKeysAndConstantValues() {
+        try (ChronicleMap<CharSequence, Long> map = ChronicleMapBuilder
+                .of(CharSequence.class, Long.class)
+                .entries(1000)
+                .averageKey("key-1000")
+                .create()) {
+            VanillaChronicleMap<?, ?, ?> m = (VanillaChronicleMap<?, ?, ?>) map;
+            assertEquals(-1L, m.constantKeySize);
+            assertEquals(8L, m.constantValueSize);
+            for (long i = 0; i < 1000; i++) {
+                map.put("key-" + i, i);
+            }
+            for (long i = 0; i < 1000; i++) {
+                assertEquals((Long) i, map.get("key-" + i));
+            }
+        }
+    }
+}
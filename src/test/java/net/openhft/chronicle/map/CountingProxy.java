@@ -0,0 +1,164 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Forwards connections to the target address in both directions and counts the bytes and the
+ * reads of the forwarded traffic, to check what replicators actually send. Optionally replaces
+ * the first occurrence of a string (e. g. a handshake version suffix) in each direction with
+ * spaces.
+ */
+final class CountingProxy implements Closeable {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ServerSocket serverSocket;
+    private final InetSocketAddress target;
+    private final byte[] blankedOut;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<Thread> pumps = new ArrayList<>();
+    private final Thread acceptor;
+
+    final AtomicLong bytesToTarget = new AtomicLong();
+    final AtomicLong bytesFromTarget = new AtomicLong();
+    final AtomicLong readsFromTarget = new AtomicLong();
+
+    CountingProxy(int port, InetSocketAddress target) throws IOException {
+        this(port, target, null);
+    }
+
+    CountingProxy(int port, InetSocketAddress target, String blankedOut) throws IOException {
+        this.target = target;
+        this.blankedOut = blankedOut != null ?
+                blankedOut.getBytes(StandardCharsets.US_ASCII) : null;
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress("localhost", port));
+        acceptor = new Thread(this::accept, "counting-proxy-acceptor");
+        acceptor.start();
+    }
+
+    private void accept() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket client = serverSocket.accept();
+                Socket server = new Socket();
+                try {
+                    server.connect(target);
+                } catch (IOException e) {
+                    // the target is not started yet, the client reconnects
+                    client.close();
+                    continue;
+                }
+                client.setTcpNoDelay(true);
+                server.setTcpNoDelay(true);
+                synchronized (this) {
+                    if (serverSocket.isClosed()) {
+                        closeQuietly(client);
+                        closeQuietly(server);
+                        return;
+                    }
+                    sockets.add(client);
+                    sockets.add(server);
+                    pumps.add(pump(client, server, bytesToTarget, null));
+                    pumps.add(pump(server, client, bytesFromTarget, readsFromTarget));
+                }
+            }
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    private Thread pump(Socket from, Socket to, AtomicLong bytes, AtomicLong reads) {
+        Thread pump = new Thread(() -> {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            try {
+                InputStream in = from.getInputStream();
+                OutputStream out = to.getOutputStream();
+                boolean blanked = blankedOut == null;
+                int read;
+                while ((read = in.read(chunk)) >= 0) {
+                    if (!blanked)
+                        blanked = blankOut(chunk, read);
+                    bytes.addAndGet(read);
+                    if (reads != null)
+                        reads.incrementAndGet();
+                    out.write(chunk, 0, read);
+                }
+            } catch (IOException e) {
+                // closed
+            } finally {
+                closeQuietly(from);
+                closeQuietly(to);
+            }
+        }, "counting-proxy-pump");
+        pump.start();
+        return pump;
+    }
+
+    private boolean blankOut(byte[] chunk, int length) {
+        search:
+        for (int i = 0; i <= length - blankedOut.length; i++) {
+            for (int j = 0; j < blankedOut.length; j++) {
+                if (chunk[i + j] != blankedOut[j])
+                    continue search;
+            }
+            for (int j = 0; j < blankedOut.length; j++) {
+                chunk[i + j] = ' ';
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        List<Thread> threads;
+        synchronized (this) {
+            sockets.forEach(CountingProxy::closeQuietly);
+            threads = new ArrayList<>(pumps);
+        }
+        threads.add(acceptor);
+        for (Thread thread : threads) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package net.openhft.chronicle.map;
+
+import eg.TestInstrumentVOInterface;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.hash.replication.SingleChronicleHashReplication;
+import net.openhft.chronicle.hash.replication.TcpTransportAndNetworkConfig;
+import net.openhft.chronicle.hash.replication.UdpTransportConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeltaReplicationTest {
+
+    static int s_port = 8190;
+
+    private ChronicleMap<CharSequence, TestInstrumentVOInterface> map1;
+    private ChronicleMap<CharSequence, TestInstrumentVOInterface> map2;
+    private CountingProxy proxy;
+    private Set<Thread> threads;
+
+    private static ChronicleMap<CharSequence, TestInstrumentVOInterface> replicatedMap(
+            int identifier, int port, InetSocketAddress... endpoints) {
+        TcpTransportAndNetworkConfig tcpConfig = TcpTransportAndNetworkConfig
+                .of(port, endpoints)
+                .heartBeatInterval(1, TimeUnit.SECONDS);
+        return ChronicleMapBuilder.of(CharSequence.class, TestInstrumentVOInterface.class)
+                .entries(1000)
+                .averageKey("key-100")
+                .replication(SingleChronicleHashReplication.builder()
+                        .tcpTransportAndNetwork(tcpConfig)
+                        .deltaReplication(true)
+                        .createWithId((byte) identifier))
+                .create();
+    }
+
+    @Before
+    public void sampleThreads() {
+        threads = Thread.getAllStackTraces().keySet();
+    }
+
+    private void connectDirectly() {
+        map1 = replicatedMap(1, s_port);
+        map2 = replicatedMap(2, s_port + 1, new InetSocketAddress("localhost", s_port));
+        s_port += 2;
+    }
+
+    /**
+     * Connects the nodes through a proxy, which counts the bytes sent by map1 and optionally hides
+     * the delta support of the nodes from each other
+     */
+    private void connectThroughProxy(boolean hideDeltaSupport) throws IOException {
+        proxy = new CountingProxy(s_port + 2, new InetSocketAddress("localhost", s_port),
+                hideDeltaSupport ? TcpReplicator.DELTA_VERSION_SUFFIX : null);
+        map1 = replicatedMap(1, s_port);
+        map2 = replicatedMap(2, s_port + 1, new InetSocketAddress("localhost", s_port + 2));
+        s_port += 3;
+    }
+
+    @After
+    public void tearDown() {
+        if (map1 != null)
+            map1.close();
+        if (map2 != null)
+            map2.close();
+        if (proxy != null) {
+            try {
+                proxy.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        ChannelReplicationTest.checkThreadsShutdown(threads);
+    }
+
+    private static void update(ChronicleMap<CharSequence, TestInstrumentVOInterface> map,
+                               String key, String symbol, String currencyCode) {
+        TestInstrumentVOInterface value = map.newValueInstance();
+        try (Closeable c = map.acquireContext(key, value)) {
+            if (symbol != null)
+                value.setSymbol(symbol);
+            value.setCurrencyCode(currencyCode);
+        }
+    }
+
+    private void waitTillEqual() throws InterruptedException {
+        for (int t = 0; t < 5000 && !map1.equals(map2); t++) {
+            Thread.sleep(1);
+        }
+        assertEquals(map1, map2);
+    }
+
+    @Test
+    public void partialUpdatesAreReplicated() throws InterruptedException {
+        connectDirectly();
+        for (int i = 0; i < 100; i++) {
+            update(map1, "key-" + i, "symbol-" + i, "USD");
+        }
+        waitTillEqual();
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) {
+                update(map1, "key-" + i, null, round % 2 == 0 ? "EUR" : "GBP");
+            }
+        }
+        waitTillEqual();
+        for (int i = 0; i < 100; i++) {
+            TestInstrumentVOInterface value = map2.get("key-" + i);
+            assertEquals("symbol-" + i, value.getSymbol());
+            assertEquals("GBP", value.getCurrencyCode());
+        }
+    }
+
+    @Test
+    public void updatesFromBothNodesConverge() throws InterruptedException {
+        connectDirectly();
+        for (int i = 0; i < 100; i++) {
+            update(map1, "key-" + i, "symbol-" + i, "USD");
+        }
+        waitTillEqual();
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) {
+                update(round % 2 == 0 ? map1 : map2, "key-" + i, null, "C" + round);
+                update(round % 2 == 0 ? map2 : map1, "key-" + i, "s" + round, "C" + round);
+            }
+        }
+        waitTillEqual();
+    }
+
+    /**
+     * Returns the number of bytes, sent by map1 to replicate updates of a single field of 100
+     * values. A value takes about 250 bytes, the updated field is 5 bytes.
+     */
+    private long bytesSentForSingleFieldUpdates() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            update(map1, "key-" + i, "symbol-" + i, "USD");
+        }
+        waitTillEqual();
+
+        long bytesBefore = proxy.bytesFromTarget.get();
+        for (int i = 0; i < 100; i++) {
+            update(map1, "key-" + i, null, "EUR");
+        }
+        waitTillEqual();
+        long bytesSent = proxy.bytesFromTarget.get() - bytesBefore;
+
+        assertEquals(100, map2.size());
+        for (int i = 0; i < 100; i++) {
+            TestInstrumentVOInterface value = map2.get("key-" + i);
+            assertEquals("symbol-" + i, value.getSymbol());
+            assertEquals("EUR", value.getCurrencyCode());
+        }
+        return bytesSent;
+    }
+
+    @Test
+    public void deltasAreSent() throws Exception {
+        connectThroughProxy(false);
+        long bytesSent = bytesSentForSingleFieldUpdates();
+        assertTrue("bytes sent: " + bytesSent, bytesSent < 100 * 100);
+    }
+
+    @Test
+    public void fullValuesAreSentToNodesNotAcceptingDeltas() throws Exception {
+        connectThroughProxy(true);
+        long bytesSent = bytesSentForSingleFieldUpdates();
+        assertTrue("bytes sent: " + bytesSent, bytesSent > 100 * 200);
+    }
+
+    @Test
+    public void plainPutsBetweenPartialUpdatesAreReplicated() throws InterruptedException {
+        connectDirectly();
+        for (int i = 0; i < 100; i++) {
+            update(map1, "key-" + i, "symbol-" + i, "USD");
+        }
+        waitTillEqual();
+
+        TestInstrumentVOInterface value = map1.newValueInstance();
+        for (int i = 0; i < 100; i++) {
+            update(map1, "key-" + i, null, "EUR");
+            // makes the delta state of the previous update stale
+            value.setSymbol("other-" + i);
+            value.setCurrencyCode("JPY");
+            map1.put("key-" + i, value);
+            update(map1, "key-" + i, null, "GBP");
+        }
+        waitTillEqual();
+        for (int i = 0; i < 100; i++) {
+            TestInstrumentVOInterface replicated = map2.get("key-" + i);
+            assertEquals("other-" + i, replicated.getSymbol());
+            assertEquals("GBP", replicated.getCurrencyCode());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deltaReplicationIsNotSupportedWithUdp() throws UnknownHostException {
+        SingleChronicleHashReplication.builder()
+                .udpTransport(UdpTransportConfig.of(InetAddress.getLocalHost(), s_port))
+                .deltaReplication(true)
+                .createWithId((byte) 1);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.impl.HugePages;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * hugetlbfs is usually not mounted in test environments, so a regular directory is used. The
+ * mapping logic is the same.
+ */
+public class HugePagesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void hugePageAlign() {
+        assertEquals(0L, HugePages.hugePageAlign(0L));
+        assertEquals(HugePages.HUGE_PAGE_SIZE, HugePages.hugePageAlign(1L));
+        assertEquals(HugePages.HUGE_PAGE_SIZE, HugePages.hugePageAlign(HugePages.HUGE_PAGE_SIZE));
+        assertEquals(2 * HugePages.HUGE_PAGE_SIZE,
+                HugePages.hugePageAlign(HugePages.HUGE_PAGE_SIZE + 1));
+    }
+
+    @Test
+    public void inMemoryMapWithExtraTiers() throws IOException {
+        File directory = folder.newFolder();
+        int entries = 1000;
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(entries)
+                .maxBloatFactor(10.0)
+                .actualSegments(1)
+                .recordStatistics(true)
+                .hugePagesDirectory(directory)
+                .create()) {
+            assertNull(map.file());
+            // files are deleted right after mapping
+            assertEquals(0, directory.list().length);
+            for (int i = 0; i < entries * 5; i++) {
+                map.put(i, i);
+            }
+            assertTrue(map.statistics().getExtraTiersInUse() > 0);
+            assertEquals(0, directory.list().length);
+            for (int i = 0; i < entries * 5; i++) {
+                assertEquals((Integer) i, map.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingDirectory() {
+        ChronicleMapBuilder.of(Integer.class, Integer.class)
+                .entries(100)
+                .hugePagesDirectory(new File(folder.getRoot(), "missing"))
+                .create();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.KeyHashFunction;
+import net.openhft.chronicle.hash.impl.VanillaChronicleHash;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeyHashFunctionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static void putAndGet(ChronicleMap<Long, CharSequence> map) {
+        for (long i = 0; i < 10_000; i++) {
+            map.put(i * 0x9E3779B97F4A7C15L, "value-" + i);
+        }
+        assertEquals(10_000, map.size());
+        for (long i = 0; i < 10_000; i++) {
+            assertEquals("value-" + i, map.get(i * 0x9E3779B97F4A7C15L).toString());
+        }
+    }
+
+    @Test
+    public void allFunctions() {
+        for (KeyHashFunction f : KeyHashFunction.values()) {
+            try (ChronicleMap<Long, CharSequence> map =
+                         ChronicleMap.of(Long.class, CharSequence.class)
+                                 .averageValue("value-10000")
+                                 .entries(10_000)
+                                 .keyHashFunction(f)
+                                 .create()) {
+                assertEquals(f, ((VanillaChronicleHash) map).keyHashFunction());
+                putAndGet(map);
+            }
+        }
+    }
+
+    @Test
+    public void persistedFunctionIsUsedOnReopen() throws IOException {
+        File file = folder.newFile("map.dat");
+        ChronicleMapBuilder<Long, CharSequence> builder =
+                ChronicleMap.of(Long.class, CharSequence.class)
+                        .averageValue("value-10000")
+                        .entries(10_000);
+        try (ChronicleMap<Long, CharSequence> map =
+                     builder.keyHashFunction(KeyHashFunction.IDENTITY).createPersistedTo(file)) {
+            putAndGet(map);
+        }
+        try (ChronicleMap<Long, CharSequence> map =
+                     builder.keyHashFunction(KeyHashFunction.XX_R39).createPersistedTo(file)) {
+            assertEquals(KeyHashFunction.IDENTITY, ((VanillaChronicleHash) map).keyHashFunction());
+            assertEquals("value-1", map.get(0x9E3779B97F4A7C15L).toString());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.locks.SpinYieldParkLockWaitStrategy;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LockWaitStrategyTest {
+
+    @Test
+    public void contendedUpdatesWithSpinYieldParkStrategy() throws Exception {
+        SpinYieldParkLockWaitStrategy strategy = new SpinYieldParkLockWaitStrategy(16, 4, 1, 1000);
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int incrementsPerThread = 10_000;
+        try (ChronicleMap<Integer, Long> map = ChronicleMapBuilder.of(Integer.class, Long.class)
+                .entries(1)
+                .actualSegments(1)
+                .lockWaitStrategy(strategy)
+                .create()) {
+            map.put(0, 0L);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < incrementsPerThread; i++) {
+                            map.compute(0, (k, v) -> v + 1);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals((long) threads * incrementsPerThread, (long) map.get(0));
+        }
+        assertTrue(strategy.spinPhaseCount() >= strategy.yieldPhaseCount());
+        assertTrue(strategy.yieldPhaseCount() >= strategy.parkPhaseCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxParkLessThanMinPark() {
+        new SpinYieldParkLockWaitStrategy(16, 4, 1000, 1);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class OptimisticReadsTest {
+
+    @Test
+    public void getAndGetUsing() {
+        try (ChronicleMap<Integer, CharSequence> map = ChronicleMapBuilder
+                .of(Integer.class, CharSequence.class)
+                .entries(1000)
+                .averageValue("value-1000")
+                .optimisticReads(true)
+                .recordStatistics(true)
+                .create()) {
+            assertTrue(((VanillaChronicleMap) map).optimisticReadsSupported());
+            for (int i = 0; i < 1000; i++) {
+                map.put(i, "value-" + i);
+            }
+            StringBuilder using = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("value-" + i, map.get(i).toString());
+                assertSame(using, map.getUsing(i, using));
+                assertEquals("value-" + i, using.toString());
+            }
+            assertNull(map.get(1000));
+            assertNull(map.getUsing(1001, using));
+            assertEquals(2002, map.statistics().getLookups());
+            assertEquals(2000, map.statistics().getHits());
+        }
+    }
+
+    @Test
+    public void keysInExtraTiersAreFound() {
+        int entries = 1000;
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(entries)
+                .maxBloatFactor(10.0)
+                .actualSegments(1)
+                .optimisticReads(true)
+                .recordStatistics(true)
+                .create()) {
+            for (int i = 0; i < entries * 5; i++) {
+                map.put(i, i);
+            }
+            assertTrue(map.statistics().getExtraTiersInUse() > 0);
+            for (int i = 0; i < entries * 5; i++) {
+                assertEquals((Integer) i, map.get(i));
+            }
+            assertNull(map.get(entries * 5));
+        }
+    }
+
+    @Test
+    public void notUsedForCustomMapMethods() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(100)
+                .optimisticReads(true)
+                .mapMethods(new MapMethods<Integer, Integer, Void>() {})
+                .create()) {
+            assertFalse(((VanillaChronicleMap) map).optimisticReadsSupported());
+        }
+    }
+
+    @Test
+    public void readsAreConsistentUnderConcurrentUpdates() throws Exception {
+        int keys = 100;
+        try (ChronicleMap<Integer, CharSequence> map = ChronicleMapBuilder
+                .of(Integer.class, CharSequence.class)
+                .entries(keys)
+                .averageValue("1111111111")
+                .actualSegments(1)
+                .optimisticReads(true)
+                .create()) {
+            for (int i = 0; i < keys; i++) {
+                map.put(i, "0");
+            }
+            AtomicBoolean stop = new AtomicBoolean();
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            try {
+                // values of different lengths, all digits of each value are the same
+                Future<?> writer = executor.submit(() -> {
+                    StringBuilder value = new StringBuilder();
+                    for (int n = 0; n < 100_000; n++) {
+                        value.setLength(0);
+                        for (int d = 0; d <= n % 20; d++) {
+                            value.append((char) ('0' + n % 10));
+                        }
+                        map.put(n % keys, value);
+                    }
+                    stop.set(true);
+                });
+                Runnable reader = () -> {
+                    StringBuilder using = new StringBuilder();
+                    for (int n = 0; !stop.get(); n++) {
+                        CharSequence value = map.getUsing(n % keys, using);
+                        for (int d = 1; d < value.length(); d++) {
+                            assertEquals(value.charAt(0), value.charAt(d));
+                        }
+                    }
+                };
+                Future<?> reader1 = executor.submit(reader);
+                Future<?> reader2 = executor.submit(reader);
+                writer.get(1, TimeUnit.MINUTES);
+                reader1.get(1, TimeUnit.MINUTES);
+                reader2.get(1, TimeUnit.MINUTES);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelIterationTest {
+
+    @Test
+    public void parallelIteration() {
+        try (ChronicleMap<Long, Long> map = ChronicleMapBuilder.of(Long.class, Long.class)
+                .entries(100_000)
+                .actualSegments(16)
+                .create()) {
+            for (long i = 0; i < 100_000; i++) {
+                map.put(i, i);
+            }
+            long expectedSum = LongStream.range(0, 100_000).sum();
+
+            AtomicLong sum = new AtomicLong();
+            map.forEachEntryParallel(e -> sum.addAndGet(e.value().get()));
+            assertEquals(expectedSum, sum.get());
+
+            assertEquals(expectedSum,
+                    map.values().parallelStream().mapToLong(Long::longValue).sum());
+            Set<Long> keys = map.keySet().parallelStream().collect(Collectors.toSet());
+            assertEquals(map.keySet(), keys);
+            assertEquals(100_000, map.entrySet().parallelStream()
+                    .filter(e -> e.getKey().equals(e.getValue()))
+                    .count());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class PreTouchTest {
+
+    @Test
+    public void preTouchOfPersistedMapWithExtraTiers() throws IOException {
+        File file = File.createTempFile("preTouch", ".dat");
+        file.delete();
+        file.deleteOnExit();
+        int entries = 1000;
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(entries)
+                .maxBloatFactor(10.0)
+                .actualSegments(2)
+                .recordStatistics(true);
+        try (ChronicleMap<Integer, Integer> map = builder.createPersistedTo(file)) {
+            for (int i = 0; i < entries * 3; i++) {
+                map.put(i, i);
+            }
+            assertTrue(map.statistics().getExtraTiersInUse() > 0);
+        }
+
+        try (ChronicleMap<Integer, Integer> map = builder.preTouch(true).createPersistedTo(file)) {
+            assertTrue(map.preTouch() >= 0);
+            assertEquals(entries * 3, map.size());
+            for (int i = 0; i < entries * 3; i++) {
+                assertEquals((Integer) i, map.get(i));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void preTouchOfInMemoryMap() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .create()) {
+            for (int i = 0; i < 100; i++) {
+                map.put(i, i);
+            }
+            assertTrue(map.preTouch() >= 0);
+            assertEquals(100, map.size());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.hash.serialization.BytesReader;
+import net.openhft.chronicle.hash.serialization.BytesWriter;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveChronicleMapTest {
+
+    @Test
+    public void longLong() {
+        try (LongLongChronicleMap map = LongLongChronicleMap.wrap(
+                ChronicleMap.of(Long.class, Long.class).entries(10_000).create())) {
+            for (long i = 0; i < 1000; i++) {
+                map.put(i * 31, i);
+            }
+            assertEquals(1000, map.longSize());
+            for (long i = 0; i < 1000; i++) {
+                assertEquals(i, map.get(i * 31, -1));
+                assertEquals(Long.valueOf(i), map.asMap().get(i * 31));
+            }
+            assertEquals(-1, map.get(1, -1));
+            assertFalse(map.containsKey(1));
+
+            assertEquals(5, map.addAndGet(1, 5));
+            assertEquals(2, map.addAndGet(1, -3));
+            map.asMap().put(2L, Long.MAX_VALUE);
+            assertEquals(Long.MAX_VALUE, map.get(2, 0));
+            assertEquals(Long.MIN_VALUE, map.addAndGet(2, 1));
+
+            assertTrue(map.remove(1));
+            assertFalse(map.remove(1));
+            assertNull(map.asMap().get(1L));
+        }
+    }
+
+    @Test
+    public void intInt() {
+        try (IntIntChronicleMap map = IntIntChronicleMap.wrap(
+                ChronicleMap.of(Integer.class, Integer.class).entries(10_000).create())) {
+            for (int i = 0; i < 1000; i++) {
+                map.put(-i, i);
+            }
+            assertEquals(1000, map.longSize());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, map.get(-i, -1));
+                assertEquals(Integer.valueOf(i), map.asMap().get(-i));
+            }
+            assertTrue(map.containsKey(0));
+            assertEquals(10, map.addAndGet(5000, 10));
+            assertEquals(11, map.addAndGet(5000, 1));
+            assertTrue(map.remove(5000));
+            assertEquals(0, map.get(5000, 0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void customSerializersAreRejected() {
+        try (ChronicleMap<Long, Long> map = ChronicleMap.of(Long.class, Long.class)
+                .entries(100)
+                .valueMarshallers(ReversedBytesLongMarshaller.INSTANCE,
+                        ReversedBytesLongMarshaller.INSTANCE)
+                .constantValueSizeBySample(0L)
+                .create()) {
+            LongLongChronicleMap.wrap(map);
+        }
+    }
+
+    enum ReversedBytesLongMarshaller implements BytesReader<Long>, BytesWriter<Long> {
+        INSTANCE;
+
+        @Override
+        public Long read(Bytes in, Long using) {
+            return Long.reverseBytes(in.readLong());
+        }
+
+        @Override
+        public void write(Bytes out, @NotNull Long toWrite) {
+            out.writeLong(Long.reverseBytes(toWrite));
+        }
+    }
+}
@@ -18,6 +18,8 @@ package net.openhft.chronicle.map;
 
 import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.core.util.SerializableFunction;
+import net.openhft.chronicle.hash.ChangeLogCursor;
+import net.openhft.chronicle.hash.ChronicleHashStatistics;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Assert;
 
@@ -26,6 +28,7 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -224,6 +227,11 @@ public class ReplicationCheckingMap<K, V> implements ChronicleMap<K, V> {
         return map1.getMapped(key, function);
     }
 
+    @Override
+    public void getAll(Collection<? extends K> keys, BiConsumer<? super K, ? super V> action) {
+        map1.getAll(keys, action);
+    }
+
     @Override
     public void getAll(File toFile) {
         throw new UnsupportedOperationException();
@@ -234,6 +242,16 @@ public class ReplicationCheckingMap<K, V> implements ChronicleMap<K, V> {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void exportSnapshot(File toFile, boolean compressed) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void importSnapshot(File fromFile) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public V newValueInstance() {
         throw new UnsupportedOperationException();
@@ -259,6 +277,41 @@ public class ReplicationCheckingMap<K, V> implements ChronicleMap<K, V> {
         map1.forEachEntry(action);
     }
 
+    @Override
+    public void forEachEntryParallel(Consumer<? super MapEntry<K, V>> action) {
+        map1.forEachEntryParallel(action);
+    }
+
+    @Override
+    public ChronicleHashStatistics statistics() {
+        return map1.statistics();
+    }
+
+    @Override
+    public int compactTiers() {
+        return map1.compactTiers();
+    }
+
+    @Override
+    public long preTouch() {
+        return map1.preTouch();
+    }
+
+    @Override
+    public void sync() {
+        map1.sync();
+    }
+
+    @Override
+    public int snapshotTo(File target) {
+        return map1.snapshotTo(target);
+    }
+
+    @Override
+    public ChangeLogCursor<K> changeLogCursor() {
+        return map1.changeLogCursor();
+    }
+
     @Override
     public Class<V> valueClass() {
         return map1.valueClass();
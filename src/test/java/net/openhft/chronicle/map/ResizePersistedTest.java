@@ -0,0 +1,98 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ResizePersistedTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static ChronicleMapBuilder<Integer, CharSequence> builder(int entries) {
+        return ChronicleMapBuilder.of(Integer.class, CharSequence.class)
+                .averageValue("value-1000")
+                .entries(entries);
+    }
+
+    static void fill(File file, int entries) throws IOException {
+        try (ChronicleMap<Integer, CharSequence> map = builder(entries).createPersistedTo(file)) {
+            for (int i = 0; i < entries; i++) {
+                map.put(i, "value-" + i);
+            }
+        }
+    }
+
+    static void check(ChronicleMap<Integer, CharSequence> map, int entries) {
+        assertEquals(entries, map.size());
+        for (int i = 0; i < entries; i++) {
+            assertEquals("value-" + i, map.get(i).toString());
+        }
+    }
+
+    @Test
+    public void resizeToAnotherFile() throws IOException {
+        File source = new File(folder.getRoot(), "source.dat");
+        File target = new File(folder.getRoot(), "target.dat");
+        fill(source, 1000);
+        try (ChronicleMap<Integer, CharSequence> map =
+                     builder(100_000).actualSegments(64).resizePersisted(source, target)) {
+            check(map, 1000);
+            assertEquals(64, map.segments());
+            for (int i = 1000; i < 100_000; i++) {
+                map.put(i, "value-" + i);
+            }
+        }
+        try (ChronicleMap<Integer, CharSequence> map = builder(1000).createPersistedTo(source)) {
+            check(map, 1000);
+        }
+    }
+
+    @Test
+    public void resizeInPlace() throws IOException {
+        File file = new File(folder.getRoot(), "map.dat");
+        fill(file, 1000);
+        try (ChronicleMap<Integer, CharSequence> oldMap = builder(1000).createPersistedTo(file)) {
+            try (ChronicleMap<Integer, CharSequence> map =
+                         builder(10_000).resizePersisted(file, file)) {
+                check(map, 1000);
+            }
+            // the map, opened before resizing, still accesses the old data
+            check(oldMap, 1000);
+        }
+        try (ChronicleMap<Integer, CharSequence> map = builder(1000).createPersistedTo(file)) {
+            check(map, 1000);
+        }
+        assertArrayEquals(new String[] {"map.dat"}, folder.getRoot().list());
+    }
+
+    @Test(expected = IOException.class)
+    public void targetShouldNotExist() throws IOException {
+        File source = new File(folder.getRoot(), "source.dat");
+        File target = new File(folder.getRoot(), "target.dat");
+        fill(source, 100);
+        fill(target, 100);
+        builder(1000).resizePersisted(source, target);
+    }
+}
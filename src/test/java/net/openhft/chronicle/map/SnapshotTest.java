@@ -0,0 +1,134 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotTest {
+
+    private static File tempFile(String prefix) throws IOException {
+        File file = File.createTempFile(prefix, ".dat");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void incrementalSnapshots() throws IOException {
+        File file = tempFile("snapshotSource");
+        File target = tempFile("snapshotTarget");
+        int entries = 1000;
+        int segments = 16;
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(entries)
+                .maxBloatFactor(10.0)
+                .actualSegments(segments);
+        try {
+            try (ChronicleMap<Integer, Integer> map = builder.createPersistedTo(file)) {
+                for (int i = 0; i < entries * 3; i++) {
+                    map.put(i, i);
+                }
+                assertEquals(segments, map.snapshotTo(target));
+                // nothing is modified since the previous snapshot
+                assertEquals(0, map.snapshotTo(target));
+
+                map.put(1, -1);
+                map.remove(2);
+                int modifiedSegments = map.snapshotTo(target);
+                assertTrue(modifiedSegments >= 1 && modifiedSegments <= 2);
+
+                for (int i = entries * 3; i < entries * 4; i++) {
+                    map.put(i, i);
+                }
+                map.snapshotTo(target);
+            }
+            try (ChronicleMap<Integer, Integer> snapshot = builder.createPersistedTo(target)) {
+                assertEquals(entries * 4 - 1, snapshot.size());
+                assertEquals((Integer) (-1), snapshot.get(1));
+                assertNull(snapshot.get(2));
+                for (int i = 3; i < entries * 4; i++) {
+                    assertEquals((Integer) i, snapshot.get(i));
+                }
+                // the snapshot is not locked
+                snapshot.put(0, 1);
+            }
+        } finally {
+            file.delete();
+            target.delete();
+        }
+    }
+
+    @Test
+    public void snapshotOfAnotherMapIsNotIncremental() throws IOException {
+        File file1 = tempFile("snapshotSource1");
+        File file2 = tempFile("snapshotSource2");
+        File target = tempFile("snapshotTarget");
+        int entries = 1000;
+        int segments = 16;
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(entries)
+                .actualSegments(segments);
+        try {
+            try (ChronicleMap<Integer, Integer> map1 = builder.createPersistedTo(file1);
+                 ChronicleMap<Integer, Integer> map2 = builder.createPersistedTo(file2)) {
+                // the same updates in the same segments, hence the same write versions
+                for (int i = 0; i < entries; i++) {
+                    map1.put(i, i);
+                    map2.put(i, -i);
+                }
+                assertEquals(segments, map1.snapshotTo(target));
+                assertEquals(segments, map2.snapshotTo(target));
+                assertEquals(0, map2.snapshotTo(target));
+            }
+            try (ChronicleMap<Integer, Integer> snapshot = builder.createPersistedTo(target)) {
+                for (int i = 0; i < entries; i++) {
+                    assertEquals((Integer) (-i), snapshot.get(i));
+                }
+            }
+            try (ChronicleMap<Integer, Integer> map2 = builder.createPersistedTo(file2)) {
+                // the snapshot is opened and could be modified since the previous snapshot
+                assertEquals(segments, map2.snapshotTo(target));
+            }
+        } finally {
+            file1.delete();
+            file2.delete();
+            target.delete();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void snapshotOfInMemoryMap() throws IOException {
+        File target = tempFile("snapshotTarget");
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .create()) {
+            map.snapshotTo(target);
+        } finally {
+            target.delete();
+        }
+    }
+}
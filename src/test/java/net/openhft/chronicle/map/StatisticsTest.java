@@ -0,0 +1,135 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.ChronicleHashStatistics;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StatisticsTest {
+
+    @Test
+    public void lookupsHitsAndMisses() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder.of(Integer.class, Integer.class)
+                .entries(100)
+                .recordStatistics(true)
+                .create()) {
+            for (int i = 0; i < 10; i++) {
+                map.put(i, i);
+            }
+            ChronicleHashStatistics statistics = map.statistics();
+            long lookupsAfterPuts = statistics.getLookups();
+            long hitsAfterPuts = statistics.getHits();
+            assertEquals(10, lookupsAfterPuts);
+            assertEquals(0, hitsAfterPuts);
+
+            for (int i = 0; i < 20; i++) {
+                map.get(i);
+            }
+            assertEquals(lookupsAfterPuts + 20, statistics.getLookups());
+            assertEquals(hitsAfterPuts + 10, statistics.getHits());
+            assertEquals(20, statistics.getMisses());
+            assertTrue(statistics.getHashLookupProbes() >= statistics.getLookups());
+            assertTrue(statistics.getAverageHashLookupProbeLength() >= 1.0);
+
+            long size = 0;
+            for (long segmentSize : statistics.getSegmentSizes()) {
+                size += segmentSize;
+            }
+            assertEquals(10, size);
+        }
+    }
+
+    @Test
+    public void countsOfTerminatedThreadsArePreserved() throws InterruptedException {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder.of(Integer.class, Integer.class)
+                .entries(100)
+                .recordStatistics(true)
+                .create()) {
+            int threads = 100;
+            List<WeakReference<Thread>> terminatedThreads = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int key = i;
+                Thread thread = new Thread(() -> map.put(key, key));
+                thread.start();
+                thread.join();
+                terminatedThreads.add(new WeakReference<>(thread));
+            }
+            // contexts of terminated threads are collected, their counts are folded
+            for (int t = 0; t < 1000 &&
+                    terminatedThreads.stream().anyMatch(ref -> ref.get() != null); t++) {
+                System.gc();
+                Thread.sleep(1);
+            }
+            assertEquals(threads, map.statistics().getLookups());
+            assertEquals(threads, map.statistics().getMisses());
+            map.get(0);
+            assertEquals(threads + 1, map.statistics().getLookups());
+            assertEquals(1, map.statistics().getHits());
+        }
+    }
+
+    @Test
+    public void relocations() {
+        try (ChronicleMap<Integer, CharSequence> map = ChronicleMapBuilder
+                .of(Integer.class, CharSequence.class)
+                .entries(100)
+                .averageValue("value")
+                .actualSegments(1)
+                .recordStatistics(true)
+                .create()) {
+            map.put(1, "v");
+            map.put(2, "v");
+            map.put(1, "a much longer value, which doesn't fit the space of the entry");
+            assertEquals(1, map.statistics().getRelocations());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void statisticsAreNotRecordedByDefault() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder.of(Integer.class, Integer.class)
+                .entries(100)
+                .create()) {
+            map.statistics();
+        }
+    }
+
+    @Test
+    public void registerMBean() throws Exception {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder.of(Integer.class, Integer.class)
+                .entries(100)
+                .recordStatistics(true)
+                .create()) {
+            map.put(1, 1);
+            ObjectName name = ChronicleHashStatistics.registerMBean(map, "statisticsTest");
+            try {
+                Object lookups = ManagementFactory.getPlatformMBeanServer()
+                        .getAttribute(name, "Lookups");
+                assertEquals(1L, lookups);
+            } finally {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+        }
+    }
+}
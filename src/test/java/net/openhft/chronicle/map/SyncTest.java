@@ -0,0 +1,106 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class SyncTest {
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("sync", ".dat");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void explicitSyncOfPersistedMapWithExtraTiers() throws IOException {
+        File file = tempFile();
+        int entries = 1000;
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(entries)
+                .maxBloatFactor(10.0)
+                .actualSegments(4);
+        try {
+            try (ChronicleMap<Integer, Integer> map = builder.createPersistedTo(file)) {
+                map.sync();
+                for (int i = 0; i < entries * 3; i++) {
+                    map.put(i, i);
+                    if (i % 100 == 0)
+                        map.sync();
+                }
+                map.sync();
+                // nothing is modified since the previous sync
+                map.sync();
+            }
+            try (ChronicleMap<Integer, Integer> map = builder.createPersistedTo(file)) {
+                assertEquals(entries * 3, map.size());
+                for (int i = 0; i < entries * 3; i++) {
+                    assertEquals((Integer) i, map.get(i));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void periodicSync() throws IOException, InterruptedException {
+        File file = tempFile();
+        ChronicleMapBuilder<Integer, Integer> builder = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .syncPeriod(10, TimeUnit.MILLISECONDS);
+        try {
+            try (ChronicleMap<Integer, Integer> map = builder.createPersistedTo(file)) {
+                for (int i = 0; i < 1000; i++) {
+                    map.put(i, i);
+                }
+                Thread.sleep(50);
+            }
+            try (ChronicleMap<Integer, Integer> map = builder.createPersistedTo(file)) {
+                assertEquals(1000, map.size());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void syncOfInMemoryMapDoesNothing() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .create()) {
+            map.put(1, 1);
+            map.sync();
+            assertEquals((Integer) 1, map.get(1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSyncPeriod() {
+        ChronicleMapBuilder.of(Integer.class, Integer.class).syncPeriod(-1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.replication.SingleChronicleHashReplication;
+import net.openhft.chronicle.hash.replication.TcpTransportAndNetworkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TcpReplicationBatchingTest {
+
+    static int s_port = 8210;
+
+    private ChronicleMap<Integer, Integer> map1;
+    private ChronicleMap<Integer, Integer> map2;
+    private CountingProxy proxy;
+    private Set<Thread> threads;
+
+    private static ChronicleMap<Integer, Integer> replicatedMap(
+            int identifier, TcpTransportAndNetworkConfig tcpConfig) {
+        return ChronicleMapBuilder.of(Integer.class, Integer.class)
+                .entries(10_000)
+                .replication(SingleChronicleHashReplication.builder()
+                        .tcpTransportAndNetwork(tcpConfig)
+                        .createWithId((byte) identifier))
+                .create();
+    }
+
+    @Before
+    public void sampleThreads() {
+        threads = Thread.getAllStackTraces().keySet();
+    }
+
+    private static TcpTransportAndNetworkConfig tcpConfig1() {
+        return TcpTransportAndNetworkConfig.of(s_port)
+                .heartBeatInterval(1, TimeUnit.SECONDS)
+                .batchLinger(5, TimeUnit.MILLISECONDS)
+                .batchMinBytes(4096)
+                .batchMaxEntries(100);
+    }
+
+    /**
+     * Starts map1 with the given config, and map2, connecting to map1 directly or through a
+     * proxy, which counts the traffic sent by map1
+     */
+    private void start(TcpTransportAndNetworkConfig tcpConfig1, boolean throughProxy)
+            throws IOException {
+        int map1Port = s_port;
+        int map2Port = s_port + 1;
+        InetSocketAddress map1Address = new InetSocketAddress("localhost", map1Port);
+        if (throughProxy)
+            proxy = new CountingProxy(s_port + 2, map1Address);
+        TcpTransportAndNetworkConfig tcpConfig2 = TcpTransportAndNetworkConfig
+                .of(map2Port, throughProxy ?
+                        new InetSocketAddress("localhost", s_port + 2) : map1Address)
+                .heartBeatInterval(1, TimeUnit.SECONDS)
+                .batchLinger(500, TimeUnit.MICROSECONDS);
+        s_port += 3;
+        map1 = replicatedMap(1, tcpConfig1);
+        map2 = replicatedMap(2, tcpConfig2);
+    }
+
+    @After
+    public void tearDown() {
+        if (map1 != null)
+            map1.close();
+        if (map2 != null)
+            map2.close();
+        if (proxy != null) {
+            try {
+                proxy.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        ChannelReplicationTest.checkThreadsShutdown(threads);
+    }
+
+    private void waitTillEqual(int size) throws InterruptedException {
+        for (int t = 0; t < 5000 && (map1.size() < size || !map1.equals(map2)); t++) {
+            Thread.sleep(1);
+        }
+        assertEquals(size, map1.size());
+        assertEquals(map1, map2);
+    }
+
+    /**
+     * Returns the millis until map2 has at least the given number of entries
+     */
+    private long millisTillReplicated(long startNanos, int size) throws InterruptedException {
+        for (int t = 0; t < 5000 && map2.size() < size; t++) {
+            Thread.sleep(1);
+        }
+        assertTrue(map2.size() >= size);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Test
+    public void burstsAreReplicated() throws Exception {
+        start(tcpConfig1(), false);
+        for (int i = 0; i < 1000; i++) {
+            map1.put(i, i);
+            map2.put(i + 1000, i);
+        }
+        waitTillEqual(2000);
+    }
+
+    @Test
+    public void singleUpdateIsSentAfterLingerTime() throws Exception {
+        start(tcpConfig1(), false);
+        map1.put(1, 1);
+        waitTillEqual(1);
+        map2.put(2, 2);
+        waitTillEqual(2);
+    }
+
+    @Test
+    public void writesAreCoalesced() throws Exception {
+        start(tcpConfig1(), true);
+        map1.put(-1, -1);
+        waitTillEqual(1);
+
+        long readsBefore = proxy.readsFromTarget.get();
+        // the updates are spread over 10 ms, without batching each is sent separately
+        for (int i = 0; i < 200; i++) {
+            map1.put(i, i);
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < TimeUnit.MICROSECONDS.toNanos(50)) {
+                // spin
+            }
+        }
+        waitTillEqual(201);
+        long reads = proxy.readsFromTarget.get() - readsBefore;
+        assertTrue("socket reads: " + reads, reads < 50);
+    }
+
+    /**
+     * The linger time is longer than the time the batch is expected to be sent in, heartbeats
+     * are rare not to flush the batch.
+     */
+    private static TcpTransportAndNetworkConfig longLingerConfig() {
+        return TcpTransportAndNetworkConfig.of(s_port)
+                .heartBeatInterval(5, TimeUnit.SECONDS)
+                .batchLinger(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void batchMaxEntriesTriggersSendBeforeLingerTime() throws Exception {
+        start(longLingerConfig().batchMaxEntries(10), false);
+        map1.put(-1, -1);
+        waitTillEqual(1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            map1.put(i, i);
+        }
+        long millis = millisTillReplicated(start, 11);
+        assertTrue("replicated in " + millis + " ms", millis < 500);
+    }
+
+    @Test
+    public void batchMinBytesTriggersSendBeforeLingerTime() throws Exception {
+        start(longLingerConfig().batchMinBytes(200), false);
+        map1.put(-1, -1);
+        waitTillEqual(1);
+
+        long start = System.nanoTime();
+        // each entry takes more than 10 bytes, the first batch is sent before all are put
+        for (int i = 0; i < 50; i++) {
+            map1.put(i, i);
+        }
+        long millis = millisTillReplicated(start, 2);
+        assertTrue("replicated in " + millis + " ms", millis < 500);
+        waitTillEqual(51);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchLingerShouldNotBeNegative() {
+        TcpTransportAndNetworkConfig.of(s_port).batchLinger(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchMaxEntriesShouldBePositive() {
+        TcpTransportAndNetworkConfig.of(s_port).batchMaxEntries(0);
+    }
+}
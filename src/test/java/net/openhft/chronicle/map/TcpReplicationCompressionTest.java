@@ -0,0 +1,125 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.replication.SingleChronicleHashReplication;
+import net.openhft.chronicle.hash.replication.TcpTransportAndNetworkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class TcpReplicationCompressionTest {
+
+    static int s_port = 8150;
+
+    private ChronicleMap<Integer, String> map1;
+    private ChronicleMap<Integer, String> map2;
+    private Set<Thread> threads;
+
+    private ChronicleMap<Integer, String> replicatedMap(
+            int identifier, TcpTransportAndNetworkConfig tcpConfig) {
+        return ChronicleMapBuilder.of(Integer.class, String.class)
+                .entries(1000)
+                .averageValueSize(1000)
+                .replication(SingleChronicleHashReplication.builder()
+                        .tcpTransportAndNetwork(tcpConfig)
+                        .name("map" + identifier)
+                        .createWithId((byte) identifier))
+                .instance()
+                .name("map" + identifier)
+                .create();
+    }
+
+    private void setup(boolean compression1, boolean compression2) {
+        TcpTransportAndNetworkConfig tcpConfig1 = TcpTransportAndNetworkConfig
+                .of(s_port, new InetSocketAddress("localhost", s_port + 1))
+                .heartBeatInterval(1, TimeUnit.SECONDS)
+                .compression(compression1);
+        map1 = replicatedMap(1, tcpConfig1);
+
+        TcpTransportAndNetworkConfig tcpConfig2 = TcpTransportAndNetworkConfig.of(s_port + 1)
+                .heartBeatInterval(1, TimeUnit.SECONDS)
+                .compression(compression2);
+        map2 = replicatedMap(2, tcpConfig2);
+        s_port += 2;
+    }
+
+    @Before
+    public void sampleThreads() {
+        threads = Thread.getAllStackTraces().keySet();
+    }
+
+    @After
+    public void tearDown() {
+        for (final Closeable closeable : new Closeable[]{map1, map2}) {
+            try {
+                if (closeable != null)
+                    closeable.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        ChannelReplicationTest.checkThreadsShutdown(threads);
+    }
+
+    private void putRedundantValuesAndCheckReplicated() throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 20; j++) {
+                sb.append("{\"id\":").append(i).append(",\"name\":\"replicated-value\"}");
+            }
+            if (i % 2 == 0) {
+                map1.put(i, sb.toString());
+            } else {
+                map2.put(i, sb.toString());
+            }
+        }
+        for (int t = 0; t < 10_000 && (map1.size() < 500 || !map1.equals(map2)); t++) {
+            Thread.sleep(1);
+        }
+        assertEquals(500, map1.size());
+        assertEquals(map1, map2);
+    }
+
+    @Test
+    public void compressedReplication() throws InterruptedException {
+        setup(true, true);
+        putRedundantValuesAndCheckReplicated();
+    }
+
+    @Test
+    public void compressionEnabledOnOneNodeOnly() throws InterruptedException {
+        setup(true, false);
+        putRedundantValuesAndCheckReplicated();
+    }
+
+    @Test
+    public void compressionConfig() {
+        TcpTransportAndNetworkConfig config = TcpTransportAndNetworkConfig.of(s_port);
+        assertEquals(false, config.compression());
+        assertEquals(true, config.compression(true).compression());
+        assertEquals(config, config.compression(true).compression(false));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.replication.SingleChronicleHashReplication;
+import net.openhft.chronicle.hash.replication.TcpTransportAndNetworkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class TcpReplicationEventLoopsTest {
+
+    static int s_port = 8170;
+
+    private ChronicleMap<Integer, Integer> map1;
+    private ChronicleMap<Integer, Integer> map2;
+    private ChronicleMap<Integer, Integer> map3;
+    private Set<Thread> threads;
+
+    private static ChronicleMap<Integer, Integer> replicatedMap(
+            int identifier, int port, InetSocketAddress... endpoints) {
+        TcpTransportAndNetworkConfig tcpConfig = TcpTransportAndNetworkConfig
+                .of(port, endpoints)
+                .heartBeatInterval(1, TimeUnit.SECONDS)
+                .eventLoopThreads(2);
+        return ChronicleMapBuilder.of(Integer.class, Integer.class)
+                .entries(1000)
+                .replication(SingleChronicleHashReplication.builder()
+                        .tcpTransportAndNetwork(tcpConfig)
+                        .name("map" + identifier)
+                        .createWithId((byte) identifier))
+                .instance()
+                .name("map" + identifier)
+                .create();
+    }
+
+    @Before
+    public void setup() {
+        threads = Thread.getAllStackTraces().keySet();
+        InetSocketAddress endpoint1 = new InetSocketAddress("localhost", s_port);
+        InetSocketAddress endpoint2 = new InetSocketAddress("localhost", s_port + 1);
+        map1 = replicatedMap(1, s_port);
+        map2 = replicatedMap(2, s_port + 1, endpoint1);
+        map3 = replicatedMap(3, s_port + 2, endpoint1, endpoint2);
+        s_port += 3;
+    }
+
+    @After
+    public void tearDown() {
+        for (final Closeable closeable : new Closeable[]{map1, map2, map3}) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        ChannelReplicationTest.checkThreadsShutdown(threads);
+    }
+
+    @Test
+    public void replicationAcrossEventLoops() throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            (i % 3 == 0 ? map1 : i % 3 == 1 ? map2 : map3).put(i, i);
+        }
+        for (int t = 0; t < 10_000 &&
+                (map1.size() < 300 || !map1.equals(map2) || !map1.equals(map3)); t++) {
+            Thread.sleep(1);
+        }
+        assertEquals(300, map1.size());
+        assertEquals(map1, map2);
+        assertEquals(map1, map3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void eventLoopThreadsShouldBePositive() {
+        TcpTransportAndNetworkConfig.of(s_port).eventLoopThreads(0);
+    }
+}
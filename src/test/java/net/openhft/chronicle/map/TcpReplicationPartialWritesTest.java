@@ -0,0 +1,254 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.hash.replication.SingleChronicleHashReplication;
+import net.openhft.chronicle.hash.replication.TcpTransportAndNetworkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replicates through a proxy with small socket buffers, which forwards the bytes slowly, so that
+ * writes of the replicators to their sockets are partial, and the unsent bytes are kept in the
+ * write buffers (and compacted) while more entries are appended.
+ */
+public class TcpReplicationPartialWritesTest {
+
+    static int s_port = 8230;
+
+    private static final int ENTRIES = 500;
+    private static final int VALUE_SIZE = 4000;
+
+    private ChronicleMap<Integer, String> map1;
+    private ChronicleMap<Integer, String> map2;
+    private SlowProxy proxy;
+    private Set<Thread> threads;
+
+    private ChronicleMap<Integer, String> replicatedMap(
+            int identifier, TcpTransportAndNetworkConfig tcpConfig) {
+        return ChronicleMapBuilder.of(Integer.class, String.class)
+                .entries(ENTRIES)
+                .averageValueSize(VALUE_SIZE)
+                .replication(SingleChronicleHashReplication.builder()
+                        .tcpTransportAndNetwork(tcpConfig)
+                        .name("map" + identifier)
+                        .createWithId((byte) identifier))
+                .instance()
+                .name("map" + identifier)
+                .create();
+    }
+
+    private void setup(boolean compression) throws IOException {
+        proxy = new SlowProxy(s_port + 2, new InetSocketAddress("localhost", s_port + 1));
+        TcpTransportAndNetworkConfig tcpConfig1 = TcpTransportAndNetworkConfig
+                .of(s_port, new InetSocketAddress("localhost", s_port + 2))
+                .heartBeatInterval(1, TimeUnit.SECONDS)
+                .tcpBufferSize(8 * 1024)
+                .compression(compression);
+        map1 = replicatedMap(1, tcpConfig1);
+
+        TcpTransportAndNetworkConfig tcpConfig2 = TcpTransportAndNetworkConfig.of(s_port + 1)
+                .heartBeatInterval(1, TimeUnit.SECONDS)
+                .tcpBufferSize(8 * 1024)
+                .compression(compression);
+        map2 = replicatedMap(2, tcpConfig2);
+        s_port += 3;
+    }
+
+    @Before
+    public void sampleThreads() {
+        threads = Thread.getAllStackTraces().keySet();
+    }
+
+    @After
+    public void tearDown() {
+        for (final Closeable closeable : new Closeable[]{map1, map2, proxy}) {
+            try {
+                if (closeable != null)
+                    closeable.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        ChannelReplicationTest.checkThreadsShutdown(threads);
+    }
+
+    /**
+     * Values are random, to be poorly compressible, and contain the key, to detect entries
+     * mixed up in the buffers.
+     */
+    private static String value(int key) {
+        Random random = new Random(key);
+        StringBuilder sb = new StringBuilder(VALUE_SIZE);
+        sb.append(key).append(':');
+        while (sb.length() < VALUE_SIZE) {
+            sb.append(Long.toHexString(random.nextLong()));
+        }
+        return sb.toString();
+    }
+
+    private void putAndCheckReplicated() throws InterruptedException {
+        for (int i = 0; i < ENTRIES; i++) {
+            if (i % 2 == 0) {
+                map1.put(i, value(i));
+            } else {
+                map2.put(i, value(i));
+            }
+        }
+        for (int t = 0; t < 30_000 && (map1.size() < ENTRIES || map2.size() < ENTRIES); t++) {
+            Thread.sleep(1);
+        }
+        assertEquals(ENTRIES, map1.size());
+        assertEquals(ENTRIES, map2.size());
+        for (int i = 0; i < ENTRIES; i++) {
+            String expected = value(i);
+            assertEquals(expected, map1.get(i));
+            assertEquals(expected, map2.get(i));
+        }
+    }
+
+    @Test
+    public void partialWrites() throws Exception {
+        setup(false);
+        putAndCheckReplicated();
+    }
+
+    @Test
+    public void partialWritesOfCompressedBatches() throws Exception {
+        setup(true);
+        putAndCheckReplicated();
+    }
+
+    /**
+     * Forwards connections to the target address in both directions, in small chunks with pauses.
+     */
+    static final class SlowProxy implements Closeable {
+        private static final int SOCKET_BUFFER_SIZE = 4 * 1024;
+        private static final int CHUNK_SIZE = 1024;
+
+        private final ServerSocket serverSocket;
+        private final InetSocketAddress target;
+        private final List<Socket> sockets = new ArrayList<>();
+        private final List<Thread> pumps = new ArrayList<>();
+        private final Thread acceptor;
+
+        SlowProxy(int port, InetSocketAddress target) throws IOException {
+            this.target = target;
+            serverSocket = new ServerSocket();
+            // applies to the accepted sockets
+            serverSocket.setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress("localhost", port));
+            acceptor = new Thread(this::accept, "slow-proxy-acceptor");
+            acceptor.start();
+        }
+
+        private void accept() {
+            try {
+                while (!serverSocket.isClosed()) {
+                    Socket client = serverSocket.accept();
+                    Socket server = new Socket();
+                    server.setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+                    try {
+                        server.connect(target);
+                    } catch (IOException e) {
+                        // the target is not started yet, the client reconnects
+                        client.close();
+                        continue;
+                    }
+                    synchronized (this) {
+                        if (serverSocket.isClosed()) {
+                            closeQuietly(client);
+                            closeQuietly(server);
+                            return;
+                        }
+                        sockets.add(client);
+                        sockets.add(server);
+                        pumps.add(pump(client, server));
+                        pumps.add(pump(server, client));
+                    }
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        }
+
+        private Thread pump(Socket from, Socket to) {
+            Thread pump = new Thread(() -> {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                try {
+                    InputStream in = from.getInputStream();
+                    OutputStream out = to.getOutputStream();
+                    int read;
+                    while ((read = in.read(chunk)) >= 0) {
+                        out.write(chunk, 0, read);
+                        Thread.sleep(1);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // closed
+                } finally {
+                    closeQuietly(from);
+                    closeQuietly(to);
+                }
+            }, "slow-proxy-pump");
+            pump.start();
+            return pump;
+        }
+
+        private static void closeQuietly(Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            List<Thread> threads;
+            synchronized (this) {
+                sockets.forEach(SlowProxy::closeQuietly);
+                threads = new ArrayList<>(pumps);
+            }
+            threads.add(acceptor);
+            for (Thread thread : threads) {
+                try {
+                    thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *      Copyright (C) 2015  higherfrequencytrading.com
+ *
+ *      This program is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License.
+ *
+ *      This program is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.map;
+
+import net.openhft.chronicle.core.values.LongValue;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TierCompactionTest {
+
+    static long extraTiersInUse(ChronicleMap<?, ?> map) {
+        return map.statistics().getExtraTiersInUse();
+    }
+
+    @Test
+    public void tiersAreReleasedAfterRemovals() {
+        int entries = 1000;
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(entries)
+                .maxBloatFactor(10.0)
+                .actualSegments(1)
+                .recordStatistics(true)
+                .create()) {
+            for (int i = 0; i < entries * 5; i++) {
+                map.put(i, i);
+            }
+            assertTrue(extraTiersInUse(map) > 0);
+            for (int i = 0; i < entries * 5; i += 2) {
+                map.remove(i);
+            }
+            for (int i = entries * 5 / 2; i < entries * 5; i++) {
+                map.remove(i);
+            }
+
+            long extraTiersBefore = extraTiersInUse(map);
+            int releasedTiers = map.compactTiers();
+            assertTrue(releasedTiers > 0);
+            assertEquals(extraTiersBefore - releasedTiers, extraTiersInUse(map));
+
+            assertEquals(entries * 5 / 4, map.size());
+            for (int i = 0; i < entries * 5; i++) {
+                if (i % 2 == 1 && i < entries * 5 / 2) {
+                    assertEquals((Integer) i, map.get(i));
+                } else {
+                    assertNull(map.get(i));
+                }
+            }
+
+            // released tiers are reused
+            for (int i = 0; i < entries * 5; i++) {
+                map.put(i, i);
+            }
+            assertEquals(entries * 5, map.size());
+            assertEquals(entries * 5, map.entrySet().stream().count());
+        }
+    }
+
+    @Test
+    public void alignedValuesStayAlignedAfterCompaction() {
+        int entries = 1000;
+        try (ChronicleMap<CharSequence, LongValue> map = ChronicleMapBuilder
+                .of(CharSequence.class, LongValue.class)
+                .entries(entries)
+                // odd key size and chunk size, so entries could move by not aligned distances
+                .averageKey(key(0))
+                .actualChunkSize(3)
+                .maxBloatFactor(10.0)
+                .actualSegments(1)
+                .recordStatistics(true)
+                .create()) {
+            LongValue value = map.newValueInstance();
+            for (int i = 0; i < entries * 5; i++) {
+                value.setValue(i);
+                map.put(key(i), value);
+            }
+            assertTrue(extraTiersInUse(map) > 0);
+            for (int i = 0; i < entries * 5; i += 2) {
+                map.remove(key(i));
+            }
+
+            map.compactTiers();
+
+            assertEquals(entries * 5 / 2, map.size());
+            for (int i = 1; i < entries * 5; i += 2) {
+                assertEquals(i, map.get(key(i)).getValue());
+            }
+            map.forEachEntry(e -> assertEquals(0L,
+                    e.value().bytes().address(e.value().offset()) & (Long.BYTES - 1)));
+        }
+    }
+
+    private static String key(int i) {
+        return String.format("key%04d", i);
+    }
+
+    @Test
+    public void compactionWithoutExtraTiers() {
+        try (ChronicleMap<Integer, Integer> map = ChronicleMapBuilder
+                .of(Integer.class, Integer.class)
+                .entries(1000)
+                .create()) {
+            for (int i = 0; i < 100; i++) {
+                map.put(i, i);
+            }
+            assertEquals(0, map.compactTiers());
+            assertEquals(100, map.size());
+        }
+    }
+}